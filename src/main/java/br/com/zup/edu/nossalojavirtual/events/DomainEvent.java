@@ -0,0 +1,8 @@
+package br.com.zup.edu.nossalojavirtual.events;
+
+/**
+ * Something that happened in the store and that other parts of the system may react to through the {@link DomainEventBus}.
+ * Events are shared between consumer threads, so they must be immutable
+ */
+public interface DomainEvent {
+}
@@ -0,0 +1,359 @@
+package br.com.zup.edu.nossalojavirtual.events;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.springframework.util.Assert.hasText;
+import static org.springframework.util.Assert.isTrue;
+import static org.springframework.util.Assert.notNull;
+
+/**
+ * Delivers {@link DomainEvent}s to their subscribers without making the publisher wait for them.
+ *
+ * Events go to a preallocated ring of {@code events.bus.ring-size} slots, and every subscription has its own thread
+ * that reads the ring at its own pace and hands the events over in batches. A publisher only waits when the ring is full,
+ * that is when the slowest subscription is a whole ring behind. A slot is cleared once every subscription has read it.
+ *
+ * Each subscription is configured by name with {@code events.bus.consumers.<name>.after-commit},
+ * {@code events.bus.consumers.<name>.wait-strategy} and {@code events.bus.consumers.<name>.batch-size},
+ * {@code events.bus.after-commit}, {@code events.bus.wait-strategy} and {@code events.bus.batch-size} by default.
+ * An after commit subscription receives an event published in a transaction only if it commits,
+ * the other subscriptions receive it right away.
+ */
+@Component
+public class DomainEventBus implements DisposableBean {
+
+    private final Slot[] ring;
+    private final int mask;
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final List<Subscription<?>> subscriptions = new CopyOnWriteArrayList<>();
+    private final MeterRegistry meterRegistry;
+    private final Environment environment;
+    private final boolean afterCommit;
+    private final WaitStrategy waitStrategy;
+    private final int batchSize;
+
+    private final Object releaseLock = new Object();
+
+    // every slot up to this sequence has been read by all subscriptions and cleared, publishers may reuse it
+    private volatile long released = -1;
+
+    private Logger logger = LoggerFactory.getLogger(DomainEventBus.class);
+
+    DomainEventBus(MeterRegistry meterRegistry,
+                   Environment environment,
+                   @Value("${events.bus.ring-size:8192}") int ringSize,
+                   @Value("${events.bus.after-commit:true}") boolean afterCommit,
+                   @Value("${events.bus.wait-strategy:BLOCKING}") WaitStrategy waitStrategy,
+                   @Value("${events.bus.batch-size:256}") int batchSize) {
+        isTrue(ringSize > 0 && Integer.bitCount(ringSize) == 1, "events.bus.ring-size must be a power of two");
+
+        this.meterRegistry = meterRegistry;
+        this.environment = environment;
+        this.afterCommit = afterCommit;
+        this.waitStrategy = waitStrategy;
+        this.batchSize = batchSize;
+        this.mask = ringSize - 1;
+        this.ring = new Slot[ringSize];
+        for (int i = 0; i < ringSize; i++) {
+            ring[i] = new Slot();
+        }
+    }
+
+    /**
+     * subscribes to the events of a type and its subtypes published from now on
+     *
+     * @param name identifies the subscription in its configuration, metrics and thread
+     * @param type the type of the events
+     * @param listener receives the events on the subscription thread
+     */
+    public <E extends DomainEvent> void subscribe(String name, Class<E> type, DomainEventListener<E> listener) {
+        hasText(name, "name must not be blank");
+        notNull(type, "type must not be null");
+        notNull(listener, "listener must not be null");
+
+        var subscription = new Subscription<>(name, type, listener,
+                environment.getProperty("events.bus.consumers." + name + ".after-commit", Boolean.class, afterCommit),
+                environment.getProperty("events.bus.consumers." + name + ".wait-strategy", WaitStrategy.class, waitStrategy),
+                environment.getProperty("events.bus.consumers." + name + ".batch-size", Integer.class, batchSize));
+
+        subscriptions.add(subscription);
+        subscription.start();
+
+        logger.info("{} has subscribed to {} events", name, type.getSimpleName());
+    }
+
+    /**
+     * @param event the event, delivered after the commit to after commit subscriptions when there is an active transaction
+     */
+    public void publish(DomainEvent event) {
+        notNull(event, "event must not be null");
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            write(event, Phase.NON_TRANSACTIONAL);
+            return;
+        }
+
+        boolean immediate = false;
+        boolean committed = false;
+        for (Subscription<?> subscription : subscriptions) {
+            if (subscription.type.isInstance(event)) {
+                immediate |= !subscription.afterCommit;
+                committed |= subscription.afterCommit;
+            }
+        }
+
+        if (immediate) {
+            write(event, Phase.PUBLISHED);
+        }
+
+        if (committed) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    write(event, Phase.COMMITTED);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        subscriptions.forEach(Subscription::stop);
+        for (Subscription<?> subscription : subscriptions) {
+            subscription.thread.join(5_000);
+        }
+    }
+
+    private void write(DomainEvent event, Phase phase) {
+        long sequence = cursor.incrementAndGet();
+        long wrapPoint = sequence - ring.length;
+
+        // the slot still holds an event some subscription has not read yet
+        while (wrapPoint > released) {
+            release(sequence - 1);
+
+            if (wrapPoint > released) {
+                LockSupport.parkNanos(1_000);
+            }
+        }
+
+        Slot slot = ring[(int) (sequence & mask)];
+        slot.event = event;
+        slot.phase = phase;
+        slot.sequence = sequence;
+
+        for (Subscription<?> subscription : subscriptions) {
+            subscription.wakeUp();
+        }
+    }
+
+    /**
+     * clears the slots every subscription has read, so the ring does not keep their events and entities alive
+     *
+     * @param limit the last sequence the caller knows to be written or read
+     */
+    private void release(long limit) {
+        synchronized (releaseLock) {
+            long minimum = limit;
+            for (Subscription<?> subscription : subscriptions) {
+                minimum = Math.min(minimum, subscription.sequence.get());
+            }
+
+            for (long sequence = released + 1; sequence <= minimum; sequence++) {
+                Slot slot = ring[(int) (sequence & mask)];
+                slot.event = null;
+                slot.phase = null;
+            }
+
+            if (minimum > released) {
+                released = minimum;
+            }
+        }
+    }
+
+    private enum Phase {
+        /**
+         * published in a transaction that has not committed yet
+         */
+        PUBLISHED,
+        /**
+         * published by a transaction that has committed
+         */
+        COMMITTED,
+        /**
+         * published outside of a transaction
+         */
+        NON_TRANSACTIONAL
+    }
+
+    private static class Slot {
+
+        // written last by the publisher, so the event and phase are visible to whoever reads this sequence
+        private volatile long sequence = -1;
+        private DomainEvent event;
+        private Phase phase;
+    }
+
+    private class Subscription<E extends DomainEvent> {
+
+        private final String name;
+        private final Class<E> type;
+        private final DomainEventListener<E> listener;
+        private final boolean afterCommit;
+        private final WaitStrategy waitStrategy;
+        private final int batchSize;
+        private final AtomicLong sequence;
+        private final Thread thread;
+        private final Counter delivered;
+        private final Counter failures;
+
+        private final Object monitor = new Object();
+
+        private volatile boolean running = true;
+        private volatile boolean waiting;
+
+        Subscription(String name, Class<E> type, DomainEventListener<E> listener, boolean afterCommit, WaitStrategy waitStrategy, int batchSize) {
+            this.name = name;
+            this.type = type;
+            this.listener = listener;
+            this.afterCommit = afterCommit;
+            this.waitStrategy = waitStrategy;
+            this.batchSize = batchSize;
+            this.sequence = new AtomicLong(cursor.get());
+            this.thread = new Thread(this::consume, "domain-events-" + name);
+            this.thread.setDaemon(true);
+            this.delivered = Counter.builder("events.bus.delivered")
+                                    .tag("consumer", name)
+                                    .register(meterRegistry);
+            this.failures = Counter.builder("events.bus.failures")
+                                   .tag("consumer", name)
+                                   .register(meterRegistry);
+
+            Gauge.builder("events.bus.lag", this, subscription -> cursor.get() - subscription.sequence.get())
+                 .description("events published but not yet read by the consumer")
+                 .tag("consumer", name)
+                 .register(meterRegistry);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        void stop() {
+            running = false;
+            synchronized (monitor) {
+                monitor.notifyAll();
+            }
+        }
+
+        void wakeUp() {
+            if (waiting) {
+                synchronized (monitor) {
+                    monitor.notifyAll();
+                }
+            }
+        }
+
+        /**
+         * reads every event that is available, up to the batch size, and hands the matching ones over at once.
+         * Pending events are still delivered after a stop
+         */
+        private void consume() {
+            List<E> batch = new ArrayList<>(batchSize);
+            int attempts = 0;
+            long next = sequence.get() + 1;
+
+            while (true) {
+                if (ring[(int) (next & mask)].sequence != next) {
+                    if (!running) {
+                        return;
+                    }
+
+                    idle(next, attempts++);
+                    continue;
+                }
+
+                attempts = 0;
+                long last = next;
+                int read = 0;
+                while (read < batchSize && ring[(int) (last & mask)].sequence == last) {
+                    Slot slot = ring[(int) (last & mask)];
+                    if (accepts(slot)) {
+                        batch.add(type.cast(slot.event));
+                    }
+                    last++;
+                    read++;
+                }
+
+                deliver(batch);
+                batch.clear();
+
+                // frees the slots for the publishers
+                sequence.set(last - 1);
+                release(last - 1);
+                next = last;
+            }
+        }
+
+        private boolean accepts(Slot slot) {
+            if (!type.isInstance(slot.event)) {
+                return false;
+            }
+
+            return afterCommit ? slot.phase != Phase.PUBLISHED : slot.phase != Phase.COMMITTED;
+        }
+
+        private void deliver(List<E> batch) {
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            try {
+                listener.onEvents(batch);
+                delivered.increment(batch.size());
+            } catch (RuntimeException e) {
+                // a failing listener must not stop the subscription, the publishers would end up waiting for it
+                failures.increment(batch.size());
+                logger.error("{} could not handle a batch of {} events", name, batch.size(), e);
+            }
+        }
+
+        private void idle(long next, int attempts) {
+            if (waitStrategy != WaitStrategy.BLOCKING) {
+                waitStrategy.idle(attempts);
+                return;
+            }
+
+            synchronized (monitor) {
+                waiting = true;
+                try {
+                    // a publisher that wrote before the flag was set does not notify, so the slot is checked after setting it
+                    while (ring[(int) (next & mask)].sequence != next && running) {
+                        monitor.wait();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    running = false;
+                } finally {
+                    waiting = false;
+                }
+            }
+        }
+    }
+}
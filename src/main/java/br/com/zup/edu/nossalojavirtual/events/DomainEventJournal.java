@@ -0,0 +1,456 @@
+package br.com.zup.edu.nossalojavirtual.events;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.*;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Append only journal of every committed {@link DomainEvent}, enabled by {@code events.journal.enabled=true}.
+ *
+ * Events get consecutive sequence numbers and are written as json to memory mapped segments of
+ * {@code events.journal.segment-size} bytes, named after the sequence of their first event.
+ * Segments are forced to disk every {@code events.journal.fsync-interval}, and the segments older than
+ * {@code events.journal.retention} are deleted by compaction once no open reader needs them. A reader not polled
+ * for {@code events.journal.reader-lease} is no longer waited for, so a reader that was never closed does not keep
+ * every segment forever.
+ * Read models rebuild themselves by replaying the journal with {@link #tail(long)} instead of scanning their tables.
+ *
+ * The journal subscribes to the {@link DomainEventBus}, which publishes after the commit, so the journal is at most once:
+ * events of a transaction that committed just before a crash, or before the fsync that followed it, are not in the journal.
+ * A read model that cannot miss an event must be rebuilt from its tables after a crash instead of from the journal.
+ */
+@Component
+@ConditionalOnProperty(name = "events.journal.enabled", havingValue = "true")
+public class DomainEventJournal implements DisposableBean {
+
+    private static final String SEGMENT_PREFIX = "domain-events-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES;
+
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final int segmentSize;
+    private final Duration retention;
+    private final Duration readerLease;
+    private final ScheduledExecutorService syncer;
+    private final Set<JournalReader> readers = ConcurrentHashMap.newKeySet();
+
+    private MappedByteBuffer segment;
+    private long nextSequence;
+    private volatile long activeSegment;
+    private volatile boolean dirty;
+
+    private Logger logger = LoggerFactory.getLogger(DomainEventJournal.class);
+
+    DomainEventJournal(DomainEventBus eventBus,
+                       ObjectMapper objectMapper,
+                       @Value("${events.journal.directory:data/domain-events}") Path directory,
+                       @Value("${events.journal.segment-size:67108864}") int segmentSize,
+                       @Value("${events.journal.fsync-interval:PT0.05S}") Duration fsyncInterval,
+                       @Value("${events.journal.retention:P30D}") Duration retention,
+                       @Value("${events.journal.reader-lease:PT10M}") Duration readerLease) throws IOException {
+        this.objectMapper = objectMapper;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.retention = retention;
+        this.readerLease = readerLease;
+
+        Files.createDirectories(directory);
+        recover();
+        openSegment();
+
+        this.syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "domain-events-journal-fsync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncer.scheduleWithFixedDelay(this::sync, fsyncInterval.toMillis(), fsyncInterval.toMillis(), MILLISECONDS);
+
+        eventBus.subscribe("DomainEventJournal", DomainEvent.class, this::append);
+    }
+
+    /**
+     * writes a batch of events, an event that cannot be written as json is logged and left out of the journal
+     */
+    synchronized void append(List<DomainEvent> events) {
+        for (DomainEvent event : events) {
+            byte[] body;
+            try {
+                body = encode(nextSequence, event);
+            } catch (JsonProcessingException e) {
+                logger.error("Domain event could not be written to the journal {}", event, e);
+                continue;
+            }
+
+            if (HEADER_SIZE + body.length > segmentSize) {
+                logger.error("Domain event of {} bytes does not fit in a journal segment {}", body.length, event);
+                continue;
+            }
+
+            if (segment.remaining() < HEADER_SIZE + body.length) {
+                rotate();
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(body);
+
+            // the length goes last, a reader never sees a half written entry
+            int start = segment.position();
+            segment.position(start + Integer.BYTES);
+            segment.putInt((int) crc.getValue());
+            segment.put(body);
+            segment.putInt(start, body.length);
+
+            nextSequence++;
+        }
+
+        dirty = true;
+    }
+
+    /**
+     * @param fromSequence the sequence of the first event to read, the {@link JournalReader#position()} of a previous reader resumes it
+     * @return a reader of the events from that sequence on, including the ones appended after it was opened
+     */
+    public JournalReader tail(long fromSequence) {
+        var reader = new JournalReader(fromSequence);
+        readers.add(reader);
+
+        return reader;
+    }
+
+    /**
+     * deletes the segments older than the retention, a segment is kept while an open reader has not read past it
+     * and has been polled within its lease
+     */
+    @Scheduled(fixedDelayString = "${events.journal.compaction-interval:PT1H}")
+    void compact() {
+        readers.removeIf(reader -> {
+            boolean expired = reader.isLeaseExpired();
+            if (expired) {
+                logger.warn("Domain event journal reader at {} has not been polled for {}, compaction no longer waits for it", reader.position(), readerLease);
+            }
+
+            return expired;
+        });
+
+        List<Long> segments = segments();
+        long oldestReaderPosition = readers.stream().mapToLong(JournalReader::position).min().orElse(Long.MAX_VALUE);
+        Instant expiredBefore = Instant.now().minus(retention);
+
+        // the last segment is the one being appended to
+        for (int i = 0; i < segments.size() - 1; i++) {
+            Path path = segmentPath(segments.get(i));
+            try {
+                boolean expired = Files.getLastModifiedTime(path).toInstant().isBefore(expiredBefore);
+                boolean read = segments.get(i + 1) <= oldestReaderPosition;
+                if (!expired || !read) {
+                    return;
+                }
+
+                Files.deleteIfExists(path);
+                logger.info("Domain event journal segment {} has been compacted", path);
+            } catch (IOException e) {
+                logger.error("Domain event journal segment {} could not be compacted", path, e);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        syncer.shutdown();
+        sync();
+    }
+
+    private void sync() {
+        try {
+            MappedByteBuffer written = null;
+            synchronized (this) {
+                if (dirty) {
+                    written = segment;
+                    dirty = false;
+                }
+            }
+
+            // appends go on while the pages are being written
+            if (written != null) {
+                written.force();
+            }
+        } catch (RuntimeException e) {
+            logger.error("Domain event journal could not be synced", e);
+        }
+    }
+
+    private void rotate() {
+        segment.force();
+
+        try {
+            openSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open a new domain event journal segment", e);
+        }
+    }
+
+    private void openSegment() throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(nextSequence), CREATE_NEW, READ, WRITE)) {
+            segment = channel.map(READ_WRITE, 0, segmentSize);
+        }
+
+        // published after the last write to the previous segment, readers leave that segment once they see it
+        activeSegment = nextSequence;
+    }
+
+    private void recover() throws IOException {
+        for (long first : segments()) {
+            Path path = segmentPath(first);
+            List<JournalEntry> entries = read(path);
+
+            if (entries.isEmpty()) {
+                // nothing was appended to it before the application stopped
+                Files.delete(path);
+                continue;
+            }
+
+            nextSequence = entries.get(entries.size() - 1).getSequence() + 1;
+        }
+
+        if (nextSequence > 0) {
+            logger.info("Domain event journal resumes at sequence {}", nextSequence);
+        }
+    }
+
+    private List<JournalEntry> read(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        List<JournalEntry> entries = new ArrayList<>();
+
+        for (JournalEntry entry = next(buffer); entry != null; entry = next(buffer)) {
+            entries.add(entry);
+        }
+
+        return entries;
+    }
+
+    private List<Long> segments() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                        .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                        .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                        .sorted()
+                        .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list the domain event journal", e);
+        }
+    }
+
+    private Path segmentPath(long firstSequence) {
+        return directory.resolve(SEGMENT_PREFIX + String.format("%019d", firstSequence) + SEGMENT_SUFFIX);
+    }
+
+    private byte[] encode(long sequence, DomainEvent event) throws JsonProcessingException {
+        byte[] type = event.getClass().getName().getBytes(UTF_8);
+        byte[] payload = objectMapper.writeValueAsBytes(event);
+
+        return ByteBuffer.allocate(Long.BYTES * 2 + Integer.BYTES + type.length + payload.length)
+                         .putLong(sequence)
+                         .putLong(System.currentTimeMillis())
+                         .putInt(type.length).put(type)
+                         .put(payload)
+                         .array();
+    }
+
+    /**
+     * reads the entry at the position of the buffer and moves past it
+     *
+     * @return null if there is no complete entry at that position, the position does not move then
+     */
+    private static JournalEntry next(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < HEADER_SIZE) {
+            return null;
+        }
+
+        int length = buffer.getInt(start);
+        int checksum = buffer.getInt(start + Integer.BYTES);
+        if (length <= 0 || length > buffer.remaining() - HEADER_SIZE) {
+            return null;
+        }
+
+        byte[] body = new byte[length];
+        buffer.get(start + HEADER_SIZE, body);
+
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+
+        buffer.position(start + HEADER_SIZE + length);
+
+        ByteBuffer fields = ByteBuffer.wrap(body);
+        long sequence = fields.getLong();
+        Instant publishedAt = Instant.ofEpochMilli(fields.getLong());
+        byte[] type = new byte[fields.getInt()];
+        fields.get(type);
+        byte[] payload = new byte[fields.remaining()];
+        fields.get(payload);
+
+        return new JournalEntry(sequence, publishedAt, new String(type, UTF_8), new String(payload, UTF_8));
+    }
+
+    /**
+     * Reads the journal in sequence order from a given sequence, following the segments as they roll.
+     * A reader is used by one thread at a time and must be closed so compaction can delete what it has read,
+     * one that is not closed holds compaction back only while it keeps being polled
+     */
+    public class JournalReader implements AutoCloseable {
+
+        private volatile long position;
+        private volatile long polledAt = System.nanoTime();
+        private volatile boolean closed;
+        private long segmentFirst = -1;
+        private MappedByteBuffer buffer;
+
+        private JournalReader(long fromSequence) {
+            this.position = fromSequence;
+        }
+
+        /**
+         * @param max the maximum number of entries to return
+         * @return the next entries, empty if the reader is at the end of the journal
+         */
+        public synchronized List<JournalEntry> poll(int max) {
+            renewLease();
+            List<JournalEntry> entries = new ArrayList<>();
+
+            while (entries.size() < max) {
+                if (buffer == null && !open()) {
+                    break;
+                }
+
+                JournalEntry entry = next(buffer);
+                if (entry == null) {
+                    boolean active = segmentFirst == activeSegment;
+
+                    // a second look after reading the active segment sees whatever was written before the segment rolled
+                    entry = next(buffer);
+                    if (entry == null) {
+                        // the active segment has nothing more yet, a rolled one has ended or was cut by a crash
+                        if (active || !advance()) {
+                            break;
+                        }
+                        continue;
+                    }
+                }
+
+                if (entry.getSequence() >= position) {
+                    entries.add(entry);
+                    position = entry.getSequence() + 1;
+                }
+            }
+
+            return entries;
+        }
+
+        /**
+         * @return the sequence of the next entry this reader returns
+         */
+        public long position() {
+            return position;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            readers.remove(this);
+            buffer = null;
+        }
+
+        /**
+         * a reader whose lease expired holds compaction back again once it is polled
+         */
+        private void renewLease() {
+            polledAt = System.nanoTime();
+            if (!closed) {
+                readers.add(this);
+            }
+        }
+
+        private boolean isLeaseExpired() {
+            return System.nanoTime() - polledAt > readerLease.toNanos();
+        }
+
+        /**
+         * maps the segment that holds the position, or the oldest one if the position was compacted
+         */
+        private boolean open() {
+            List<Long> segments = segments();
+            if (segments.isEmpty()) {
+                return false;
+            }
+
+            long first = segments.get(0);
+            for (long segment : segments) {
+                if (segment <= position) {
+                    first = segment;
+                }
+            }
+
+            if (first > position) {
+                logger.warn("Domain events from {} to {} have been compacted, the reader starts at {}", position, first - 1, first);
+            }
+
+            return map(first);
+        }
+
+        private boolean advance() {
+            for (long segment : segments()) {
+                if (segment > segmentFirst) {
+                    return map(segment);
+                }
+            }
+
+            return false;
+        }
+
+        private boolean map(long first) {
+            try (FileChannel channel = FileChannel.open(segmentPath(first), READ)) {
+                buffer = channel.map(READ_ONLY, 0, channel.size());
+                segmentFirst = first;
+
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read the domain event journal segment " + first, e);
+            }
+        }
+    }
+}
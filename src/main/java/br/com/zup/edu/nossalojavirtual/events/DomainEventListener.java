@@ -0,0 +1,17 @@
+package br.com.zup.edu.nossalojavirtual.events;
+
+import java.util.List;
+
+/**
+ * Receives the events of a subscription in batches, in the order they were published
+ *
+ * @param <E> the type of the subscribed events
+ */
+@FunctionalInterface
+public interface DomainEventListener<E extends DomainEvent> {
+
+    /**
+     * @param events the events available since the last call, never empty, the list is reused after the call returns
+     */
+    void onEvents(List<E> events);
+}
@@ -0,0 +1,50 @@
+package br.com.zup.edu.nossalojavirtual.events;
+
+import java.time.Instant;
+
+/**
+ * A {@link DomainEvent} as it was written to the {@link DomainEventJournal}, its payload is the event as json
+ */
+public class JournalEntry {
+
+    private final long sequence;
+    private final Instant publishedAt;
+    private final String type;
+    private final String payload;
+
+    JournalEntry(long sequence, Instant publishedAt, String type, String payload) {
+        this.sequence = sequence;
+        this.publishedAt = publishedAt;
+        this.type = type;
+        this.payload = payload;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Instant getPublishedAt() {
+        return publishedAt;
+    }
+
+    /**
+     * @return the fully qualified class name of the event
+     */
+    public String getType() {
+        return type;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    @Override
+    public String toString() {
+        return "JournalEntry{" +
+                "sequence=" + sequence +
+                ", publishedAt=" + publishedAt +
+                ", type='" + type + '\'' +
+                ", payload='" + payload + '\'' +
+                '}';
+    }
+}
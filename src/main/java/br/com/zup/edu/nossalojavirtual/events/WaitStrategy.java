@@ -0,0 +1,55 @@
+package br.com.zup.edu.nossalojavirtual.events;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a consumer of the {@link DomainEventBus} waits for new events,
+ * from the lowest latency and highest cpu usage to the opposite
+ */
+public enum WaitStrategy {
+
+    BUSY_SPIN {
+        @Override
+        void idle(int attempts) {
+            Thread.onSpinWait();
+        }
+    },
+
+    YIELDING {
+        @Override
+        void idle(int attempts) {
+            if (attempts < 100) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+    },
+
+    SLEEPING {
+        @Override
+        void idle(int attempts) {
+            if (attempts < 100) {
+                Thread.onSpinWait();
+            } else if (attempts < 200) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(100_000);
+            }
+        }
+    },
+
+    /**
+     * waits on the consumer monitor until a publisher notifies it, the {@link DomainEventBus} does the waiting itself
+     * because only it knows the monitor and the slot to wait for
+     */
+    BLOCKING;
+
+    /**
+     * called while a consumer finds no new event, the other strategies wait here before the slot is read again
+     *
+     * @param attempts how many times in a row the consumer has found no new event
+     */
+    void idle(int attempts) {
+    }
+}
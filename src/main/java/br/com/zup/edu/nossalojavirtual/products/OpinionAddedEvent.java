@@ -0,0 +1,43 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import br.com.zup.edu.nossalojavirtual.events.DomainEvent;
+
+import java.util.StringJoiner;
+import java.util.UUID;
+
+/**
+ * This class represents an event that is published when someone gives a {@link ProductOpinion} about a product
+ */
+public class OpinionAddedEvent implements DomainEvent {
+
+    private final Long opinionId;
+    private final UUID productId;
+    private final int rating;
+
+    OpinionAddedEvent(ProductOpinion opinion, UUID productId) {
+        this.opinionId = opinion.getId();
+        this.productId = productId;
+        this.rating = opinion.getRating();
+    }
+
+    public Long getOpinionId() {
+        return opinionId;
+    }
+
+    public UUID getProductId() {
+        return productId;
+    }
+
+    public int getRating() {
+        return rating;
+    }
+
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", OpinionAddedEvent.class.getSimpleName() + "[", "]")
+                .add("opinionId=" + opinionId)
+                .add("productId=" + productId)
+                .add("rating=" + rating)
+                .toString();
+    }
+}
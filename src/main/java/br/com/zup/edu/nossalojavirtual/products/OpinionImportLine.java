@@ -0,0 +1,64 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import org.hibernate.validator.constraints.Length;
+import org.hibernate.validator.constraints.Range;
+
+import javax.validation.constraints.Email;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.util.UUID;
+
+/**
+ * One line of an opinion import, an opinion given by a registered user at some point in the past
+ */
+class OpinionImportLine {
+
+    @NotNull
+    @Range(min = 1, max = 5)
+    private Integer rating;
+
+    @NotBlank
+    private String title;
+
+    @Length(max = 500)
+    private String description;
+
+    @NotNull
+    private UUID productId;
+
+    @NotBlank
+    @Email
+    private String user;
+
+    @Deprecated
+    public OpinionImportLine() {
+    }
+
+    public OpinionImportLine(Integer rating, String title, String description, UUID productId, String user) {
+        this.rating = rating;
+        this.title = title;
+        this.description = description;
+        this.productId = productId;
+        this.user = user;
+    }
+
+    public Integer getRating() {
+        return rating;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public UUID getProductId() {
+        return productId;
+    }
+
+    public String getUser() {
+        return user;
+    }
+}
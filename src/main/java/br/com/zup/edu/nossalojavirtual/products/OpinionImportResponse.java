@@ -0,0 +1,57 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class OpinionImportResponse {
+
+    private static final int MAX_LISTED_REJECTIONS = 100;
+
+    private long imported;
+    private long rejected;
+    private final List<String> rejections = new ArrayList<>();
+    private boolean complete = true;
+
+    void imported(int opinions) {
+        imported += opinions;
+    }
+
+    /**
+     * only the first {@value #MAX_LISTED_REJECTIONS} rejections are listed, all of them are counted
+     *
+     * @param line the line of the import, starting at 1
+     */
+    void rejected(long line, String reason) {
+        rejected++;
+        if (rejections.size() < MAX_LISTED_REJECTIONS) {
+            rejections.add("line " + line + ": " + reason);
+        }
+    }
+
+    /**
+     * the rest of the import could not be read, what was read before it is imported
+     */
+    void stopped(long line, String reason) {
+        rejected(line, reason);
+        complete = false;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public List<String> getRejections() {
+        return rejections;
+    }
+
+    /**
+     * @return false if the import stopped before its end
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+}
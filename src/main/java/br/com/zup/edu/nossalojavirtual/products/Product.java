@@ -1,8 +1,8 @@
 package br.com.zup.edu.nossalojavirtual.products;
 
 import br.com.zup.edu.nossalojavirtual.categories.Category;
-import br.com.zup.edu.nossalojavirtual.purchase.NewPurchaseRequest;
 import br.com.zup.edu.nossalojavirtual.purchase.Purchase;
+import br.com.zup.edu.nossalojavirtual.purchase.PurchaseLine;
 import br.com.zup.edu.nossalojavirtual.users.User;
 import org.hibernate.validator.constraints.Length;
 
@@ -14,7 +14,6 @@ import java.util.*;
 
 import static java.time.LocalDateTime.now;
 import static java.util.Objects.requireNonNull;
-import static java.util.stream.Collectors.averagingDouble;
 import static org.springframework.util.Assert.notEmpty;
 
 @Table(name = "products")
@@ -74,6 +73,16 @@ class Product {
     @Column(name = "product_created_at")
     private LocalDateTime createdAt = now();
 
+    /**
+     * rating aggregates, changed only by {@link ProductRepository#addRatings}, never by saving the product,
+     * so a stock reservation does not write back a stale rating
+     */
+    @Column(name = "product_ratings_count", updatable = false)
+    private long ratingsCount;
+
+    @Column(name = "product_ratings_sum", updatable = false)
+    private long ratingsSum;
+
     @Version
     private Long version;
 
@@ -170,9 +179,11 @@ class Product {
         return user;
     }
 
+    /**
+     * @return the average of the opinion ratings, read from the aggregates instead of the opinions
+     */
     public BigDecimal rating() {
-        double rating = opinions.stream()
-                .collect(averagingDouble(ProductOpinion::getRating));
+        double rating = ratingsCount == 0 ? 0 : (double) ratingsSum / ratingsCount;
 
         return BigDecimal.valueOf(rating);
     }
@@ -195,22 +206,43 @@ class Product {
         }
     }
 
+    /**
+     * @param quantity a quantity that someone wants to buy
+     * @return true if there is enough stock, nothing is reserved
+     */
+    public boolean hasStockFor(int quantity) {
+        return stockQuantity >= quantity;
+    }
+
     /**
      * changes the product {@link #stockQuantity}
      *
-     * @param newPurchase a new Purchase (this parameter is highly coupled, but if needed an interface can be created to decouple)
+     * @param purchaseLine the quantity of this product that the buyer wants
      * @param buyer a buyer
      *
      * @return An {@link Optional< Purchase >} with a new {@link Purchase} if stock quantity is valid
      */
-    public Optional<Purchase> reserveQuantityFor(NewPurchaseRequest newPurchase, User buyer) {
-        if (stockQuantity < newPurchase.getQuantity()) {
+    public Optional<Purchase> reserveQuantityFor(PurchaseLine purchaseLine, User buyer) {
+        if (!hasStockFor(purchaseLine.getQuantity())) {
             return Optional.empty();
         }
 
-        stockQuantity -= newPurchase.getQuantity();
+        stockQuantity -= purchaseLine.getQuantity();
+
+        return Optional.of(purchaseLine.toPurchase(buyer, this));
+    }
+
+    /**
+     * gives back to the {@link #stockQuantity} what a purchase that will never be paid had reserved
+     *
+     * @param quantity the quantity of the purchase
+     */
+    public void releaseQuantity(int quantity) {
+        if (quantity < 1) {
+            throw new IllegalArgumentException("quantity must not be less than 1");
+        }
 
-        return Optional.of(newPurchase.toPurchase(buyer, this));
+        stockQuantity += quantity;
     }
 
     @Override
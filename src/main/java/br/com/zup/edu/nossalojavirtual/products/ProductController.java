@@ -1,6 +1,7 @@
 package br.com.zup.edu.nossalojavirtual.products;
 
 import br.com.zup.edu.nossalojavirtual.categories.CategoryRepository;
+import br.com.zup.edu.nossalojavirtual.events.DomainEventBus;
 import br.com.zup.edu.nossalojavirtual.exception.UserNotValidException;
 import br.com.zup.edu.nossalojavirtual.products.shared.validators.ObjectIsRegisteredValidator;
 import br.com.zup.edu.nossalojavirtual.users.User;
@@ -27,16 +28,19 @@ class ProductController {
     private final CategoryRepository categoryRepository;
     private final PhotoUploader photoUploader;
     private final UserRepository userRepository;
+    private final DomainEventBus eventBus;
 
     private Logger logger = LoggerFactory.getLogger(ProductController.class);
 
     public ProductController(ProductRepository productRepository,
                              CategoryRepository categoryRepository,
-                             PhotoUploader photoUploader, UserRepository userRepository) {
+                             PhotoUploader photoUploader, UserRepository userRepository,
+                             DomainEventBus eventBus) {
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
         this.photoUploader = photoUploader;
         this.userRepository = userRepository;
+        this.eventBus = eventBus;
     }
 
     @PostMapping
@@ -53,6 +57,8 @@ class ProductController {
 
         logger.info("New product has been created! {}", product.toString());
 
+        eventBus.publish(new ProductCreatedEvent(product));
+
         URI location = URI.create("/api/products/" + product.getId());
         return created(location).build();
     }
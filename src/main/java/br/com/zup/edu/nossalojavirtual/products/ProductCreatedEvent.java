@@ -0,0 +1,57 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import br.com.zup.edu.nossalojavirtual.events.DomainEvent;
+
+import java.math.BigDecimal;
+import java.util.StringJoiner;
+import java.util.UUID;
+
+/**
+ * This class represents an event that is published when a seller registers a {@link Product}
+ */
+public class ProductCreatedEvent implements DomainEvent {
+
+    private final UUID productId;
+    private final String name;
+    private final BigDecimal price;
+    private final int stockQuantity;
+    private final String sellerEmail;
+
+    ProductCreatedEvent(Product product) {
+        this.productId = product.getId();
+        this.name = product.getName();
+        this.price = product.getPrice();
+        this.stockQuantity = product.getStockQuantity();
+        this.sellerEmail = product.sellerEmail();
+    }
+
+    public UUID getProductId() {
+        return productId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public int getStockQuantity() {
+        return stockQuantity;
+    }
+
+    public String getSellerEmail() {
+        return sellerEmail;
+    }
+
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", ProductCreatedEvent.class.getSimpleName() + "[", "]")
+                .add("productId=" + productId)
+                .add("name='" + name + "'")
+                .add("price=" + price)
+                .add("stockQuantity=" + stockQuantity)
+                .toString();
+    }
+}
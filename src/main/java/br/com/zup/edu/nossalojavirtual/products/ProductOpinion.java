@@ -7,9 +7,10 @@ import org.hibernate.validator.constraints.Range;
 import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
+import java.util.UUID;
 
 import static java.util.Objects.requireNonNull;
-import static javax.persistence.GenerationType.IDENTITY;
+import static javax.persistence.GenerationType.SEQUENCE;
 import static org.springframework.util.Assert.hasText;
 
 @Table(name = "products_opinion")
@@ -17,8 +18,10 @@ import static org.springframework.util.Assert.hasText;
 public
 class ProductOpinion {
 
+    // identity columns turn off jdbc batching, the opinion import inserts opinions in batches
     @Id
-    @GeneratedValue(strategy = IDENTITY)
+    @GeneratedValue(strategy = SEQUENCE, generator = "products_opinion_sequence")
+    @SequenceGenerator(name = "products_opinion_sequence", sequenceName = "products_opinion_sequence", allocationSize = 50)
     private Long id;
 
     @Range(min = 1, max = 5)
@@ -94,6 +97,13 @@ class ProductOpinion {
         return description;
     }
 
+    /**
+     * reads the id of the product reference, the product is not loaded
+     */
+    UUID getProductId() {
+        return product.getId();
+    }
+
     @Override
     public String toString() {
         return "ProductOpinion{" +
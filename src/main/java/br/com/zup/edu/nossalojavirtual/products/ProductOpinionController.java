@@ -1,5 +1,6 @@
 package br.com.zup.edu.nossalojavirtual.products;
 
+import br.com.zup.edu.nossalojavirtual.events.DomainEventBus;
 import br.com.zup.edu.nossalojavirtual.exception.UserNotValidException;
 import br.com.zup.edu.nossalojavirtual.products.shared.validators.ObjectIsRegisteredValidator;
 import br.com.zup.edu.nossalojavirtual.users.User;
@@ -9,6 +10,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
@@ -25,14 +27,20 @@ class ProductOpinionController {
     private final ProductOpinionRepository productOpinionRepository;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
+    private final DomainEventBus eventBus;
+    private final TransactionTemplate transactionTemplate;
 
     private Logger logger = LoggerFactory.getLogger(ProductOpinionController.class);
 
     public ProductOpinionController(ProductOpinionRepository productOpinionRepository,
-                                    ProductRepository productRepository, UserRepository userRepository) {
+                                    ProductRepository productRepository, UserRepository userRepository,
+                                    DomainEventBus eventBus,
+                                    TransactionTemplate transactionTemplate) {
         this.productOpinionRepository = productOpinionRepository;
         this.productRepository = productRepository;
         this.userRepository = userRepository;
+        this.eventBus = eventBus;
+        this.transactionTemplate = transactionTemplate;
     }
 
     @PostMapping
@@ -44,8 +52,15 @@ class ProductOpinionController {
                 () -> new UserNotValidException("User not authenticated.")
         );
 
-        var opinion = newOpinion.toProductOpinion(productRepository::findById, user);
-        productOpinionRepository.save(opinion);
+        var opinion = transactionTemplate.execute(status -> {
+            var newProductOpinion = newOpinion.toProductOpinion(productRepository::findById, user);
+            productOpinionRepository.save(newProductOpinion);
+            productRepository.addRatings(newOpinion.getProductId(), 1, newProductOpinion.getRating());
+
+            eventBus.publish(new OpinionAddedEvent(newProductOpinion, newOpinion.getProductId()));
+
+            return newProductOpinion;
+        });
 
         logger.info("New opinion has been created! {}", opinion.toString());
 
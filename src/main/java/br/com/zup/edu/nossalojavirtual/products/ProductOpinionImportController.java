@@ -0,0 +1,41 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.springframework.http.ResponseEntity.badRequest;
+import static org.springframework.http.ResponseEntity.ok;
+
+@RestController
+@RequestMapping("/api/opinions/import")
+class ProductOpinionImportController {
+
+    static final String NDJSON = "application/x-ndjson";
+
+    private final ProductOpinionImporter importer;
+
+    ProductOpinionImportController(ProductOpinionImporter importer) {
+        this.importer = importer;
+    }
+
+    /**
+     * Imports one json opinion per line, the body is read as it arrives.
+     * Rejected lines are reported in the response, a malformed line stops the import with a bad request.
+     * Every line names its author, so only the {@code lojavirtual:admin} scope may import
+     */
+    @PostMapping(consumes = NDJSON)
+    ResponseEntity<?> importOpinions(InputStream lines) throws IOException {
+        OpinionImportResponse response = importer.importFrom(lines);
+
+        if (!response.isComplete()) {
+            return badRequest().body(response);
+        }
+
+        return ok(response);
+    }
+}
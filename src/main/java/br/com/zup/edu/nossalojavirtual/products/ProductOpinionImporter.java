@@ -0,0 +1,175 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import br.com.zup.edu.nossalojavirtual.events.DomainEventBus;
+import br.com.zup.edu.nossalojavirtual.users.User;
+import br.com.zup.edu.nossalojavirtual.users.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Imports opinions from a stream of json lines, like the reviews of a marketplace migration.
+ *
+ * Lines are read one at a time and imported in batches of {@code products.opinions.import.batch-size},
+ * each batch in its own transaction: the products and users of the batch are looked up with one query each,
+ * the opinions are inserted in jdbc batches and every product gets its rating aggregates updated once.
+ * An invalid line is rejected and the import goes on.
+ */
+@Component
+class ProductOpinionImporter {
+
+    private final ProductOpinionRepository productOpinionRepository;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final DomainEventBus eventBus;
+    private final Validator validator;
+    private final ObjectReader lineReader;
+    private final int batchSize;
+
+    private Logger logger = LoggerFactory.getLogger(ProductOpinionImporter.class);
+
+    ProductOpinionImporter(ProductOpinionRepository productOpinionRepository,
+                           ProductRepository productRepository,
+                           UserRepository userRepository,
+                           TransactionTemplate transactionTemplate,
+                           DomainEventBus eventBus,
+                           Validator validator,
+                           ObjectMapper objectMapper,
+                           @Value("${products.opinions.import.batch-size:500}") int batchSize) {
+        this.productOpinionRepository = productOpinionRepository;
+        this.productRepository = productRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.eventBus = eventBus;
+        this.validator = validator;
+        this.lineReader = objectMapper.readerFor(OpinionImportLine.class);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param lines one json opinion per line, it is read as it arrives and never held in memory as a whole
+     */
+    OpinionImportResponse importFrom(InputStream lines) throws IOException {
+        var response = new OpinionImportResponse();
+        List<NumberedLine> batch = new ArrayList<>(batchSize);
+        long lineNumber = 0;
+
+        try (MappingIterator<OpinionImportLine> iterator = lineReader.readValues(lines)) {
+            while (iterator.hasNextValue()) {
+                OpinionImportLine line = iterator.nextValue();
+                lineNumber++;
+
+                Set<ConstraintViolation<OpinionImportLine>> violations = validator.validate(line);
+                if (!violations.isEmpty()) {
+                    response.rejected(lineNumber, describe(violations));
+                    continue;
+                }
+
+                batch.add(new NumberedLine(lineNumber, line));
+                if (batch.size() == batchSize) {
+                    importBatch(batch, response);
+                    batch.clear();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            response.stopped(lineNumber + 1, "malformed json, the import stopped here");
+        }
+
+        importBatch(batch, response);
+
+        logger.info("Opinion import has finished, {} imported and {} rejected", response.getImported(), response.getRejected());
+
+        return response;
+    }
+
+    private void importBatch(List<NumberedLine> batch, OpinionImportResponse response) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Set<UUID> products = productRepository.findExistingIds(batch.stream().map(numbered -> numbered.line.getProductId()).collect(toSet()));
+            Map<String, User> users = userRepository.findAllByEmailIn(batch.stream().map(numbered -> numbered.line.getUser()).collect(toSet()))
+                                                    .stream()
+                                                    .collect(toMap(User::getUsername, identity()));
+
+            List<ProductOpinion> opinions = new ArrayList<>(batch.size());
+            Map<UUID, Ratings> ratings = new HashMap<>();
+
+            for (NumberedLine numbered : batch) {
+                OpinionImportLine line = numbered.line;
+                if (!products.contains(line.getProductId())) {
+                    response.rejected(numbered.number, "product " + line.getProductId() + " is not registered");
+                    continue;
+                }
+
+                User user = users.get(line.getUser());
+                if (user == null) {
+                    response.rejected(numbered.number, "user " + line.getUser() + " is not registered");
+                    continue;
+                }
+
+                String description = line.getDescription() == null ? "" : line.getDescription();
+                opinions.add(new ProductOpinion(line.getRating(), line.getTitle(), description,
+                                                productRepository.getReferenceById(line.getProductId()), user));
+                ratings.computeIfAbsent(line.getProductId(), productId -> new Ratings()).add(line.getRating());
+            }
+
+            productOpinionRepository.saveAll(opinions);
+            ratings.forEach((productId, productRatings) -> productRepository.addRatings(productId, productRatings.count, productRatings.sum));
+
+            for (ProductOpinion opinion : opinions) {
+                eventBus.publish(new OpinionAddedEvent(opinion, opinion.getProductId()));
+            }
+
+            response.imported(opinions.size());
+        });
+    }
+
+    private static String describe(Set<ConstraintViolation<OpinionImportLine>> violations) {
+        return violations.stream()
+                         .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                         .sorted()
+                         .collect(joining(", "));
+    }
+
+    private static class NumberedLine {
+
+        private final long number;
+        private final OpinionImportLine line;
+
+        NumberedLine(long number, OpinionImportLine line) {
+            this.number = number;
+            this.line = line;
+        }
+    }
+
+    private static class Ratings {
+
+        private long count;
+        private long sum;
+
+        void add(int rating) {
+            count++;
+            sum += rating;
+        }
+    }
+}
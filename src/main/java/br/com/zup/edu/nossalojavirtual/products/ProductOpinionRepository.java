@@ -10,6 +10,8 @@ public interface ProductOpinionRepository extends Repository<ProductOpinion, Lon
 
     ProductOpinion save(ProductOpinion productOpinion);
 
+    List<ProductOpinion> saveAll(Iterable<ProductOpinion> productOpinions);
+
     Optional<ProductOpinion> findById(long idNewOpinionSaved);
 
     void deleteAll();
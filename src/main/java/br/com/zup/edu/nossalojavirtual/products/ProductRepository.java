@@ -1,10 +1,18 @@
 package br.com.zup.edu.nossalojavirtual.products;
 
 import br.com.zup.edu.nossalojavirtual.users.User;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.LockModeType;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 public interface ProductRepository extends Repository<Product, UUID> {
@@ -15,8 +23,34 @@ public interface ProductRepository extends Repository<Product, UUID> {
 
     Optional<Product> findById(UUID uuid);
 
+    /**
+     * @return a reference to the product that is not loaded until it is used
+     */
+    Product getReferenceById(UUID id);
+
+    @Query("select p.id from Product p where p.id in :ids")
+    Set<UUID> findExistingIds(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * adds opinion ratings to the rating aggregates of a product in a single update
+     *
+     * @param count the number of ratings
+     * @param sum the sum of the ratings
+     */
+    @Transactional
+    @Modifying
+    @Query("update Product p set p.ratingsCount = p.ratingsCount + :count, p.ratingsSum = p.ratingsSum + :sum where p.id = :id")
+    int addRatings(@Param("id") UUID id, @Param("count") long count, @Param("sum") long sum);
+
     List<Product> findByUser(User user);
 
+    /**
+     * locks the products ordered by id, so concurrent checkouts always lock rows in the same order
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from Product p where p.id in :ids order by p.id")
+    List<Product> findAllByIdForUpdate(@Param("ids") Collection<UUID> ids);
+
     void deleteAll();
 
     List<Product> findAll();
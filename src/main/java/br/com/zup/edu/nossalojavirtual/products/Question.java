@@ -10,10 +10,17 @@ import java.time.LocalDateTime;
 
 import static java.time.LocalDateTime.now;
 import static java.util.Objects.requireNonNull;
+import static javax.persistence.FetchType.LAZY;
 import static javax.persistence.GenerationType.IDENTITY;
 import static org.springframework.util.Assert.hasText;
 
-@Table(name = "products_questions")
+@Table(name = "products_questions",
+        indexes = {
+                @Index(name = "idx_question_product_newest",
+                        columnList = "question_product_id, question_created_at desc, question_id desc"),
+                @Index(name = "idx_question_seller_inbox",
+                        columnList = "question_seller_id, question_created_at desc, question_id desc")
+        })
 @Entity
 public class Question {
 
@@ -37,6 +44,15 @@ public class Question {
     @NotNull
     private Product product;
 
+    /**
+     * the owner of the product, copied here so the seller inbox is read from an index of this table
+     * instead of going through every product of the seller
+     */
+    @ManyToOne(fetch = LAZY)
+    @JoinColumn(name = "question_seller_id")
+    @NotNull
+    private User seller;
+
     @PastOrPresent
     @Column(name = "question_created_at")
     private LocalDateTime createdAt = now();
@@ -59,6 +75,7 @@ public class Question {
         this.title = title;
         this.user = user;
         this.product = product;
+        this.seller = product.getUser();
     }
 
     public Long getId() {
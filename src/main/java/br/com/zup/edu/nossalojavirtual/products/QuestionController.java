@@ -1,14 +1,17 @@
 package br.com.zup.edu.nossalojavirtual.products;
 
+import br.com.zup.edu.nossalojavirtual.events.DomainEventBus;
 import br.com.zup.edu.nossalojavirtual.exception.UserNotValidException;
 import br.com.zup.edu.nossalojavirtual.users.User;
 import br.com.zup.edu.nossalojavirtual.users.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.util.UriComponentsBuilder;
@@ -21,25 +24,34 @@ import java.util.UUID;
 
 import static org.springframework.http.ResponseEntity.created;
 import static org.springframework.http.ResponseEntity.notFound;
+import static org.springframework.http.ResponseEntity.ok;
 
 @RestController
 @RequestMapping("/api/products/{id}/questions")
 class QuestionController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final ProductRepository productRepository;
     private final QuestionRepository questionRepository;
     private final UserRepository userRepository;
+    private final DomainEventBus eventBus;
     private final ApplicationEventPublisher publisher;
+    private final TransactionTemplate transactionTemplate;
 
     private Logger logger = LoggerFactory.getLogger(QuestionController.class);
 
     QuestionController(ProductRepository productRepository,
                        QuestionRepository questionRepository,
-                       ApplicationEventPublisher publisher, UserRepository userRepository) {
+                       DomainEventBus eventBus, UserRepository userRepository,
+                       ApplicationEventPublisher publisher,
+                       TransactionTemplate transactionTemplate) {
         this.productRepository = productRepository;
         this.questionRepository = questionRepository;
-        this.publisher = publisher;
+        this.eventBus = eventBus;
         this.userRepository = userRepository;
+        this.publisher = publisher;
+        this.transactionTemplate = transactionTemplate;
     }
 
     @PostMapping
@@ -60,19 +72,42 @@ class QuestionController {
         }
 
         Product product = possibleProduct.get();
-        var question = newQuestion.toQuestion(user, product);
-        questionRepository.save(question);
+        var question = transactionTemplate.execute(status -> {
+            var newProductQuestion = newQuestion.toQuestion(user, product);
+            questionRepository.save(newProductQuestion);
 
-        logger.info("New question has been created! {}", question.toString());
+            var questionEvent = new QuestionEvent(newProductQuestion, uriBuilder);
+            // the seller email goes to the outbox in this transaction, the bus subscribers only get the event after the commit
+            publisher.publishEvent(questionEvent);
+            eventBus.publish(questionEvent);
 
-        publisher.publishEvent(new QuestionEvent(question, uriBuilder));
+            return newProductQuestion;
+        });
+
+        logger.info("New question has been created! {}", question.toString());
 
         var location = URI.create("/api/products/" + id.toString() + "/questions/" + question.getId());
-        List<Question> questions = questionRepository.findByProduct(possibleProduct.get());
 
-        List<QuestionResponse> response = QuestionResponse.from(questions);
+        return created(location).body(QuestionResponse.from(question));
+
+    }
+
+    /**
+     * @param size the page size, at most {@value #MAX_PAGE_SIZE}
+     * @return the newest questions of the product
+     */
+    @GetMapping
+    ResponseEntity<?> newestQuestions(@PathVariable("id") UUID id,
+                                      @RequestParam(name = "size", defaultValue = "20") int size) {
+
+        if (!productRepository.existsById(id)) {
+            logger.info("Product not found - id {}", id);
+            return notFound().build();
+        }
 
-        return created(location).body(response);
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        List<QuestionResponse> questions = questionRepository.findNewestByProduct(id, PageRequest.of(0, pageSize));
 
+        return ok(questions);
     }
 }
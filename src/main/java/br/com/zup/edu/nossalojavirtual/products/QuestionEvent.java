@@ -1,21 +1,24 @@
 package br.com.zup.edu.nossalojavirtual.products;
 
+import br.com.zup.edu.nossalojavirtual.events.DomainEvent;
 import br.com.zup.edu.nossalojavirtual.users.User;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.util.StringJoiner;
+import java.util.UUID;
 
 /**
  * This class represents an event that is propagated when someone create a {@link Question}
  */
-class QuestionEvent {
+class QuestionEvent implements DomainEvent {
 
     private final Long id;
     private final String title;
     private final String sellersEmail;
+    private final Long sellerId;
     private final String possibleBuyer;
     private final String productUri;
-    private final Product product;
+    private final UUID productId;
 
     /**
      *
@@ -28,6 +31,7 @@ class QuestionEvent {
 
         Product product = question.getProduct();
         this.sellersEmail = product.sellerEmail();
+        this.sellerId = product.getUser().getId();
 
         User user = question.getUser();
         this.possibleBuyer = user.getUsername();
@@ -35,7 +39,7 @@ class QuestionEvent {
         this.productUri = uriBuilder.path("/api/products/{id}")
                                     .buildAndExpand(product.getId())
                                     .toString();
-        this.product = product;
+        this.productId = product.getId();
     }
 
     public Long getId() {
@@ -50,6 +54,10 @@ class QuestionEvent {
         return sellersEmail;
     }
 
+    public Long getSellerId() {
+        return sellerId;
+    }
+
     public String getPossibleBuyer() {
         return possibleBuyer;
     }
@@ -58,8 +66,8 @@ class QuestionEvent {
         return productUri;
     }
 
-    public Product getProduct() {
-        return product;
+    public UUID getProductId() {
+        return productId;
     }
 
     @Override
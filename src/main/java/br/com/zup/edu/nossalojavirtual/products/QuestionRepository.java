@@ -1,10 +1,15 @@
 package br.com.zup.edu.nossalojavirtual.products;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 public interface QuestionRepository extends Repository<Question, Long> {
 
@@ -12,6 +17,35 @@ public interface QuestionRepository extends Repository<Question, Long> {
 
     List<Question> findByProduct(Product product);
 
+    /**
+     * newest questions first over the (question_product_id, question_created_at desc) index,
+     * the usernames are joined in the same statement
+     */
+    @Query("select new br.com.zup.edu.nossalojavirtual.products.QuestionResponse(q.id, q.title, u.email, q.createdAt) " +
+            "from Question q join q.user u " +
+            "where q.product.id = :productId " +
+            "order by q.createdAt desc, q.id desc")
+    List<QuestionResponse> findNewestByProduct(@Param("productId") UUID productId, Pageable pageable);
+
+    /**
+     * keyset pagination over the (question_seller_id, question_created_at desc, question_id desc) index, newest questions first
+     *
+     * @param before only questions created before it, or at that time with a smaller id, are returned
+     * @param beforeId the id of the last question of the previous page
+     */
+    @Query("select new br.com.zup.edu.nossalojavirtual.products.SellerInboxItem(q.id, q.title, q.product.id, u.email, q.createdAt) " +
+            "from Question q join q.user u " +
+            "where q.seller.id = :sellerId " +
+            "and (q.createdAt < :before or (q.createdAt = :before and q.id < :beforeId)) " +
+            "order by q.createdAt desc, q.id desc")
+    List<SellerInboxItem> findInbox(@Param("sellerId") Long sellerId,
+                                    @Param("before") LocalDateTime before,
+                                    @Param("beforeId") long beforeId,
+                                    Pageable pageable);
+
+    @Query("select count(q) from Question q where q.seller.id = :sellerId")
+    long countBySellerId(@Param("sellerId") Long sellerId);
+
     Optional<Question> findById(Long id);
 
     List<Question> findAll();
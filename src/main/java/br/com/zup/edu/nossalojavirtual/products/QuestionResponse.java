@@ -29,6 +29,16 @@ class QuestionResponse {
         this.createdAt = question.getCreatedAt();
     }
 
+    /**
+     * read straight from the query, with the username joined, without loading the question and its user
+     */
+    QuestionResponse(Long id, String title, String user, LocalDateTime createdAt) {
+        this.id = id;
+        this.title = title;
+        this.user = user;
+        this.createdAt = createdAt;
+    }
+
     public Long getId() {
         return id;
     }
@@ -45,6 +55,10 @@ class QuestionResponse {
         return createdAt;
     }
 
+    public static QuestionResponse from(Question question) {
+        return new QuestionResponse(question);
+    }
+
     public static List<QuestionResponse> from(List<Question> questions) {
 
         return questions.stream()
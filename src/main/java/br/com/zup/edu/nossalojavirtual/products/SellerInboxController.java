@@ -0,0 +1,72 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import br.com.zup.edu.nossalojavirtual.exception.UserNotValidException;
+import br.com.zup.edu.nossalojavirtual.users.User;
+import br.com.zup.edu.nossalojavirtual.users.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+import static org.springframework.http.ResponseEntity.badRequest;
+import static org.springframework.http.ResponseEntity.ok;
+
+/**
+ * The questions asked on every product of the authenticated seller.
+ * Questions cannot be answered yet, so every question of the seller is unanswered
+ */
+@RestController
+@RequestMapping("/api/sellers/me/questions")
+class SellerInboxController {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final QuestionRepository questionRepository;
+    private final UserRepository userRepository;
+    private final SellerInboxCounts sellerInboxCounts;
+
+    private Logger logger = LoggerFactory.getLogger(SellerInboxController.class);
+
+    SellerInboxController(QuestionRepository questionRepository,
+                          UserRepository userRepository,
+                          SellerInboxCounts sellerInboxCounts) {
+        this.questionRepository = questionRepository;
+        this.userRepository = userRepository;
+        this.sellerInboxCounts = sellerInboxCounts;
+    }
+
+    /**
+     * @param cursor the nextCursor of the previous page, the first page is returned without it
+     * @param size the page size, at most {@value #MAX_PAGE_SIZE}
+     */
+    @GetMapping
+    ResponseEntity<?> inbox(@RequestParam(name = "cursor", required = false) String cursor,
+                            @RequestParam(name = "size", defaultValue = "20") int size,
+                            @AuthenticationPrincipal(expression = "claims['email']") String username) {
+
+        User seller = userRepository.findByEmail(username).orElseThrow(
+                () -> new UserNotValidException("User not authenticated.")
+        );
+
+        SellerInboxCursor position;
+        try {
+            position = cursor == null ? SellerInboxCursor.FIRST : SellerInboxCursor.parse(cursor);
+        } catch (IllegalArgumentException e) {
+            logger.info("Seller inbox requested with an invalid cursor {}", cursor);
+            return badRequest().build();
+        }
+
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        List<SellerInboxItem> questions = questionRepository.findInbox(seller.getId(), position.getCreatedAt(), position.getId(),
+                                                                       PageRequest.of(0, pageSize));
+
+        return ok(new SellerInboxResponse(questions, sellerInboxCounts.unanswered(seller.getId()), pageSize));
+    }
+}
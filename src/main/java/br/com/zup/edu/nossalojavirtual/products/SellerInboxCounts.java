@@ -0,0 +1,82 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import br.com.zup.edu.nossalojavirtual.events.DomainEventBus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches the number of unanswered questions of the most recent sellers in a bounded LRU.
+ *
+ * A count is dropped when one of the seller's products gets a question, and it is counted again
+ * at most {@code products.questions.inbox.count-time-to-live} after it was cached.
+ */
+@Component
+class SellerInboxCounts {
+
+    private final QuestionRepository questionRepository;
+    private final Duration timeToLive;
+    private final Map<Long, CachedCount> counts;
+
+    SellerInboxCounts(QuestionRepository questionRepository,
+                      DomainEventBus eventBus,
+                      @Value("${products.questions.inbox.count-time-to-live:PT1M}") Duration timeToLive,
+                      @Value("${products.questions.inbox.count-cache-size:10000}") int cacheSize) {
+        this.questionRepository = questionRepository;
+        this.timeToLive = timeToLive;
+        this.counts = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedCount> eldest) {
+                return size() > cacheSize;
+            }
+        };
+
+        eventBus.subscribe("SellerInboxCounts", QuestionEvent.class, questionEvents -> questionEvents.forEach(this::evict));
+    }
+
+    /**
+     * @return the unanswered questions of the seller, counted by the database only on a cache miss
+     */
+    long unanswered(Long sellerId) {
+        synchronized (counts) {
+            CachedCount cached = counts.get(sellerId);
+            if (cached != null && !cached.isExpired()) {
+                return cached.count;
+            }
+        }
+
+        // counted outside the lock, a count that misses a question is dropped by its event or expires
+        long count = questionRepository.countBySellerId(sellerId);
+
+        synchronized (counts) {
+            counts.put(sellerId, new CachedCount(count, Instant.now().plus(timeToLive)));
+        }
+
+        return count;
+    }
+
+    private void evict(QuestionEvent questionEvent) {
+        synchronized (counts) {
+            counts.remove(questionEvent.getSellerId());
+        }
+    }
+
+    private static class CachedCount {
+
+        private final long count;
+        private final Instant expiresAt;
+
+        CachedCount(long count, Instant expiresAt) {
+            this.count = count;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired() {
+            return expiresAt.isBefore(Instant.now());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * The position of a question in the seller inbox, given to the client as {@code <created at>_<id>}
+ */
+class SellerInboxCursor {
+
+    private static final String SEPARATOR = "_";
+
+    /**
+     * before the first page, LocalDateTime.MAX does not fit in a database timestamp
+     */
+    static final SellerInboxCursor FIRST = new SellerInboxCursor(LocalDateTime.of(9999, 12, 31, 23, 59), Long.MAX_VALUE);
+
+    private final LocalDateTime createdAt;
+    private final long id;
+
+    private SellerInboxCursor(LocalDateTime createdAt, long id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    static String of(SellerInboxItem question) {
+        return question.getCreatedAt() + SEPARATOR + question.getId();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor was not returned by {@link #of(SellerInboxItem)}
+     */
+    static SellerInboxCursor parse(String cursor) {
+        int separator = cursor.lastIndexOf(SEPARATOR);
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid cursor " + cursor);
+        }
+
+        try {
+            return new SellerInboxCursor(LocalDateTime.parse(cursor.substring(0, separator)),
+                                         Long.parseLong(cursor.substring(separator + 1)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor " + cursor, e);
+        }
+    }
+
+    LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    long getId() {
+        return id;
+    }
+}
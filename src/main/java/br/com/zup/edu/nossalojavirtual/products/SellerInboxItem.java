@@ -0,0 +1,44 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A question as the seller sees it in the inbox, read straight from the query without loading the question
+ */
+class SellerInboxItem {
+
+    private final Long id;
+    private final String title;
+    private final UUID productId;
+    private final String possibleBuyer;
+    private final LocalDateTime createdAt;
+
+    SellerInboxItem(Long id, String title, UUID productId, String possibleBuyer, LocalDateTime createdAt) {
+        this.id = id;
+        this.title = title;
+        this.productId = productId;
+        this.possibleBuyer = possibleBuyer;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public UUID getProductId() {
+        return productId;
+    }
+
+    public String getPossibleBuyer() {
+        return possibleBuyer;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,36 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import java.util.List;
+
+class SellerInboxResponse {
+
+    private final List<SellerInboxItem> questions;
+    private final long unanswered;
+    private final String nextCursor;
+
+    /**
+     * @param questions a page of questions, newest first
+     * @param unanswered the questions in the whole inbox
+     * @param pageSize the requested page size
+     */
+    SellerInboxResponse(List<SellerInboxItem> questions, long unanswered, int pageSize) {
+        this.questions = questions;
+        this.unanswered = unanswered;
+        this.nextCursor = questions.size() < pageSize ? null : SellerInboxCursor.of(questions.get(questions.size() - 1));
+    }
+
+    public List<SellerInboxItem> getQuestions() {
+        return questions;
+    }
+
+    public long getUnanswered() {
+        return unanswered;
+    }
+
+    /**
+     * @return the cursor of the next page or null if this is the last one
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
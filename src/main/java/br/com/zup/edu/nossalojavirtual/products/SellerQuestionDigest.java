@@ -0,0 +1,291 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import br.com.zup.edu.nossalojavirtual.products.shared.email.Email;
+import br.com.zup.edu.nossalojavirtual.products.shared.email.EmailOutbox;
+import br.com.zup.edu.nossalojavirtual.products.shared.email.EmailTemplates;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Buffers the questions of each seller and sends them as one email per {@code products.questions.digest.window},
+ * enabled by {@code products.questions.email=digest}.
+ *
+ * Every question is appended to a journal segment before it is buffered, and segments are deleted only after
+ * the digests are in the email outbox, so the questions of a crashed instance are sent when it starts again.
+ */
+@Component
+@ConditionalOnProperty(name = "products.questions.email", havingValue = "digest")
+class SellerQuestionDigest implements DisposableBean {
+
+    private static final String SEGMENT_PREFIX = "seller-questions-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final EmailOutbox emailOutbox;
+    private final EmailTemplates emailTemplates;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Path journalDirectory;
+    private final String sender;
+    private final int maxListedQuestions;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Path> unsentSegments = new ArrayList<>();
+
+    private ConcurrentMap<String, Queue<PendingQuestion>> questions = new ConcurrentHashMap<>();
+    private FileChannel journal;
+    private Path journalSegment;
+    private long segmentNumber;
+
+    private Logger logger = LoggerFactory.getLogger(SellerQuestionDigest.class);
+
+    SellerQuestionDigest(EmailOutbox emailOutbox,
+                         EmailTemplates emailTemplates,
+                         ProductRepository productRepository,
+                         TransactionTemplate transactionTemplate,
+                         @Value("${products.questions.digest.journal-directory:data/seller-questions}") Path journalDirectory,
+                         @Value("${products.questions.digest.sender:no-reply@nossalojavirtual.com.br}") String sender,
+                         @Value("${products.questions.digest.max-listed-questions:20}") int maxListedQuestions) throws IOException {
+        this.emailOutbox = emailOutbox;
+        this.emailTemplates = emailTemplates;
+        this.productRepository = productRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.journalDirectory = journalDirectory;
+        this.sender = sender;
+        this.maxListedQuestions = maxListedQuestions;
+
+        Files.createDirectories(journalDirectory);
+        recover();
+        openSegment();
+    }
+
+    void add(QuestionEvent questionEvent) {
+        add(questionEvent.getSellersEmail(),
+            questionEvent.getProductId(),
+            questionEvent.getTitle(),
+            questionEvent.getPossibleBuyer(),
+            questionEvent.getProductUri());
+    }
+
+    /**
+     * @throws UncheckedIOException if the question could not be written to the journal, it is not buffered then
+     */
+    void add(String sellerEmail, UUID productId, String title, String possibleBuyer, String productUri) {
+        var question = new PendingQuestion(productId, title, possibleBuyer, productUri);
+        ByteBuffer entry = ByteBuffer.wrap(question.toJournalEntry(sellerEmail).getBytes(UTF_8));
+
+        lock.readLock().lock();
+        try {
+            // the channel writes straight to the OS, so the entry survives a crash of the application
+            while (entry.hasRemaining()) {
+                journal.write(entry);
+            }
+
+            questions.computeIfAbsent(sellerEmail, seller -> new ConcurrentLinkedQueue<>()).add(question);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the seller questions journal", e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${products.questions.digest.window:PT15M}")
+    synchronized void flush() {
+        Map<String, Queue<PendingQuestion>> snapshot;
+
+        lock.writeLock().lock();
+        try {
+            if (questions.isEmpty()) {
+                return;
+            }
+
+            snapshot = questions;
+            questions = new ConcurrentHashMap<>();
+
+            journal.close();
+            unsentSegments.add(journalSegment);
+            openSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not rotate the seller questions journal", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> snapshot.forEach((sellerEmail, sellerQuestions) ->
+                    digestOf(sellerEmail, List.copyOf(sellerQuestions)).ifPresent(emailOutbox::enqueue)));
+        } catch (RuntimeException e) {
+            // the questions go back to the current window, their segments are kept until they are sent
+            lock.readLock().lock();
+            try {
+                snapshot.forEach((sellerEmail, sellerQuestions) ->
+                        questions.computeIfAbsent(sellerEmail, seller -> new ConcurrentLinkedQueue<>()).addAll(sellerQuestions));
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            logger.warn("Seller question digests could not be queued, they will be queued on the next window", e);
+            return;
+        }
+
+        unsentSegments.forEach(this::delete);
+        unsentSegments.clear();
+
+        logger.info("Question digests of {} sellers have been queued!", snapshot.size());
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        try {
+            flush();
+        } finally {
+            journal.close();
+        }
+    }
+
+    /**
+     * an email references a single product, the digest references the product of its latest question that still exists
+     */
+    private Optional<Email> digestOf(String sellerEmail, List<PendingQuestion> sellerQuestions) {
+        Optional<Product> product = Optional.empty();
+        for (int i = sellerQuestions.size() - 1; i >= 0 && product.isEmpty(); i--) {
+            product = productRepository.findById(sellerQuestions.get(i).productId);
+        }
+
+        if (product.isEmpty()) {
+            logger.warn("Question digest of {} was dropped, none of its {} products exist anymore", sellerEmail, sellerQuestions.size());
+            return Optional.empty();
+        }
+
+        var subject = sellerQuestions.size() == 1
+                ? emailTemplates.render("email.question.subject")
+                : emailTemplates.render("email.question.digest.subject", sellerQuestions.size());
+
+        var body = new StringBuilder();
+        sellerQuestions.stream()
+                       .limit(maxListedQuestions)
+                       .forEach(question -> body.append(emailTemplates.render("email.question.digest.line", question.title, question.productUri, question.possibleBuyer))
+                                                .append('\n'));
+
+        if (sellerQuestions.size() > maxListedQuestions) {
+            body.append(emailTemplates.render("email.question.digest.more", sellerQuestions.size() - maxListedQuestions)).append('\n');
+        }
+
+        return Optional.of(Email.to(sellerEmail)
+                                .from(sender)
+                                .subject(subject)
+                                .body(body.toString())
+                                .product(product.get())
+                                .build());
+    }
+
+    private void recover() throws IOException {
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(journalDirectory)) {
+            segments = files.filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                            .sorted()
+                            .toList();
+        }
+
+        for (Path segment : segments) {
+            String content = Files.readString(segment, UTF_8);
+            // an entry without its line break was being written when the application stopped
+            int end = content.lastIndexOf('\n');
+
+            if (end >= 0) {
+                content.substring(0, end).lines().forEach(entry -> {
+                    String[] fields = entry.split("\t");
+                    questions.computeIfAbsent(fields[0], seller -> new ConcurrentLinkedQueue<>()).add(PendingQuestion.fromJournalEntry(fields));
+                });
+            }
+
+            unsentSegments.add(segment);
+            segmentNumber = Math.max(segmentNumber, number(segment));
+        }
+
+        if (!segments.isEmpty()) {
+            logger.info("Unsent questions of {} sellers have been recovered from {} journal segments", questions.size(), segments.size());
+        }
+    }
+
+    private void openSegment() throws IOException {
+        segmentNumber++;
+        journalSegment = journalDirectory.resolve(SEGMENT_PREFIX + String.format("%019d", segmentNumber) + SEGMENT_SUFFIX);
+        journal = FileChannel.open(journalSegment, CREATE, WRITE, APPEND);
+    }
+
+    private void delete(Path segment) {
+        try {
+            Files.deleteIfExists(segment);
+        } catch (IOException e) {
+            // it would be sent again after a restart, so it must not be left behind silently
+            logger.error("Sent journal segment {} could not be deleted", segment, e);
+        }
+    }
+
+    private static long number(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static class PendingQuestion {
+
+        private final UUID productId;
+        private final String title;
+        private final String possibleBuyer;
+        private final String productUri;
+
+        PendingQuestion(UUID productId, String title, String possibleBuyer, String productUri) {
+            this.productId = productId;
+            this.title = title;
+            this.possibleBuyer = possibleBuyer;
+            this.productUri = productUri;
+        }
+
+        /**
+         * titles are free text, so they are encoded to keep tabs and line breaks out of the journal
+         */
+        String toJournalEntry(String sellerEmail) {
+            return sellerEmail + '\t' + productId + '\t' + encode(title) + '\t' + encode(possibleBuyer) + '\t' + encode(productUri) + '\n';
+        }
+
+        static PendingQuestion fromJournalEntry(String[] fields) {
+            return new PendingQuestion(UUID.fromString(fields[1]), decode(fields[2]), decode(fields[3]), decode(fields[4]));
+        }
+
+        private static String encode(String value) {
+            return Base64.getUrlEncoder().encodeToString(value.getBytes(UTF_8));
+        }
+
+        private static String decode(String value) {
+            return new String(Base64.getUrlDecoder().decode(value), UTF_8);
+        }
+    }
+}
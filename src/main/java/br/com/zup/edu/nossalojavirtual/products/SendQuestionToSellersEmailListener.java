@@ -1,44 +1,87 @@
 package br.com.zup.edu.nossalojavirtual.products;
 
 import br.com.zup.edu.nossalojavirtual.products.shared.email.Email;
-import br.com.zup.edu.nossalojavirtual.products.shared.email.EmailRepository;
-import br.com.zup.edu.nossalojavirtual.products.shared.email.EmailService;
+import br.com.zup.edu.nossalojavirtual.products.shared.email.EmailOutbox;
+import br.com.zup.edu.nossalojavirtual.products.shared.email.EmailTemplates;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.Optional;
+
+/**
+ * Runs on the request thread, inside the transaction that saves the question,
+ * so the question and its email are committed together.
+ * The digest journal is a file that does not roll back, so a question goes to the digest only after the commit
+ */
 @Component
 class SendQuestionToSellersEmailListener {
 
-    private final EmailService sendEmail;
-    private final EmailRepository emailRepository;
+    private final EmailOutbox emailOutbox;
+    private final EmailTemplates emailTemplates;
+    private final ProductRepository productRepository;
+    private final Optional<SellerQuestionDigest> digest;
 
     private Logger logger = LoggerFactory.getLogger(SendQuestionToSellersEmailListener.class);
 
-    SendQuestionToSellersEmailListener(EmailService sendEmail,
-                                       EmailRepository emailRepository) {
-        this.sendEmail = sendEmail;
-        this.emailRepository = emailRepository;
+    SendQuestionToSellersEmailListener(EmailOutbox emailOutbox,
+                                       EmailTemplates emailTemplates,
+                                       ProductRepository productRepository,
+                                       Optional<SellerQuestionDigest> digest) {
+        this.emailOutbox = emailOutbox;
+        this.emailTemplates = emailTemplates;
+        this.productRepository = productRepository;
+        this.digest = digest;
     }
 
     @EventListener
     void listen(QuestionEvent questionEvent) {
 
-        // TODO: Apply I18N in this messages?
-        var subject = " You have a new question";
-        var body = questionEvent.getTitle() + " in " + questionEvent.getProductUri();
+        if (digest.isPresent()) {
+            addToDigestAfterCommit(questionEvent);
+            return;
+        }
+
+        var subject = emailTemplates.render("email.question.subject");
+        var body = emailTemplates.render("email.question.body", questionEvent.getTitle(), questionEvent.getProductUri());
 
         Email email = Email.to(questionEvent.getSellersEmail())
                            .from(questionEvent.getPossibleBuyer())
                            .subject(subject)
                            .body(body)
-                           .product(questionEvent.getProduct())
+                           .product(productRepository.getReferenceById(questionEvent.getProductId()))
                            .build();
 
-        sendEmail.send(email);
-        emailRepository.save(email);
+        emailOutbox.enqueue(email);
+
+        logger.info("New e-mail has been queued! {}", email);
+    }
+
+    private void addToDigestAfterCommit(QuestionEvent questionEvent) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            addToDigest(questionEvent);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    addToDigest(questionEvent);
+                } catch (RuntimeException e) {
+                    // the question is already committed, only its digest entry is lost
+                    logger.error("Question could not be added to the seller digest {}", questionEvent, e);
+                }
+            }
+        });
+    }
+
+    private void addToDigest(QuestionEvent questionEvent) {
+        digest.get().add(questionEvent);
 
-        logger.info("New e-mail has been sent! {}", email);
+        logger.info("New question has been added to the seller digest! {}", questionEvent);
     }
 }
@@ -0,0 +1,103 @@
+package br.com.zup.edu.nossalojavirtual.products.shared.email;
+
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * An {@link Email} as it is kept by {@link EmailArchive} after its partition leaves the database
+ */
+public class ArchivedEmail {
+
+    private final Long id;
+    private final String to;
+    private final String from;
+    private final String subject;
+    private final String body;
+    private final UUID productId;
+    private final LocalDateTime sentAt;
+
+    public ArchivedEmail(Long id,
+                         String to,
+                         String from,
+                         String subject,
+                         String body,
+                         UUID productId,
+                         LocalDateTime sentAt) {
+        this.id = id;
+        this.to = to;
+        this.from = from;
+        this.subject = subject;
+        this.body = body;
+        this.productId = productId;
+        this.sentAt = sentAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public UUID getProductId() {
+        return productId;
+    }
+
+    public LocalDateTime getSentAt() {
+        return sentAt;
+    }
+
+    /**
+     * the text fields are encoded to keep tabs and line breaks out of the archive lines
+     */
+    String toArchiveLine() {
+        return id + "\t" + sentAt + '\t' + productId + '\t' + encode(to) + '\t' + encode(from) + '\t' + encode(subject) + '\t' + encode(body) + '\n';
+    }
+
+    static ArchivedEmail fromArchiveLine(String line) {
+        String[] fields = line.split("\t");
+        return new ArchivedEmail(Long.parseLong(fields[0]),
+                                 decode(fields[3]),
+                                 decode(fields[4]),
+                                 decode(fields[5]),
+                                 decode(fields[6]),
+                                 UUID.fromString(fields[2]),
+                                 LocalDateTime.parse(fields[1]));
+    }
+
+    private static String encode(String value) {
+        return Base64.getUrlEncoder().encodeToString(value.getBytes(UTF_8));
+    }
+
+    private static String decode(String value) {
+        return new String(Base64.getUrlDecoder().decode(value), UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return "ArchivedEmail{" +
+                "id=" + id +
+                ", to='" + to + '\'' +
+                ", from='" + from + '\'' +
+                ", subject='" + subject + '\'' +
+                ", productId=" + productId +
+                ", sentAt=" + sentAt +
+                '}';
+    }
+}
@@ -7,20 +7,24 @@ import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.PastOrPresent;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 import static java.time.LocalDateTime.now;
-import static javax.persistence.GenerationType.IDENTITY;
+import static javax.persistence.GenerationType.SEQUENCE;
 
 /**
  * This class represents the email in the system form
  */
-@Table(name = "emails")
+@Table(name = "emails",
+        indexes = @Index(name = "idx_emails_sent_day", columnList = "email_sent_day, id"))
 @Entity
 public class Email {
 
+    // identity columns turn off jdbc batching, the outbox dispatcher inserts sent emails in batches
+    @GeneratedValue(strategy = SEQUENCE, generator = "emails_sequence")
+    @SequenceGenerator(name = "emails_sequence", sequenceName = "emails_sequence", allocationSize = 50)
     @Id
-    @GeneratedValue(strategy = IDENTITY)
     private Long id;
 
     @Column(name = "email_receiver")
@@ -37,7 +41,7 @@ public class Email {
     @NotBlank
     private String subject;
 
-    @Column(name = "email_body")
+    @Column(name = "email_body", length = 4000)
     @NotBlank
     private String body;
 
@@ -51,6 +55,13 @@ public class Email {
     @NotNull
     private LocalDateTime sentAt = now();
 
+    /**
+     * the partition of the email, {@link EmailArchive} archives and removes whole days at once
+     */
+    @Column(name = "email_sent_day", nullable = false)
+    @NotNull
+    private LocalDate sentDay = sentAt.toLocalDate();
+
     /**
      * @param to the email receiver
      * @param from the emails sender
@@ -93,6 +104,10 @@ public class Email {
         return body;
     }
 
+    Product getProduct() {
+        return product;
+    }
+
     @Override
     public String toString() {
         return "Email{" +
@@ -101,7 +116,8 @@ public class Email {
                 ", from='" + from + '\'' +
                 ", subject='" + subject + '\'' +
                 ", body='" + body + '\'' +
-                ", product=" + product +
+                // the product may be a proxy loaded by a session that is already closed
+                ", productId=" + (product == null ? null : product.getId()) +
                 ", sentAt=" + sentAt +
                 '}';
     }
@@ -0,0 +1,181 @@
+package br.com.zup.edu.nossalojavirtual.products.shared.email;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Moves the emails older than {@code email.retention.keep} out of the {@code emails} table.
+ *
+ * Emails are partitioned by the day they were sent. Each expired day is written to one gzip file named after
+ * the day and its id range, and only then removed with a single statement per day instead of row by row deletes.
+ * The file and its directory entry are forced to the disk before the day is removed, so a crash never loses
+ * emails that are neither in the database nor in the archive.
+ * A day that was archived but not removed is archived again on the next run, over the same file.
+ */
+@Component
+public class EmailArchive {
+
+    private static final String FILE_PREFIX = "emails-";
+    private static final String FILE_SUFFIX = ".gz";
+
+    private final EmailRepository emailRepository;
+    private final Path directory;
+    private final Duration keep;
+    private final int chunkSize;
+
+    private Logger logger = LoggerFactory.getLogger(EmailArchive.class);
+
+    EmailArchive(EmailRepository emailRepository,
+                 @Value("${email.retention.archive-directory:data/emails-archive}") Path directory,
+                 @Value("${email.retention.keep:P90D}") Duration keep,
+                 @Value("${email.retention.chunk-size:1000}") int chunkSize) throws IOException {
+        this.emailRepository = emailRepository;
+        this.directory = directory;
+        this.keep = keep;
+        this.chunkSize = chunkSize;
+
+        Files.createDirectories(directory);
+    }
+
+    @Scheduled(fixedDelayString = "${email.retention.archive-interval:PT1H}")
+    synchronized void archiveExpired() {
+        LocalDate before = LocalDate.now().minusDays(keep.toDays());
+
+        for (LocalDate day : emailRepository.findSentDaysBefore(before)) {
+            try {
+                archive(day);
+            } catch (IOException e) {
+                // the day stays in the database and is tried again on the next run
+                logger.error("Emails of {} could not be archived", day, e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * reads archived emails, emails that are still in the database are not returned
+     *
+     * @param fromId the first id, inclusive
+     * @param toId the last id, inclusive
+     * @return the archived emails in id order
+     */
+    public List<ArchivedEmail> findByIdRange(long fromId, long toId) {
+        List<ArchivedEmail> emails = new ArrayList<>();
+
+        for (Path file : archiveFiles()) {
+            long[] range = idRange(file);
+            if (range[1] < fromId || range[0] > toId) {
+                continue;
+            }
+
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)), UTF_8))) {
+                reader.lines()
+                      .map(ArchivedEmail::fromArchiveLine)
+                      .filter(email -> email.getId() >= fromId && email.getId() <= toId)
+                      .forEach(emails::add);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read the email archive " + file, e);
+            }
+        }
+
+        emails.sort(Comparator.comparing(ArchivedEmail::getId));
+        return emails;
+    }
+
+    private void archive(LocalDate day) throws IOException {
+        Path temporary = Files.createTempFile(directory, FILE_PREFIX + day, ".tmp");
+        long firstId = -1;
+        long lastId = -1;
+        int archived = 0;
+
+        try {
+            try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(temporary)), UTF_8)) {
+                List<ArchivedEmail> chunk = emailRepository.findPartition(day, lastId, PageRequest.of(0, chunkSize));
+                while (!chunk.isEmpty()) {
+                    for (ArchivedEmail email : chunk) {
+                        writer.write(email.toArchiveLine());
+                    }
+
+                    if (firstId < 0) {
+                        firstId = chunk.get(0).getId();
+                    }
+                    lastId = chunk.get(chunk.size() - 1).getId();
+                    archived += chunk.size();
+
+                    chunk = chunk.size() < chunkSize ? List.of() : emailRepository.findPartition(day, lastId, PageRequest.of(0, chunkSize));
+                }
+            }
+
+            if (archived == 0) {
+                return;
+            }
+
+            force(temporary);
+            Files.move(temporary, directory.resolve(FILE_PREFIX + day + '-' + firstId + '-' + lastId + FILE_SUFFIX), ATOMIC_MOVE, REPLACE_EXISTING);
+            force(directory);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+
+        int deleted = emailRepository.deletePartition(day);
+
+        logger.info("{} emails of {} have been archived and {} removed from the database", archived, day, deleted);
+    }
+
+    /**
+     * a directory is forced too, so the rename that published the archive file survives a crash
+     */
+    private static void force(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, READ)) {
+            channel.force(true);
+        }
+    }
+
+    private List<Path> archiveFiles() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(FILE_PREFIX))
+                        .filter(file -> file.getFileName().toString().endsWith(FILE_SUFFIX))
+                        .sorted()
+                        .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list the email archive", e);
+        }
+    }
+
+    /**
+     * the file name is {@code emails-<day>-<first id>-<last id>.gz}
+     */
+    private static long[] idRange(Path file) {
+        String name = file.getFileName().toString();
+        String[] parts = name.substring(0, name.length() - FILE_SUFFIX.length()).split("-");
+
+        return new long[]{Long.parseLong(parts[parts.length - 2]), Long.parseLong(parts[parts.length - 1])};
+    }
+}
@@ -0,0 +1,41 @@
+package br.com.zup.edu.nossalojavirtual.products.shared.email;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Records emails to be sent instead of sending them on the caller thread
+ */
+@Component
+public class EmailOutbox {
+
+    private final EmailOutboxRepository outboxRepository;
+    private final EmailOutboxDispatcher dispatcher;
+
+    EmailOutbox(EmailOutboxRepository outboxRepository, EmailOutboxDispatcher dispatcher) {
+        this.outboxRepository = outboxRepository;
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * inside a transaction the email is sent only if it commits, outside of one it is sent right away
+     *
+     * @param email the email to be sent and stored once it is sent
+     */
+    public void enqueue(Email email) {
+        outboxRepository.save(new EmailOutboxMessage(email));
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            dispatcher.wakeUp();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                dispatcher.wakeUp();
+            }
+        });
+    }
+}
@@ -0,0 +1,305 @@
+package br.com.zup.edu.nossalojavirtual.products.shared.email;
+
+import br.com.zup.edu.nossalojavirtual.products.shared.email.EmailOutboxMessage.OutboxStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.time.LocalDateTime.now;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Sends the email outbox after the caller transaction commits.
+ *
+ * Due messages are claimed in batches of {@code email.outbox.batch-size} and sent concurrently
+ * on a pool of {@code email.outbox.workers} threads. The sent emails of a batch are stored and their messages removed
+ * in one transaction, so the inserts go to the database as a single jdbc batch.
+ * A failed email is retried with exponential backoff until {@code email.outbox.max-attempts} is reached,
+ * an email whose batch could not be stored is sent again once its lease expires.
+ *
+ * The {@code email.outbox.timeout} of a send starts when a worker picks it up, a send that exceeds it is interrupted.
+ * The outcome of a send is stored only once it has really ended, a send still running when the lease of its batch
+ * expires is left to be picked again.
+ */
+@Component
+class EmailOutboxDispatcher implements DisposableBean {
+
+    private final EmailOutboxRepository outboxRepository;
+    private final EmailRepository emailRepository;
+    private final EmailService emailService;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(daemonThreads("email-dispatcher"));
+    private final ExecutorService workers;
+    private final ScheduledExecutorService timeouts = Executors.newSingleThreadScheduledExecutor(daemonThreads("email-timeouts"));
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean requested = new AtomicBoolean();
+    private final int batchSize;
+    private final Duration timeout;
+    private final Duration lease;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Counter sent;
+    private final Counter failures;
+    private final Timer lag;
+
+    private Logger logger = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+
+    EmailOutboxDispatcher(EmailOutboxRepository outboxRepository,
+                          EmailRepository emailRepository,
+                          EmailService emailService,
+                          TransactionTemplate transactionTemplate,
+                          MeterRegistry meterRegistry,
+                          @Value("${email.outbox.workers:8}") int workers,
+                          @Value("${email.outbox.batch-size:50}") int batchSize,
+                          @Value("${email.outbox.timeout:PT30S}") Duration timeout,
+                          @Value("${email.outbox.max-attempts:10}") int maxAttempts,
+                          @Value("${email.outbox.initial-backoff:PT5S}") Duration initialBackoff,
+                          @Value("${email.outbox.max-backoff:PT10M}") Duration maxBackoff) {
+        this.outboxRepository = outboxRepository;
+        this.emailRepository = emailRepository;
+        this.emailService = emailService;
+        this.transactionTemplate = transactionTemplate;
+        this.workers = Executors.newFixedThreadPool(workers, daemonThreads("email-worker"));
+        this.batchSize = batchSize;
+        this.timeout = timeout;
+        // the sends of a batch wait for the workers, so the lease covers every round of sends the batch needs
+        this.lease = timeout.multipliedBy((batchSize + workers - 1) / workers + 1L);
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.sent = Counter.builder("email.outbox.sent")
+                           .register(meterRegistry);
+        this.failures = Counter.builder("email.outbox.failures")
+                               .register(meterRegistry);
+        this.lag = Timer.builder("email.outbox.lag")
+                        .description("time between the email commit and its delivery")
+                        .publishPercentileHistogram()
+                        .register(meterRegistry);
+
+        Gauge.builder("email.outbox.pending", outboxRepository, repository -> repository.countByStatus(OutboxStatus.PENDING))
+             .description("emails waiting to be sent")
+             .register(meterRegistry);
+    }
+
+    /**
+     * polls the outbox, messages whose commit callback was missed, retries and expired leases are picked up here.
+     * A drain that is already running polls once more
+     */
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval:PT5S}")
+    void wakeUp() {
+        requested.set(true);
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+
+        dispatcher.execute(() -> {
+            try {
+                while (requested.getAndSet(false)) {
+                    while (dispatchBatch() == batchSize) {
+                        // keeps going while the batches are full
+                    }
+                }
+            } catch (RuntimeException e) {
+                logger.error("Could not dispatch the email outbox", e);
+            } finally {
+                running.set(false);
+            }
+
+            if (requested.get()) {
+                wakeUp();
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        dispatcher.shutdown();
+        timeouts.shutdown();
+        workers.shutdown();
+    }
+
+    private int dispatchBatch() {
+        // taken before the claim, so the batch stops waiting no later than the leases it writes
+        long leaseEnd = System.nanoTime() + lease.toNanos();
+        List<EmailOutboxMessage> claimed = transactionTemplate.execute(status -> {
+            List<EmailOutboxMessage> due = outboxRepository.findDueForUpdate(OutboxStatus.PENDING, now(), PageRequest.of(0, batchSize));
+            due.forEach(message -> message.claim(lease));
+
+            return due;
+        });
+
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+
+        Map<EmailOutboxMessage, CompletableFuture<Email>> sending = new LinkedHashMap<>();
+        claimed.forEach(message -> sending.put(message, sendAsync(message)));
+
+        Map<Long, Email> sentEmails = new LinkedHashMap<>();
+        Map<Long, Throwable> errors = new LinkedHashMap<>();
+        sending.forEach((message, future) -> {
+            try {
+                sentEmails.put(message.getId(), future.get(Math.max(0, leaseEnd - System.nanoTime()), NANOSECONDS));
+            } catch (ExecutionException e) {
+                errors.put(message.getId(), e.getCause());
+            } catch (TimeoutException e) {
+                // neither sent nor failed, it is picked again once its lease expires
+                logger.error("Email is still being sent after its lease of {} {}", lease, message);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        store(claimed, sentEmails, errors);
+
+        return claimed.size();
+    }
+
+    /**
+     * the timeout starts when a worker picks the email up, the time it waited for a worker does not count
+     */
+    private CompletableFuture<Email> sendAsync(EmailOutboxMessage message) {
+        CompletableFuture<Email> result = new CompletableFuture<>();
+
+        workers.execute(() -> {
+            SendDeadline deadline = new SendDeadline(Thread.currentThread());
+            try {
+                result.complete(send(message));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(deadline.isExceeded() ? timeout(e) : e);
+            } finally {
+                deadline.finish();
+            }
+        });
+
+        return result;
+    }
+
+    private TimeoutException timeout(RuntimeException cause) {
+        TimeoutException timeoutException = new TimeoutException("Email was not sent in " + timeout);
+        timeoutException.initCause(cause);
+
+        return timeoutException;
+    }
+
+    private Email send(EmailOutboxMessage message) {
+        Email email = message.toEmail();
+        emailService.send(email);
+
+        return email;
+    }
+
+    private void store(List<EmailOutboxMessage> claimed, Map<Long, Email> sentEmails, Map<Long, Throwable> errors) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!sentEmails.isEmpty()) {
+                    emailRepository.saveAll(new ArrayList<>(sentEmails.values()));
+                    outboxRepository.deleteSent(sentEmails.keySet());
+                }
+
+                if (!errors.isEmpty()) {
+                    outboxRepository.findAllById(errors.keySet()).forEach(message -> {
+                        Throwable error = errors.get(message.getId());
+                        message.failed(error.toString(), backoff(message.getAttempts()), maxAttempts);
+
+                        if (message.getStatus() == OutboxStatus.FAILED) {
+                            logger.error("Email gave up after {} attempts {}", message.getAttempts(), message, error);
+                        } else {
+                            logger.warn("Email could not be sent, it will be retried {}", message, error);
+                        }
+                    });
+                }
+            });
+        } catch (RuntimeException e) {
+            // the leases expire and the batch is sent again
+            logger.error("Could not store a batch of {} sent emails", sentEmails.size(), e);
+            return;
+        }
+
+        sent.increment(sentEmails.size());
+        failures.increment(errors.size());
+        claimed.stream()
+               .filter(message -> sentEmails.containsKey(message.getId()))
+               .forEach(message -> lag.record(Duration.between(message.getCreatedAt(), now())));
+
+        logger.info("{} e-mails have been sent and {} failed", sentEmails.size(), errors.size());
+    }
+
+    private Duration backoff(int attempts) {
+        Duration backoff = initialBackoff.multipliedBy(1L << Math.min(attempts, 20));
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+
+    /**
+     * interrupts a send once it exceeds the timeout, no interrupt is sent after the send returns
+     */
+    private class SendDeadline {
+
+        private final Thread worker;
+        private final ScheduledFuture<?> timer;
+        private boolean exceeded;
+        private boolean finished;
+
+        SendDeadline(Thread worker) {
+            this.worker = worker;
+            this.timer = timeouts.schedule(this::exceed, timeout.toMillis(), MILLISECONDS);
+        }
+
+        synchronized boolean isExceeded() {
+            return exceeded;
+        }
+
+        void finish() {
+            synchronized (this) {
+                finished = true;
+                timer.cancel(false);
+            }
+
+            // an interrupt sent just before the send returned must not reach the next email of this worker
+            Thread.interrupted();
+        }
+
+        private synchronized void exceed() {
+            if (!finished) {
+                exceeded = true;
+                worker.interrupt();
+            }
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,156 @@
+package br.com.zup.edu.nossalojavirtual.products.shared.email;
+
+import br.com.zup.edu.nossalojavirtual.products.Product;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static java.time.LocalDateTime.now;
+import static javax.persistence.EnumType.STRING;
+import static javax.persistence.FetchType.LAZY;
+import static javax.persistence.GenerationType.SEQUENCE;
+import static org.springframework.util.Assert.notNull;
+
+/**
+ * An {@link Email} waiting to be sent.
+ * It is saved in the caller transaction and removed by {@link EmailOutboxDispatcher} in the same transaction that stores the sent email
+ */
+@Table(name = "email_outbox",
+        indexes = @Index(name = "idx_email_outbox_due", columnList = "outbox_status, outbox_next_attempt_at"))
+@Entity
+class EmailOutboxMessage {
+
+    @GeneratedValue(strategy = SEQUENCE, generator = "email_outbox_sequence")
+    @SequenceGenerator(name = "email_outbox_sequence", sequenceName = "email_outbox_sequence", allocationSize = 50)
+    @Id
+    @Column(name = "outbox_id")
+    private Long id;
+
+    @NotBlank
+    @Column(name = "outbox_receiver", nullable = false)
+    private String to;
+
+    @NotBlank
+    @Column(name = "outbox_sender", nullable = false)
+    private String from;
+
+    @NotBlank
+    @Column(name = "outbox_subject", nullable = false)
+    private String subject;
+
+    @NotBlank
+    @Column(name = "outbox_body", nullable = false, length = 4000)
+    private String body;
+
+    @NotNull
+    @JoinColumn(name = "outbox_product_id", nullable = false)
+    @ManyToOne(fetch = LAZY)
+    private Product product;
+
+    @Enumerated(STRING)
+    @Column(name = "outbox_status", nullable = false)
+    private OutboxStatus status;
+
+    @Column(name = "outbox_attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "outbox_last_error", length = 1000)
+    private String lastError;
+
+    @NotNull
+    @Column(name = "outbox_created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @NotNull
+    @Column(name = "outbox_next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    /**
+     * @deprecated hibernate eyes only
+     */
+    @Deprecated
+    private EmailOutboxMessage() { }
+
+    EmailOutboxMessage(@NotNull Email email) {
+        notNull(email, "email must not be null");
+
+        this.to = email.getTo();
+        this.from = email.getFrom();
+        this.subject = email.getSubject();
+        this.body = email.getBody();
+        this.product = email.getProduct();
+        this.status = OutboxStatus.PENDING;
+        this.createdAt = now();
+        this.nextAttemptAt = createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    OutboxStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the email to be sent, its sent time is the time it was built
+     */
+    Email toEmail() {
+        return Email.to(to)
+                    .from(from)
+                    .subject(subject)
+                    .body(body)
+                    .product(product)
+                    .build();
+    }
+
+    /**
+     * keeps other workers away from the message while it is sent, it is picked again if the lease expires
+     */
+    void claim(Duration lease) {
+        nextAttemptAt = now().plus(lease);
+    }
+
+    /**
+     * schedules another attempt after the given backoff or gives up once maxAttempts is reached
+     */
+    void failed(String error, Duration backoff, int maxAttempts) {
+        attempts++;
+        lastError = error == null || error.length() <= 1000 ? error : error.substring(0, 1000);
+
+        if (attempts >= maxAttempts) {
+            status = OutboxStatus.FAILED;
+            return;
+        }
+
+        nextAttemptAt = now().plus(backoff);
+    }
+
+    @Override
+    public String toString() {
+        return "EmailOutboxMessage{" +
+                "id=" + id +
+                ", to='" + to + '\'' +
+                ", subject='" + subject + '\'' +
+                ", status=" + status +
+                ", attempts=" + attempts +
+                ", nextAttemptAt=" + nextAttemptAt +
+                '}';
+    }
+
+    enum OutboxStatus {
+        PENDING,
+        FAILED
+    }
+}
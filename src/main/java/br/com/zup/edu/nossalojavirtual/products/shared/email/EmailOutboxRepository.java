@@ -0,0 +1,45 @@
+package br.com.zup.edu.nossalojavirtual.products.shared.email;
+
+import br.com.zup.edu.nossalojavirtual.products.shared.email.EmailOutboxMessage.OutboxStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface EmailOutboxRepository extends Repository<EmailOutboxMessage, Long> {
+
+    EmailOutboxMessage save(EmailOutboxMessage message);
+
+    List<EmailOutboxMessage> findAllById(Iterable<Long> ids);
+
+    /**
+     * locks the oldest due messages, rows locked by another instance are skipped
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query("select m from EmailOutboxMessage m " +
+            "where m.status = :status and m.nextAttemptAt <= :now " +
+            "order by m.id")
+    List<EmailOutboxMessage> findDueForUpdate(@Param("status") OutboxStatus status,
+                                              @Param("now") LocalDateTime now,
+                                              Pageable pageable);
+
+    @Modifying
+    @Query("delete from EmailOutboxMessage m where m.id in :ids")
+    int deleteSent(@Param("ids") Collection<Long> ids);
+
+    long countByStatus(OutboxStatus status);
+
+    long count();
+
+    void deleteAll();
+}
@@ -1,10 +1,37 @@
 package br.com.zup.edu.nossalojavirtual.products.shared.email;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
 
 public interface EmailRepository extends Repository<Email, Long> {
 
     Email save(Email email);
 
+    List<Email> saveAll(Iterable<Email> emails);
+
+    List<Email> findAll();
+
+    @Query("select distinct e.sentDay from Email e where e.sentDay < :before order by e.sentDay")
+    List<LocalDate> findSentDaysBefore(@Param("before") LocalDate before);
+
+    /**
+     * reads a partition in id order without loading the products
+     */
+    @Query("select new br.com.zup.edu.nossalojavirtual.products.shared.email.ArchivedEmail(e.id, e.to, e.from, e.subject, e.body, e.product.id, e.sentAt) " +
+            "from Email e where e.sentDay = :day and e.id > :after order by e.id")
+    List<ArchivedEmail> findPartition(@Param("day") LocalDate day, @Param("after") long after, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("delete from Email e where e.sentDay = :day")
+    int deletePartition(@Param("day") LocalDate day);
+
     void deleteAll();
 }
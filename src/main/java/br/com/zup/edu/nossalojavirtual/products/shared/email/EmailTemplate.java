@@ -0,0 +1,133 @@
+package br.com.zup.edu.nossalojavirtual.products.shared.email;
+
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A message pattern compiled into a render plan of literal and argument segments.
+ *
+ * Arguments are written as {@code {index}} or {@code {index,datetime,pattern}}, a {@code {} always starts an argument.
+ * Date formatters are built once per pattern and locale and shared by every template.
+ */
+final class EmailTemplate {
+
+    private static final ConcurrentMap<Locale, ConcurrentMap<String, DateTimeFormatter>> FORMATTERS = new ConcurrentHashMap<>();
+
+    private final Segment[] segments;
+
+    private EmailTemplate(Segment[] segments) {
+        this.segments = segments;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the pattern has an unclosed or unknown argument
+     */
+    static EmailTemplate compile(String pattern, Locale locale) {
+        List<Segment> segments = new ArrayList<>();
+        int position = 0;
+
+        while (position < pattern.length()) {
+            int start = pattern.indexOf('{', position);
+            if (start < 0) {
+                segments.add(new Literal(pattern.substring(position)));
+                break;
+            }
+
+            if (start > position) {
+                segments.add(new Literal(pattern.substring(position, start)));
+            }
+
+            int end = pattern.indexOf('}', start);
+            if (end < 0) {
+                throw new IllegalArgumentException("Unclosed argument at " + start + " of template: " + pattern);
+            }
+
+            segments.add(argument(pattern.substring(start + 1, end), locale, pattern));
+            position = end + 1;
+        }
+
+        return new EmailTemplate(segments.toArray(Segment[]::new));
+    }
+
+    void renderTo(StringBuilder out, Object[] args) {
+        for (Segment segment : segments) {
+            segment.appendTo(out, args);
+        }
+    }
+
+    private static Segment argument(String definition, Locale locale, String pattern) {
+        String[] parts = definition.split(",", 3);
+        int index;
+        try {
+            index = Integer.parseInt(parts[0].trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid argument {" + definition + "} of template: " + pattern, e);
+        }
+
+        if (parts.length == 1) {
+            return new Argument(index);
+        }
+
+        if (parts.length == 3 && parts[1].trim().equals("datetime")) {
+            DateTimeFormatter formatter = FORMATTERS.computeIfAbsent(locale, ignored -> new ConcurrentHashMap<>())
+                                                    .computeIfAbsent(parts[2], datePattern -> DateTimeFormatter.ofPattern(datePattern, locale));
+            return new DateTimeArgument(index, formatter);
+        }
+
+        throw new IllegalArgumentException("Unknown argument {" + definition + "} of template: " + pattern);
+    }
+
+    private interface Segment {
+
+        void appendTo(StringBuilder out, Object[] args);
+    }
+
+    private static class Literal implements Segment {
+
+        private final String text;
+
+        Literal(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public void appendTo(StringBuilder out, Object[] args) {
+            out.append(text);
+        }
+    }
+
+    private static class Argument implements Segment {
+
+        private final int index;
+
+        Argument(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void appendTo(StringBuilder out, Object[] args) {
+            out.append(args[index]);
+        }
+    }
+
+    private static class DateTimeArgument implements Segment {
+
+        private final int index;
+        private final DateTimeFormatter formatter;
+
+        DateTimeArgument(int index, DateTimeFormatter formatter) {
+            this.index = index;
+            this.formatter = formatter;
+        }
+
+        @Override
+        public void appendTo(StringBuilder out, Object[] args) {
+            formatter.formatTo((TemporalAccessor) args[index], out);
+        }
+    }
+}
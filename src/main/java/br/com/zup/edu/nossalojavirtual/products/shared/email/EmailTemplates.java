@@ -0,0 +1,62 @@
+package br.com.zup.edu.nossalojavirtual.products.shared.email;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.MessageSource;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Renders the subjects and bodies of emails from the {@code email.*} messages.
+ *
+ * A message is compiled into an {@link EmailTemplate} the first time it is used in a locale,
+ * and every render reuses a buffer of the calling thread.
+ */
+@Component
+public class EmailTemplates {
+
+    // a buffer that grew past this is not kept, so one huge email does not pin its memory to the thread
+    private static final int MAX_POOLED_CAPACITY = 8192;
+    private static final ThreadLocal<StringBuilder> BUFFERS = ThreadLocal.withInitial(() -> new StringBuilder(512));
+
+    private final MessageSource messageSource;
+    private final Locale defaultLocale;
+    private final ConcurrentMap<Locale, ConcurrentMap<String, EmailTemplate>> templates = new ConcurrentHashMap<>();
+
+    public EmailTemplates(MessageSource messageSource,
+                          @Value("${email.templates.locale:en}") Locale defaultLocale) {
+        this.messageSource = messageSource;
+        this.defaultLocale = defaultLocale;
+    }
+
+    /**
+     * renders the message in {@code email.templates.locale}
+     */
+    public String render(String key, Object... args) {
+        return render(key, defaultLocale, args);
+    }
+
+    /**
+     * @param key the message key
+     * @param locale the locale of the receiver
+     * @param args the arguments of the message, by index
+     * @throws org.springframework.context.NoSuchMessageException if there is no message for the key
+     */
+    public String render(String key, Locale locale, Object... args) {
+        EmailTemplate template = templates.computeIfAbsent(locale, ignored -> new ConcurrentHashMap<>())
+                                          .computeIfAbsent(key, ignored -> EmailTemplate.compile(messageSource.getMessage(key, null, locale), locale));
+
+        StringBuilder buffer = BUFFERS.get();
+        buffer.setLength(0);
+        try {
+            template.renderTo(buffer, args);
+            return buffer.toString();
+        } finally {
+            if (buffer.capacity() > MAX_POOLED_CAPACITY) {
+                BUFFERS.remove();
+            }
+        }
+    }
+}
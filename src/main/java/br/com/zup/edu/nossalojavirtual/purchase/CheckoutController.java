@@ -0,0 +1,146 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import br.com.zup.edu.nossalojavirtual.events.DomainEventBus;
+import br.com.zup.edu.nossalojavirtual.exception.UserNotValidException;
+import br.com.zup.edu.nossalojavirtual.products.Product;
+import br.com.zup.edu.nossalojavirtual.products.ProductRepository;
+import br.com.zup.edu.nossalojavirtual.users.User;
+import br.com.zup.edu.nossalojavirtual.users.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.validation.BindException;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import javax.validation.Valid;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static br.com.zup.edu.nossalojavirtual.purchase.PurchaseController.IDEMPOTENCY_KEY_HEADER;
+import static org.springframework.http.ResponseEntity.ok;
+
+@RestController
+@RequestMapping("/api/purchase/checkout")
+class CheckoutController {
+
+    private final ProductRepository productRepository;
+    private final PurchaseRepository purchaseRepository;
+    private final UserRepository userRepository;
+    private final PurchaseIdempotencyStore idempotencyStore;
+    private final TransactionTemplate transactionTemplate;
+    private final DomainEventBus eventBus;
+
+    private Logger logger = LoggerFactory.getLogger(CheckoutController.class);
+
+    CheckoutController(ProductRepository productRepository,
+                       PurchaseRepository purchaseRepository,
+                       UserRepository userRepository,
+                       PurchaseIdempotencyStore idempotencyStore,
+                       TransactionTemplate transactionTemplate,
+                       DomainEventBus eventBus) {
+        this.productRepository = productRepository;
+        this.purchaseRepository = purchaseRepository;
+        this.userRepository = userRepository;
+        this.idempotencyStore = idempotencyStore;
+        this.transactionTemplate = transactionTemplate;
+        this.eventBus = eventBus;
+    }
+
+    /**
+     * Reserves every item of the cart in one transaction and returns a single payment url.
+     * If any product does not exist or is out of stock nothing is reserved.
+     */
+    @PostMapping
+    public ResponseEntity<?> checkout(@RequestBody @Valid NewCheckoutRequest newCheckout,
+                                      @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                      @AuthenticationPrincipal(expression = "claims['email']") String username,
+                                      UriComponentsBuilder uriBuilder) throws BindException {
+
+        User buyer = userRepository.findByEmail(username).orElseThrow(
+                () -> new UserNotValidException("User not authenticated.")
+        );
+
+        String paymentUrl;
+        if (idempotencyKey == null) {
+            paymentUrl = reserve(newCheckout, buyer, null, uriBuilder);
+        } else {
+            paymentUrl = idempotencyStore.execute(username, idempotencyKey,
+                    () -> reserve(newCheckout, buyer, idempotencyKey, uriBuilder));
+        }
+
+        var response = new HashMap<>();
+        response.put("paymentUrl", paymentUrl);
+
+        return ok(response);
+    }
+
+    private String reserve(NewCheckoutRequest newCheckout,
+                           User buyer,
+                           String idempotencyKey,
+                           UriComponentsBuilder uriBuilder) throws BindException {
+        try {
+            return transactionTemplate.execute(status -> {
+                Map<UUID, Integer> quantities = newCheckout.quantitiesByProduct();
+                List<Product> products = productRepository.findAllByIdForUpdate(quantities.keySet());
+
+                if (products.size() != quantities.size()) {
+                    throw new CheckoutRejectedException("product.id.dontExist", "Some products of this cart are not registered");
+                }
+
+                products.stream()
+                        .filter(product -> !product.hasStockFor(quantities.get(product.getId())))
+                        .findFirst()
+                        .ifPresent(product -> {
+                            logger.warn("This product is out of stock {}", product);
+                            throw new CheckoutRejectedException("purchase.product.outOfStock", "This product is out of stock");
+                        });
+
+                UUID checkoutId = UUID.randomUUID();
+                List<Purchase> purchases = products.stream()
+                        .map(product -> product.reserveQuantityFor(newCheckout.lineFor(quantities.get(product.getId()), checkoutId), buyer).get())
+                        .toList();
+
+                purchaseRepository.saveAll(purchases);
+                purchases.forEach(purchase -> eventBus.publish(new StockReservedEvent(purchase)));
+
+                logger.info("New checkout {} has been created with {} purchases!", checkoutId, purchases.size());
+
+                var redirectUrl = uriBuilder.path("/api/purchases/confirm-payment")
+                        .build()
+                        .toString();
+
+                // the first purchase is the payment reference of the whole cart
+                String paymentUrl = purchases.get(0).paymentUrl(redirectUrl);
+
+                if (idempotencyKey != null) {
+                    idempotencyStore.record(buyer.getUsername(), idempotencyKey, paymentUrl);
+                }
+
+                return paymentUrl;
+            });
+        } catch (CheckoutRejectedException e) {
+            BindException bindException = new BindException(new Object(), "");
+            bindException.reject(e.errorCode, e.getMessage());
+
+            throw bindException;
+        }
+    }
+
+    /**
+     * rolls the checkout transaction back, it becomes a {@link BindException} after that
+     */
+    private static class CheckoutRejectedException extends RuntimeException {
+
+        private final String errorCode;
+
+        CheckoutRejectedException(String errorCode, String message) {
+            super(message);
+            this.errorCode = errorCode;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Sends a second copy of a slow outbound call and keeps the first response.
+ * Only idempotent calls may be hedged, the downstream can receive both copies.
+ */
+@Component
+class HedgedRequests implements DisposableBean {
+
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor executor;
+
+    HedgedRequests(MeterRegistry meterRegistry,
+                   @Value("${outbound.hedging.max-threads:32}") int maxThreads) {
+        this.meterRegistry = meterRegistry;
+
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(0, maxThreads, 60, SECONDS, new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "hedged-request-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * @param downstream names the called system in the metrics
+     * @param hedgeDelay how long the first call may take before the second one is sent, null or zero disables hedging
+     * @param call an idempotent outbound call
+     * @return the response of the first call that succeeds
+     */
+    <T> T call(String downstream, Duration hedgeDelay, Supplier<T> call) {
+        if (hedgeDelay == null || hedgeDelay.isZero()) {
+            return call.get();
+        }
+
+        CompletableFuture<T> first = CompletableFuture.supplyAsync(call, executor);
+        try {
+            return first.get(hedgeDelay.toMillis(), MILLISECONDS);
+        } catch (TimeoutException e) {
+            meterRegistry.counter("outbound.hedged.requests", "downstream", downstream).increment();
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while calling " + downstream, e);
+        }
+
+        CompletableFuture<T> second = CompletableFuture.supplyAsync(call, executor);
+        CompletableFuture<T> firstSuccess = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+
+        for (CompletableFuture<T> attempt : List.of(first, second)) {
+            attempt.whenComplete((response, error) -> {
+                if (error == null) {
+                    firstSuccess.complete(response);
+                } else if (failures.incrementAndGet() == 2) {
+                    firstSuccess.completeExceptionally(error);
+                }
+            });
+        }
+
+        try {
+            return firstSuccess.join();
+        } catch (CompletionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    private static RuntimeException unwrap(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof RuntimeException runtimeException ? runtimeException : new CompletionException(cause);
+    }
+}
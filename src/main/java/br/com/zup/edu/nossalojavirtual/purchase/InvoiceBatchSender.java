@@ -0,0 +1,141 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import br.com.zup.edu.nossalojavirtual.purchase.InvoiceClient.InvoiceRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Coalesces invoice requests into {@link InvoiceClient#requestInvoices} calls.
+ *
+ * A batch is sent when it reaches {@code invoice.batch.max-size} requests or when its first request
+ * has waited {@code invoice.batch.max-delay}, whichever comes first. Pending requests are sent on shutdown.
+ * A batch slower than {@code invoice.batch.hedge-delay} is sent again with the same batch key,
+ * which the invoice system deduplicates on.
+ */
+@Component
+class InvoiceBatchSender implements DisposableBean {
+
+    private final InvoiceClient invoiceClient;
+    private final HedgedRequests hedgedRequests;
+    private final int maxSize;
+    private final Duration maxDelay;
+    private final Duration hedgeDelay;
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "invoice-batch-sender");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private List<PendingInvoice> batch = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    private Logger logger = LoggerFactory.getLogger(InvoiceBatchSender.class);
+
+    InvoiceBatchSender(InvoiceClient invoiceClient,
+                       HedgedRequests hedgedRequests,
+                       @Value("${invoice.batch.max-size:100}") int maxSize,
+                       @Value("${invoice.batch.max-delay:PT0.05S}") Duration maxDelay,
+                       @Value("${invoice.batch.hedge-delay:PT0S}") Duration hedgeDelay) {
+        this.invoiceClient = invoiceClient;
+        this.hedgedRequests = hedgedRequests;
+        this.maxSize = maxSize;
+        this.maxDelay = maxDelay;
+        this.hedgeDelay = hedgeDelay;
+    }
+
+    /**
+     * @param request the invoice of a confirmed purchase
+     * @return completes when the batch with this request has been accepted by the invoice system
+     */
+    CompletableFuture<Void> send(InvoiceRequest request) {
+        var pending = new PendingInvoice(request);
+
+        synchronized (this) {
+            batch.add(pending);
+
+            if (batch.size() >= maxSize) {
+                List<PendingInvoice> full = takeBatch();
+                flusher.execute(() -> flush(full));
+            } else if (scheduledFlush == null) {
+                scheduledFlush = flusher.schedule(this::flushPending, maxDelay.toMillis(), MILLISECONDS);
+            }
+        }
+
+        return pending.result;
+    }
+
+    @Override
+    public void destroy() {
+        flushPending();
+        flusher.shutdown();
+    }
+
+    private void flushPending() {
+        List<PendingInvoice> pending;
+        synchronized (this) {
+            pending = takeBatch();
+        }
+
+        flush(pending);
+    }
+
+    private List<PendingInvoice> takeBatch() {
+        List<PendingInvoice> taken = batch;
+        batch = new ArrayList<>();
+
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+
+        return taken;
+    }
+
+    private void flush(List<PendingInvoice> pending) {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<InvoiceRequest> requests = pending.stream().map(invoice -> invoice.request).toList();
+            String batchKey = UUID.randomUUID().toString();
+
+            // both copies of a hedged batch carry the same key, so it is registered once
+            hedgedRequests.call("invoiceSystem", hedgeDelay, () -> {
+                invoiceClient.requestInvoices(batchKey, requests);
+                return null;
+            });
+            pending.forEach(invoice -> invoice.result.complete(null));
+
+            logger.info("{} purchase confirmations have been sent to invoice system!", pending.size());
+        } catch (RuntimeException e) {
+            pending.forEach(invoice -> invoice.result.completeExceptionally(e));
+
+            logger.warn("A batch of {} invoices could not be sent", pending.size(), e);
+        }
+    }
+
+    private static class PendingInvoice {
+
+        private final InvoiceRequest request;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        PendingInvoice(InvoiceRequest request) {
+            this.request = request;
+        }
+    }
+}
@@ -1,16 +1,29 @@
 package br.com.zup.edu.nossalojavirtual.purchase;
 
 import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 
+import java.util.List;
+
 import static org.springframework.web.bind.annotation.RequestMethod.POST;
 
-@FeignClient(url = "localhost:8080/invoice", name = "invoiceSystem")
+@FeignClient(url = "${invoice.url}", name = "invoiceSystem")
 interface InvoiceClient {
 
     @RequestMapping(method = POST, value = "/register/", produces = "application/json")
     void requestInvoice(InvoiceRequest request);
 
+    String BATCH_KEY_HEADER = "Idempotency-Key";
+
+    /**
+     * registers many invoices in one call, see {@link InvoiceBatchSender}
+     *
+     * @param batchKey identifies the batch, the invoice system registers a batch sent again with the same key only once
+     */
+    @RequestMapping(method = POST, value = "/register/batch/", produces = "application/json")
+    void requestInvoices(@RequestHeader(BATCH_KEY_HEADER) String batchKey, List<InvoiceRequest> requests);
+
     class InvoiceRequest {
 
         private Long purchaseId;
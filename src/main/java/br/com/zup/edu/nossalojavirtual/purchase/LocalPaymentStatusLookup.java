@@ -0,0 +1,23 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Stand-in for the gateways status APIs, which are not integrated yet: no payment is ever found
+ */
+@Component
+class LocalPaymentStatusLookup implements PaymentStatusLookup {
+
+    private Logger logger = LoggerFactory.getLogger(LocalPaymentStatusLookup.class);
+
+    @Override
+    public Optional<PaymentReturn> find(PendingPayment pendingPayment) {
+        logger.debug("Payment status has been looked up locally {}", pendingPayment);
+
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,97 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import br.com.zup.edu.nossalojavirtual.products.Product;
+import br.com.zup.edu.nossalojavirtual.users.User;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A cart with several products that are reserved and paid together
+ */
+public class NewCheckoutRequest {
+
+    @NotEmpty
+    @Valid
+    private List<Item> items;
+
+    @NotNull
+    private PaymentGateway paymentGateway;
+
+    @Deprecated
+    public NewCheckoutRequest() {
+    }
+
+    public NewCheckoutRequest(List<Item> items, PaymentGateway paymentGateway) {
+        this.items = items;
+        this.paymentGateway = paymentGateway;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public PaymentGateway getPaymentGateway() {
+        return paymentGateway;
+    }
+
+    /**
+     * @return the quantity wanted of each product, items with the same product are summed
+     */
+    Map<UUID, Integer> quantitiesByProduct() {
+        Map<UUID, Integer> quantities = new LinkedHashMap<>();
+        items.forEach(item -> quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum));
+
+        return quantities;
+    }
+
+    /**
+     * @param quantity the quantity of a product in this cart
+     * @param checkoutId the id shared by every purchase of this cart
+     */
+    PurchaseLine lineFor(int quantity, UUID checkoutId) {
+        return new PurchaseLine() {
+            @Override
+            public int getQuantity() {
+                return quantity;
+            }
+
+            @Override
+            public Purchase toPurchase(User buyer, Product product) {
+                return new Purchase(buyer, product, quantity, paymentGateway, checkoutId);
+            }
+        };
+    }
+
+    public static class Item {
+
+        @NotNull
+        private UUID productId;
+
+        @Min(1)
+        private int quantity;
+
+        @Deprecated
+        public Item() {
+        }
+
+        public Item(UUID productId, int quantity) {
+            this.productId = productId;
+            this.quantity = quantity;
+        }
+
+        public UUID getProductId() {
+            return productId;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+    }
+}
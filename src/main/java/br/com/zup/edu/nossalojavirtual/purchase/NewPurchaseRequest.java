@@ -7,7 +7,7 @@ import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import java.util.UUID;
 
-public class NewPurchaseRequest {
+public class NewPurchaseRequest implements PurchaseLine {
 
     @NotNull
     private UUID productId;
@@ -32,6 +32,7 @@ public class NewPurchaseRequest {
         return productId;
     }
 
+    @Override
     public int getQuantity() {
         return quantity;
     }
@@ -40,6 +41,7 @@ public class NewPurchaseRequest {
         return paymentGateway;
     }
 
+    @Override
     public Purchase toPurchase(User buyer, Product product) {
 
         return new Purchase(buyer, product, quantity, paymentGateway);
@@ -5,15 +5,30 @@ import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.springframework.http.ResponseEntity.ok;
 
 @RestController
 class OuterSystemsMockController {
 
+    private static final int REMEMBERED_BATCHES = 10_000;
+
+    // keys of the latest invoice batches, a batch sent again with one of them is not registered twice
+    private final Set<String> registeredBatches = Collections.newSetFromMap(Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > REMEMBERED_BATCHES;
+        }
+    }));
+
     private Logger logger = LoggerFactory.getLogger(OuterSystemsMockController.class);
 
     @PostMapping("/invoice/register")
@@ -25,6 +40,19 @@ class OuterSystemsMockController {
         return ok().build();
     }
 
+    @PostMapping("/invoice/register/batch")
+    ResponseEntity<?> invoices(@RequestHeader(name = InvoiceClient.BATCH_KEY_HEADER, required = false) String batchKey,
+                               @RequestBody List<Map<String, Object>> requests) {
+        if (batchKey != null && !registeredBatches.add(batchKey)) {
+            logger.info("Invoice batch {} has already been registered", batchKey);
+            return ok().build();
+        }
+
+        logger.info("{} new invoices have been registered! {}", requests.size(), requests);
+
+        return ok().build();
+    }
+
     @PostMapping("/sellerRanking/newPurchase")
     ResponseEntity<?> newPurchase(@RequestBody Map<String, Object> request) {
         System.out.println(request);
@@ -33,4 +61,11 @@ class OuterSystemsMockController {
 
         return ok().build();
     }
+
+    @PostMapping("/sellerRanking/deltas")
+    ResponseEntity<?> sellerDeltas(@RequestBody List<Map<String, Object>> deltas) {
+        logger.info("Purchases of {} sellers have been registered! {}", deltas.size(), deltas);
+
+        return ok().build();
+    }
 }
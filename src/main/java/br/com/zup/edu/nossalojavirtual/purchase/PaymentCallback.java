@@ -0,0 +1,64 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+
+import static java.time.LocalDateTime.now;
+import static javax.persistence.GenerationType.IDENTITY;
+import static org.springframework.util.Assert.hasText;
+import static org.springframework.util.Assert.notNull;
+
+/**
+ * A payment gateway callback that has already been processed, gateways deliver the same callback more than once
+ */
+@Table(name = "payment_callbacks",
+        uniqueConstraints = @UniqueConstraint(name = "uk_payment_callback",
+                columnNames = {"callback_purchase_id", "callback_payment_id"}))
+@Entity
+class PaymentCallback {
+
+    @Id
+    @GeneratedValue(strategy = IDENTITY)
+    @Column(name = "callback_id")
+    private Long id;
+
+    @NotNull
+    @Column(name = "callback_purchase_id", nullable = false)
+    private Long purchaseId;
+
+    @NotBlank
+    @Column(name = "callback_payment_id", nullable = false)
+    private String paymentId;
+
+    @NotNull
+    @Column(name = "callback_received_at", nullable = false)
+    private LocalDateTime receivedAt;
+
+    /**
+     * @deprecated hibernate eyes only
+     */
+    @Deprecated
+    private PaymentCallback() { }
+
+    PaymentCallback(@NotNull PaymentReturn paymentReturn) {
+        notNull(paymentReturn, "paymentReturn must not be null");
+        notNull(paymentReturn.getPurchaseId(), "purchaseId must not be null");
+        hasText(paymentReturn.getPaymentId(), "paymentId must not be blank");
+
+        this.purchaseId = paymentReturn.getPurchaseId();
+        this.paymentId = paymentReturn.getPaymentId();
+        this.receivedAt = now();
+    }
+
+    @Override
+    public String toString() {
+        return "PaymentCallback{" +
+                "id=" + id +
+                ", purchaseId=" + purchaseId +
+                ", paymentId='" + paymentId + '\'' +
+                ", receivedAt=" + receivedAt +
+                '}';
+    }
+}
@@ -0,0 +1,42 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the most recent processed callbacks, so redeliveries are answered without querying the database.
+ * The {@code payment_callbacks} unique constraint still catches the ones it has forgotten.
+ */
+@Component
+class PaymentCallbackFilter {
+
+    private final Map<String, Boolean> recentCallbacks;
+
+    PaymentCallbackFilter(@Value("${purchase.callbacks.recent-size:10000}") int recentSize) {
+        this.recentCallbacks = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > recentSize;
+            }
+        };
+    }
+
+    boolean isRecentlyProcessed(PaymentReturn paymentReturn) {
+        synchronized (recentCallbacks) {
+            return recentCallbacks.containsKey(key(paymentReturn));
+        }
+    }
+
+    void processed(PaymentReturn paymentReturn) {
+        synchronized (recentCallbacks) {
+            recentCallbacks.put(key(paymentReturn), Boolean.TRUE);
+        }
+    }
+
+    private static String key(PaymentReturn paymentReturn) {
+        return paymentReturn.getPurchaseId() + "\n" + paymentReturn.getPaymentId();
+    }
+}
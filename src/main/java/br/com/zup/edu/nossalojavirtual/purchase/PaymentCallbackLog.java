@@ -0,0 +1,419 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.*;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Append only log of payment gateway callbacks, enabled by {@code purchase.callbacks.ingestion=log}.
+ *
+ * A callback is written to a memory mapped segment and acknowledged right away, the segments are forced to disk
+ * every {@code purchase.callbacks.log.fsync-interval}. Entries are processed in the background by
+ * {@link PaymentCallbackProcessor}, in order for each purchase. Entries after the checkpoint are processed again
+ * when the application starts, which is safe because duplicated callbacks are ignored. They are queued before the web server
+ * starts, so a purchase recovered callbacks are processed before its new ones.
+ * A callback that fails, for instance while the database is down, is retried with a backoff of up to
+ * {@code MAX_BACKOFF_MILLIS} until it is processed, the checkpoint never moves past it.
+ */
+@Component
+@ConditionalOnProperty(name = "purchase.callbacks.ingestion", havingValue = "log")
+class PaymentCallbackLog implements SmartLifecycle, DisposableBean {
+
+    private static final String SEGMENT_PREFIX = "payment-callbacks-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT = "checkpoint";
+    private static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES;
+    private static final long MAX_BACKOFF_MILLIS = 5_000;
+
+    private final PaymentCallbackProcessor callbackProcessor;
+    private final Path directory;
+    private final int segmentSize;
+    private final ExecutorService[] stripes;
+    private final ScheduledExecutorService syncer;
+
+    // sequences appended and not processed yet, the smallest one is the checkpoint
+    private final ConcurrentSkipListSet<Long> pending = new ConcurrentSkipListSet<>();
+    // last sequence of every closed segment, by segment number
+    private final ConcurrentSkipListMap<Long, Long> closedSegments = new ConcurrentSkipListMap<>();
+    private final List<Entry> recovered = new ArrayList<>();
+    private final CountDownLatch stopping = new CountDownLatch(1);
+
+    private MappedByteBuffer segment;
+    private long segmentNumber;
+    private long nextSequence;
+    private long lastSyncedCheckpoint = -1;
+    private volatile boolean dirty;
+    private volatile boolean running;
+
+    private Logger logger = LoggerFactory.getLogger(PaymentCallbackLog.class);
+
+    PaymentCallbackLog(PaymentCallbackProcessor callbackProcessor,
+                       @Value("${purchase.callbacks.log.directory:data/payment-callbacks}") Path directory,
+                       @Value("${purchase.callbacks.log.segment-size:67108864}") int segmentSize,
+                       @Value("${purchase.callbacks.log.workers:8}") int workers,
+                       @Value("${purchase.callbacks.log.fsync-interval:PT0.01S}") Duration fsyncInterval) throws IOException {
+        this.callbackProcessor = callbackProcessor;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+
+        this.stripes = new ExecutorService[workers];
+        for (int i = 0; i < workers; i++) {
+            stripes[i] = Executors.newSingleThreadExecutor(daemon("payment-callbacks-" + i));
+        }
+
+        Files.createDirectories(directory);
+        recover();
+        openSegment(segmentSize);
+
+        this.syncer = Executors.newSingleThreadScheduledExecutor(daemon("payment-callbacks-fsync"));
+        syncer.scheduleWithFixedDelay(this::sync, fsyncInterval.toMillis(), fsyncInterval.toMillis(), MILLISECONDS);
+    }
+
+    /**
+     * writes the callback to the log and schedules its processing
+     *
+     * @param paymentReturn the callback sent by the gateway
+     * @param baseUrl the uri the callback was received at
+     */
+    void append(PaymentReturn paymentReturn, String baseUrl) {
+        Entry entry;
+
+        synchronized (this) {
+            entry = new Entry(nextSequence, paymentReturn, baseUrl);
+            byte[] body = entry.encode();
+
+            // the entry and the empty header that ends the segment
+            int required = HEADER_SIZE + body.length + HEADER_SIZE;
+            if (segment.remaining() < required) {
+                rotate(required);
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(body);
+
+            // the length goes last, a reader never sees a half written entry
+            int start = segment.position();
+            segment.position(start + Integer.BYTES);
+            segment.putInt((int) crc.getValue());
+            segment.put(body);
+            segment.putInt(start, body.length);
+
+            nextSequence++;
+            pending.add(entry.sequence);
+            dirty = true;
+        }
+
+        dispatch(entry);
+    }
+
+    /**
+     * queues the entries that were not processed before the application stopped
+     */
+    @Override
+    public void start() {
+        replay();
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * the web server starts in one of the last phases, so the callbacks it receives queue behind the replayed ones
+     */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private void replay() {
+        List<Entry> entries;
+        synchronized (this) {
+            entries = new ArrayList<>(recovered);
+            recovered.clear();
+        }
+
+        if (!entries.isEmpty()) {
+            logger.info("{} payment callbacks are being replayed from the log", entries.size());
+        }
+
+        entries.forEach(this::dispatch);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        // callbacks still failing stay after the checkpoint and are replayed on the next start
+        stopping.countDown();
+
+        for (ExecutorService stripe : stripes) {
+            stripe.shutdown();
+        }
+        for (ExecutorService stripe : stripes) {
+            stripe.awaitTermination(10, SECONDS);
+        }
+
+        syncer.shutdown();
+        sync();
+    }
+
+    private void dispatch(Entry entry) {
+        int stripe = Math.floorMod(entry.paymentReturn.getPurchaseId().hashCode(), stripes.length);
+
+        stripes[stripe].execute(() -> {
+            if (process(entry)) {
+                pending.remove(entry.sequence);
+            }
+        });
+    }
+
+    /**
+     * retries failures such as an unavailable database, the stripe waits so the purchase callbacks stay in order
+     *
+     * @return false if the application stopped before the callback could be processed
+     */
+    private boolean process(Entry entry) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                callbackProcessor.process(entry.paymentReturn, UriComponentsBuilder.fromUriString(entry.baseUrl));
+                return true;
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                // the gateway has already been answered, a callback that cannot be applied is only logged
+                logger.error("Payment callback from the log has been rejected {}", entry.paymentReturn, e);
+                return true;
+            } catch (RuntimeException e) {
+                long backoff = Math.min(100L * attempt, MAX_BACKOFF_MILLIS);
+                logger.warn("Payment callback from the log failed, attempt {}, it is retried in {}ms {}", attempt, backoff, entry.paymentReturn, e);
+
+                try {
+                    if (stopping.await(backoff, MILLISECONDS)) {
+                        return false;
+                    }
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+    }
+
+    /**
+     * forces the appended entries to disk, then saves the checkpoint and deletes the segments before it
+     */
+    private void sync() {
+        try {
+            long checkpoint;
+            MappedByteBuffer written = null;
+            synchronized (this) {
+                if (dirty) {
+                    written = segment;
+                    dirty = false;
+                }
+
+                checkpoint = pending.isEmpty() ? nextSequence : pending.first();
+            }
+
+            // appends go on while the pages are being written
+            if (written != null) {
+                written.force();
+            }
+
+            if (checkpoint == lastSyncedCheckpoint) {
+                return;
+            }
+
+            Path temporary = directory.resolve(CHECKPOINT + ".tmp");
+            Files.writeString(temporary, Long.toString(checkpoint), UTF_8, CREATE, TRUNCATE_EXISTING, WRITE, SYNC);
+            Files.move(temporary, directory.resolve(CHECKPOINT), REPLACE_EXISTING, ATOMIC_MOVE);
+            lastSyncedCheckpoint = checkpoint;
+
+            while (!closedSegments.isEmpty() && closedSegments.firstEntry().getValue() < checkpoint) {
+                Files.deleteIfExists(segmentPath(closedSegments.pollFirstEntry().getKey()));
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Payment callback log could not be synced", e);
+        }
+    }
+
+    /**
+     * @param required the size of the entry that does not fit, a larger entry gets a segment of its own size
+     */
+    private void rotate(int required) {
+        segment.force();
+        closedSegments.put(segmentNumber, nextSequence - 1);
+
+        try {
+            openSegment(Math.max(segmentSize, required));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open a new payment callback log segment", e);
+        }
+    }
+
+    private void openSegment(int size) throws IOException {
+        segmentNumber++;
+        try (FileChannel channel = FileChannel.open(segmentPath(segmentNumber), CREATE_NEW, READ, WRITE)) {
+            segment = channel.map(READ_WRITE, 0, size);
+        }
+    }
+
+    private void recover() throws IOException {
+        Path checkpointFile = directory.resolve(CHECKPOINT);
+        long checkpoint = Files.exists(checkpointFile) ? Long.parseLong(Files.readString(checkpointFile, UTF_8).trim()) : 0;
+
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(directory)) {
+            segments = files.filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                            .sorted()
+                            .toList();
+        }
+
+        nextSequence = checkpoint;
+        for (Path path : segments) {
+            long number = segmentNumber(path);
+            long lastSequence = -1;
+
+            for (Entry entry : read(path)) {
+                lastSequence = entry.sequence;
+                nextSequence = Math.max(nextSequence, entry.sequence + 1);
+
+                if (entry.sequence >= checkpoint) {
+                    recovered.add(entry);
+                    pending.add(entry.sequence);
+                }
+            }
+
+            // recovered segments are never appended to again
+            closedSegments.put(number, lastSequence);
+            segmentNumber = Math.max(segmentNumber, number);
+        }
+    }
+
+    private List<Entry> read(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        List<Entry> entries = new ArrayList<>();
+
+        while (buffer.remaining() >= HEADER_SIZE) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+
+            if (length <= 0 || length > buffer.remaining()) {
+                break;
+            }
+
+            byte[] body = new byte[length];
+            buffer.get(body);
+
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if ((int) crc.getValue() != checksum) {
+                logger.warn("Corrupted payment callback entry found in {}, the rest of the segment is ignored", path);
+                break;
+            }
+
+            entries.add(Entry.decode(body));
+        }
+
+        return entries;
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(SEGMENT_PREFIX + String.format("%019d", number) + SEGMENT_SUFFIX);
+    }
+
+    private static long segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static class Entry {
+
+        private final long sequence;
+        private final PaymentReturn paymentReturn;
+        private final String baseUrl;
+
+        Entry(long sequence, PaymentReturn paymentReturn, String baseUrl) {
+            this.sequence = sequence;
+            this.paymentReturn = paymentReturn;
+            this.baseUrl = baseUrl;
+        }
+
+        byte[] encode() {
+            byte[] paymentId = paymentReturn.getPaymentId().getBytes(UTF_8);
+            byte[] status = paymentReturn.getStatus().getBytes(UTF_8);
+            byte[] url = baseUrl.getBytes(UTF_8);
+
+            return ByteBuffer.allocate(Long.BYTES * 2 + Integer.BYTES * 3 + paymentId.length + status.length + url.length)
+                             .putLong(sequence)
+                             .putLong(paymentReturn.getPurchaseId())
+                             .putInt(paymentId.length).put(paymentId)
+                             .putInt(status.length).put(status)
+                             .putInt(url.length).put(url)
+                             .array();
+        }
+
+        static Entry decode(byte[] body) {
+            ByteBuffer buffer = ByteBuffer.wrap(body);
+            long sequence = buffer.getLong();
+            long purchaseId = buffer.getLong();
+            String paymentId = string(buffer);
+            String status = string(buffer);
+            String baseUrl = string(buffer);
+
+            return new Entry(sequence, new PaymentReturn(purchaseId, paymentId, status), baseUrl);
+        }
+
+        private static String string(ByteBuffer buffer) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+
+            return new String(bytes, UTF_8);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import br.com.zup.edu.nossalojavirtual.events.DomainEventBus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.List;
+
+/**
+ * Applies a payment gateway callback to its purchases, a callback already processed,
+ * identified by its purchaseId and paymentId, is ignored
+ */
+@Component
+class PaymentCallbackProcessor {
+
+    private final PurchaseRepository purchaseRepository;
+    private final PaymentCallbackRepository callbackRepository;
+    private final PaymentCallbackFilter callbackFilter;
+    private final PostPurchaseOutbox postPurchaseOutbox;
+    private final TransactionTemplate transactionTemplate;
+    private final DomainEventBus eventBus;
+
+    private Logger logger = LoggerFactory.getLogger(PaymentCallbackProcessor.class);
+
+    PaymentCallbackProcessor(PurchaseRepository purchaseRepository,
+                             PaymentCallbackRepository callbackRepository,
+                             PaymentCallbackFilter callbackFilter,
+                             PostPurchaseOutbox postPurchaseOutbox,
+                             TransactionTemplate transactionTemplate,
+                             DomainEventBus eventBus) {
+        this.purchaseRepository = purchaseRepository;
+        this.callbackRepository = callbackRepository;
+        this.callbackFilter = callbackFilter;
+        this.postPurchaseOutbox = postPurchaseOutbox;
+        this.transactionTemplate = transactionTemplate;
+        this.eventBus = eventBus;
+    }
+
+    /**
+     * @param paymentReturn the callback sent by the gateway
+     * @param uriBuilder the uri the callback was received at
+     */
+    void process(PaymentReturn paymentReturn, UriComponentsBuilder uriBuilder) {
+        if (callbackFilter.isRecentlyProcessed(paymentReturn)
+                || callbackRepository.existsByPurchaseIdAndPaymentId(paymentReturn.getPurchaseId(), paymentReturn.getPaymentId())) {
+            callbackFilter.processed(paymentReturn);
+            logger.info("Duplicated payment callback has been ignored! {}", paymentReturn);
+
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> apply(paymentReturn, uriBuilder));
+        } catch (DataIntegrityViolationException e) {
+            // only a concurrent delivery of the same callback, processed first, makes it a duplicate
+            if (!callbackRepository.existsByPurchaseIdAndPaymentId(paymentReturn.getPurchaseId(), paymentReturn.getPaymentId())) {
+                throw e;
+            }
+
+            logger.info("Duplicated payment callback has been ignored! {}", paymentReturn);
+        }
+
+        callbackFilter.processed(paymentReturn);
+    }
+
+    private void apply(PaymentReturn paymentReturn, UriComponentsBuilder uriBuilder) {
+        callbackRepository.saveAndFlush(new PaymentCallback(paymentReturn));
+
+        var purchase = purchaseRepository.findById(paymentReturn.getPurchaseId()).orElseThrow(
+                () -> new IllegalArgumentException("Purchase " + paymentReturn.getPurchaseId() + " does not exist")
+        );
+
+        // a cart is paid once, through its first purchase, and the payment applies to all of its purchases
+        List<Purchase> paidPurchases = purchase.isPartOfCheckout()
+                ? purchaseRepository.findByCheckoutIdOrderByIdAsc(purchase.getCheckoutId())
+                : List.of(purchase);
+
+        for (Purchase paidPurchase : paidPurchases) {
+            PostPaymentProcessedPurchase postPaymentPurchase = paidPurchase.process(paymentReturn);
+
+            // the actions call other systems, they run after the commit
+            postPurchaseOutbox.enqueue(postPaymentPurchase, uriBuilder);
+            eventBus.publish(new PaymentProcessedEvent(postPaymentPurchase));
+        }
+
+        logger.info("Payment has been confirmed! {}", paymentReturn);
+    }
+}
@@ -0,0 +1,19 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import org.springframework.data.repository.Repository;
+
+import java.util.List;
+
+interface PaymentCallbackRepository extends Repository<PaymentCallback, Long> {
+
+    /**
+     * flushes right away, so a duplicate callback fails before the payment is processed
+     */
+    PaymentCallback saveAndFlush(PaymentCallback callback);
+
+    boolean existsByPurchaseIdAndPaymentId(Long purchaseId, String paymentId);
+
+    void deleteAll();
+
+    List<PaymentCallback> findAll();
+}
@@ -1,17 +1,14 @@
 package br.com.zup.edu.nossalojavirtual.purchase;
 
 import br.com.zup.edu.nossalojavirtual.products.shared.validators.ObjectIsRegisteredValidator;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindException;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.util.UriComponentsBuilder;
 
-import javax.transaction.Transactional;
 import javax.validation.Valid;
-import java.util.Set;
+import java.util.Optional;
 
 import static org.springframework.http.ResponseEntity.ok;
 
@@ -20,34 +17,42 @@ import static org.springframework.http.ResponseEntity.ok;
 class PaymentGatewayReturnController {
 
     private final PurchaseRepository purchaseRepository;
-    private final Set<PostPurchaseAction> postPurchaseActions;
-
-    private Logger logger = LoggerFactory.getLogger(PaymentGatewayReturnController.class);
+    private final PaymentCallbackProcessor callbackProcessor;
+    private final Optional<PaymentCallbackLog> callbackLog;
 
     PaymentGatewayReturnController(PurchaseRepository purchaseRepository,
-                                   Set<PostPurchaseAction> postPurchaseActions) {
+                                   PaymentCallbackProcessor callbackProcessor,
+                                   Optional<PaymentCallbackLog> callbackLog) {
         this.purchaseRepository = purchaseRepository;
-        this.postPurchaseActions = postPurchaseActions;
+        this.callbackProcessor = callbackProcessor;
+        this.callbackLog = callbackLog;
     }
 
+    /**
+     * With {@code purchase.callbacks.ingestion=log} the callback is only appended to the {@link PaymentCallbackLog}
+     * and processed after the response, otherwise it is processed before the response.
+     * A callback already processed is answered with OK and nothing else.
+     */
     @PostMapping
-    @Transactional
     public ResponseEntity<?> confirmPayment(@RequestBody @Valid PaymentReturn paymentReturn,
                                             UriComponentsBuilder uriBuilder) throws BindException {
 
-        var purchase = purchaseRepository.findById(paymentReturn.getPurchaseId()).get();
-
-        PostPaymentProcessedPurchase postPaymentPurchase = purchase.process(paymentReturn);
-
-        postPurchaseActions.forEach(action -> action.execute(postPaymentPurchase, uriBuilder));
-
-        logger.info("Payment has been confirmed! {}", paymentReturn.toString());
+        if (callbackLog.isPresent()) {
+            callbackLog.get().append(paymentReturn, uriBuilder.toUriString());
+        } else {
+            callbackProcessor.process(paymentReturn, uriBuilder);
+        }
 
         return ok().build();
     }
 
     @InitBinder(value = { "paymentReturn" })
     void initBinder(WebDataBinder binder) {
+        if (callbackLog.isPresent()) {
+            // answering fast is the point of the log, an unknown purchase is discarded when the entry is processed
+            return;
+        }
+
         binder.addValidators(
                 new ObjectIsRegisteredValidator<>("purchaseId",
                         "purchase.id.dontExist",
@@ -0,0 +1,43 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import br.com.zup.edu.nossalojavirtual.events.DomainEvent;
+
+import java.math.BigDecimal;
+import java.util.StringJoiner;
+
+/**
+ * This class represents an event that is published when a payment callback is applied to a {@link Purchase}
+ */
+public class PaymentProcessedEvent implements DomainEvent {
+
+    private final Long purchaseId;
+    private final boolean paymentSuccessful;
+    private final BigDecimal total;
+
+    PaymentProcessedEvent(PostPaymentProcessedPurchase postPaymentPurchase) {
+        this.purchaseId = postPaymentPurchase.getId();
+        this.paymentSuccessful = postPaymentPurchase.isPaymentSuccessful();
+        this.total = postPaymentPurchase.getTotal();
+    }
+
+    public Long getPurchaseId() {
+        return purchaseId;
+    }
+
+    public boolean isPaymentSuccessful() {
+        return paymentSuccessful;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", PaymentProcessedEvent.class.getSimpleName() + "[", "]")
+                .add("purchaseId=" + purchaseId)
+                .add("paymentSuccessful=" + paymentSuccessful)
+                .add("total=" + total)
+                .toString();
+    }
+}
@@ -0,0 +1,193 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import br.com.zup.edu.nossalojavirtual.products.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.time.LocalDateTime.now;
+
+/**
+ * Finds purchases still {@link Status#INICIADA} after {@code purchase.reconciliation.stale-after}, whose callback
+ * probably never arrived, and asks their gateways about the payment.
+ *
+ * Purchases are read in chunks of {@code purchase.reconciliation.chunk-size} by id, and at most
+ * {@code purchase.reconciliation.concurrency} gateway lookups run at the same time. A payment found is applied
+ * by {@link PaymentCallbackProcessor}, as if its callback had arrived. A purchase still not paid after
+ * {@code purchase.reconciliation.expire-after} is moved to {@link Status#EXPIRADA} and its quantity goes back to the stock,
+ * so it is not looked up again.
+ */
+@Component
+class PaymentReconciliation implements DisposableBean {
+
+    private final PurchaseRepository purchaseRepository;
+    private final PaymentStatusLookup paymentStatusLookup;
+    private final PaymentCallbackProcessor callbackProcessor;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService lookups;
+    private final Duration staleAfter;
+    private final Duration expireAfter;
+    private final int chunkSize;
+    private final String baseUrl;
+    private final AtomicLong backlog = new AtomicLong();
+    private final Counter reconciled;
+    private final Counter unpaid;
+    private final Counter expired;
+    private final Counter failures;
+    private final Timer duration;
+
+    private Logger logger = LoggerFactory.getLogger(PaymentReconciliation.class);
+
+    PaymentReconciliation(PurchaseRepository purchaseRepository,
+                          PaymentStatusLookup paymentStatusLookup,
+                          PaymentCallbackProcessor callbackProcessor,
+                          ProductRepository productRepository,
+                          TransactionTemplate transactionTemplate,
+                          MeterRegistry meterRegistry,
+                          @Value("${purchase.reconciliation.stale-after:PT30M}") Duration staleAfter,
+                          @Value("${purchase.reconciliation.expire-after:P1D}") Duration expireAfter,
+                          @Value("${purchase.reconciliation.chunk-size:100}") int chunkSize,
+                          @Value("${purchase.reconciliation.concurrency:4}") int concurrency,
+                          @Value("${purchase.reconciliation.base-url:http://localhost:8080}") String baseUrl) {
+        this.purchaseRepository = purchaseRepository;
+        this.paymentStatusLookup = paymentStatusLookup;
+        this.callbackProcessor = callbackProcessor;
+        this.productRepository = productRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.staleAfter = staleAfter;
+        this.expireAfter = expireAfter;
+        this.chunkSize = chunkSize;
+        this.baseUrl = baseUrl;
+
+        AtomicInteger count = new AtomicInteger();
+        this.lookups = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "payment-reconciliation-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.reconciled = meterRegistry.counter("purchase.reconciliation.purchases", "outcome", "reconciled");
+        this.unpaid = meterRegistry.counter("purchase.reconciliation.purchases", "outcome", "unpaid");
+        this.expired = meterRegistry.counter("purchase.reconciliation.purchases", "outcome", "expired");
+        this.failures = meterRegistry.counter("purchase.reconciliation.purchases", "outcome", "failure");
+        this.duration = meterRegistry.timer("purchase.reconciliation.duration");
+        meterRegistry.gauge("purchase.reconciliation.backlog", backlog);
+    }
+
+    @Scheduled(fixedDelayString = "${purchase.reconciliation.interval:PT5M}")
+    void reconcile() {
+        duration.record(() -> {
+            var createdBefore = now().minus(staleAfter);
+            var expiredBefore = now().minus(expireAfter);
+            long after = 0;
+            long stillPending = 0;
+
+            // the purchases the run still has to go through, it goes down as they are reconciled or expired
+            backlog.set(purchaseRepository.countByStatusAndCreatedAtBefore(Status.INICIADA, createdBefore));
+
+            List<PendingPayment> chunk;
+            do {
+                chunk = purchaseRepository.findPendingPayments(Status.INICIADA, after, createdBefore, PageRequest.of(0, chunkSize));
+
+                stillPending += reconcile(chunk, expiredBefore);
+
+                if (!chunk.isEmpty()) {
+                    after = chunk.get(chunk.size() - 1).getPurchaseId();
+                }
+            } while (chunk.size() == chunkSize);
+
+            backlog.set(stillPending);
+
+            if (stillPending > 0) {
+                logger.info("{} stale purchases are still waiting for their payment", stillPending);
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        lookups.shutdown();
+    }
+
+    /**
+     * @return how many purchases of the chunk are still not paid
+     */
+    private long reconcile(List<PendingPayment> chunk, LocalDateTime expiredBefore) {
+        List<CompletableFuture<Boolean>> results = chunk.stream()
+                                                        .map(pendingPayment -> CompletableFuture.supplyAsync(() -> reconcile(pendingPayment, expiredBefore), lookups))
+                                                        .toList();
+
+        return results.stream()
+                      .map(CompletableFuture::join)
+                      .filter(stillPending -> stillPending)
+                      .count();
+    }
+
+    /**
+     * @return true if the purchase is still not paid
+     */
+    private boolean reconcile(PendingPayment pendingPayment, LocalDateTime expiredBefore) {
+        try {
+            Optional<PaymentReturn> payment = paymentStatusLookup.find(pendingPayment);
+
+            if (payment.isEmpty() && pendingPayment.getCreatedAt().isBefore(expiredBefore)) {
+                expire(pendingPayment);
+                return false;
+            }
+
+            if (payment.isEmpty()) {
+                unpaid.increment();
+                return true;
+            }
+
+            callbackProcessor.process(payment.get(), UriComponentsBuilder.fromUriString(baseUrl));
+            reconciled.increment();
+            backlog.decrementAndGet();
+
+            logger.info("Stale purchase has been reconciled! {}", payment.get());
+            return false;
+        } catch (RuntimeException e) {
+            failures.increment();
+            logger.warn("Stale purchase could not be reconciled {}", pendingPayment, e);
+
+            return true;
+        }
+    }
+
+    /**
+     * the product is locked before its stock is given back, as a checkout does before reserving it
+     */
+    private void expire(PendingPayment pendingPayment) {
+        transactionTemplate.executeWithoutResult(status -> purchaseRepository.findById(pendingPayment.getPurchaseId())
+                .filter(purchase -> purchase.getStatus() == Status.INICIADA)
+                .ifPresent(purchase -> {
+                    productRepository.findAllByIdForUpdate(List.of(purchase.getProduct().getId()));
+                    purchase.expire();
+
+                    logger.info("Stale purchase has expired! {}", purchase);
+                }));
+
+        expired.increment();
+        backlog.decrementAndGet();
+    }
+}
@@ -64,4 +64,13 @@ class PaymentReturn {
 
         return ERROR;
     }
+
+    @Override
+    public String toString() {
+        return "PaymentReturn{" +
+                "purchaseId=" + purchaseId +
+                ", paymentId='" + paymentId + '\'' +
+                ", status='" + status + '\'' +
+                '}';
+    }
 }
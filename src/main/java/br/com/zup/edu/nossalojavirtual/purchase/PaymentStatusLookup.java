@@ -0,0 +1,14 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import java.util.Optional;
+
+/**
+ * Asks a payment gateway about the payment of a purchase, used when its callback never arrived
+ */
+interface PaymentStatusLookup {
+
+    /**
+     * @return the payment as the gateway would have sent it in its callback, empty if the buyer has not paid yet
+     */
+    Optional<PaymentReturn> find(PendingPayment pendingPayment);
+}
@@ -0,0 +1,40 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import java.time.LocalDateTime;
+
+/**
+ * A purchase whose payment has not been confirmed, read without loading the purchase
+ */
+class PendingPayment {
+
+    private final Long purchaseId;
+    private final PaymentGateway paymentGateway;
+    private final LocalDateTime createdAt;
+
+    PendingPayment(Long purchaseId, PaymentGateway paymentGateway, LocalDateTime createdAt) {
+        this.purchaseId = purchaseId;
+        this.paymentGateway = paymentGateway;
+        this.createdAt = createdAt;
+    }
+
+    public Long getPurchaseId() {
+        return purchaseId;
+    }
+
+    public PaymentGateway getPaymentGateway() {
+        return paymentGateway;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "PendingPayment{" +
+                "purchaseId=" + purchaseId +
+                ", paymentGateway=" + paymentGateway +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+}
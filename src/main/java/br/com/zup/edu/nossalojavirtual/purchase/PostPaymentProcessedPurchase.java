@@ -2,6 +2,7 @@ package br.com.zup.edu.nossalojavirtual.purchase;
 
 import br.com.zup.edu.nossalojavirtual.products.Product;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 class PostPaymentProcessedPurchase {
@@ -37,10 +38,18 @@ class PostPaymentProcessedPurchase {
         return purchase.getProduct();
     }
 
+    public PurchasedProduct getPurchasedProduct() {
+        return purchase.getPurchasedProduct();
+    }
+
     public int getQuantity() {
         return purchase.getQuantity();
     }
 
+    public BigDecimal getTotal() {
+        return purchase.getTotal();
+    }
+
     public LocalDateTime paymentConfirmedTime() {
 
         return purchase.paymentConfirmedTime();
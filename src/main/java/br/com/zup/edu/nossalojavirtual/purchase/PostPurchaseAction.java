@@ -1,8 +1,16 @@
 package br.com.zup.edu.nossalojavirtual.purchase;
 
+import org.springframework.util.ClassUtils;
 import org.springframework.web.util.UriComponentsBuilder;
 
 interface PostPurchaseAction {
 
     void execute(PostPaymentProcessedPurchase payment, UriComponentsBuilder uriBuilder);
+
+    /**
+     * @return identifies the action in the post purchase outbox, it must not change between deploys
+     */
+    default String name() {
+        return ClassUtils.getUserClass(getClass()).getSimpleName();
+    }
 }
@@ -0,0 +1,53 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Set;
+
+/**
+ * Records the {@link PostPurchaseAction}s of a processed purchase instead of running them in the payment transaction
+ */
+@Component
+class PostPurchaseOutbox {
+
+    private final PostPurchaseOutboxRepository outboxRepository;
+    private final Set<PostPurchaseAction> postPurchaseActions;
+    private final PostPurchaseOutboxDispatcher dispatcher;
+
+    PostPurchaseOutbox(PostPurchaseOutboxRepository outboxRepository,
+                       Set<PostPurchaseAction> postPurchaseActions,
+                       PostPurchaseOutboxDispatcher dispatcher) {
+        this.outboxRepository = outboxRepository;
+        this.postPurchaseActions = postPurchaseActions;
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * must be called inside the transaction that processes the payment,
+     * the actions are delivered only if it commits
+     *
+     * @param postPaymentPurchase the processed purchase
+     * @param uriBuilder the uri of the current request
+     */
+    void enqueue(PostPaymentProcessedPurchase postPaymentPurchase, UriComponentsBuilder uriBuilder) {
+        String baseUrl = uriBuilder.cloneBuilder()
+                                   .replacePath(null)
+                                   .replaceQuery(null)
+                                   .toUriString();
+
+        postPurchaseActions.forEach(action ->
+                outboxRepository.save(new PostPurchaseOutboxMessage(postPaymentPurchase.getId(), action.name(), baseUrl)));
+
+        if (!postPurchaseActions.isEmpty() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatcher.wakeUp();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import br.com.zup.edu.nossalojavirtual.purchase.PostPurchaseOutboxMessage.OutboxStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.time.LocalDateTime.now;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.toUnmodifiableMap;
+
+/**
+ * Delivers the post purchase outbox after the payment transaction commits.
+ *
+ * Every {@link PostPurchaseAction} runs on its own bounded bulkhead with its own size and timeout
+ * ({@code purchase.outbox.bulkhead-size.<action name>} and {@code purchase.outbox.timeout.<action name>},
+ * {@code purchase.outbox.bulkhead-size} and {@code purchase.outbox.timeout} by default),
+ * so a slow or failing downstream neither blocks nor fails the other actions.
+ * An action that exceeds its timeout is interrupted, its message keeps its lease until the action really returns.
+ * A failed delivery is retried with exponential backoff until {@code purchase.outbox.max-attempts} is reached.
+ */
+@Component
+class PostPurchaseOutboxDispatcher implements DisposableBean {
+
+    private final PostPurchaseOutboxRepository outboxRepository;
+    private final PurchaseRepository purchaseRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Worker> workers;
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(daemonThreads("post-purchase-dispatcher"));
+    private final ScheduledExecutorService timeouts = Executors.newSingleThreadScheduledExecutor(daemonThreads("post-purchase-timeouts"));
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    private Logger logger = LoggerFactory.getLogger(PostPurchaseOutboxDispatcher.class);
+
+    PostPurchaseOutboxDispatcher(PostPurchaseOutboxRepository outboxRepository,
+                                 PurchaseRepository purchaseRepository,
+                                 Set<PostPurchaseAction> postPurchaseActions,
+                                 TransactionTemplate transactionTemplate,
+                                 MeterRegistry meterRegistry,
+                                 Environment environment,
+                                 @Value("${purchase.outbox.bulkhead-size:4}") int bulkheadSize,
+                                 @Value("${purchase.outbox.timeout:PT10S}") Duration defaultTimeout,
+                                 @Value("${purchase.outbox.max-attempts:10}") int maxAttempts,
+                                 @Value("${purchase.outbox.initial-backoff:PT5S}") Duration initialBackoff,
+                                 @Value("${purchase.outbox.max-backoff:PT10M}") Duration maxBackoff) {
+        this.outboxRepository = outboxRepository;
+        this.purchaseRepository = purchaseRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.workers = postPurchaseActions.stream()
+                                          .collect(toUnmodifiableMap(PostPurchaseAction::name, action -> new Worker(action,
+                                                  environment.getProperty("purchase.outbox.bulkhead-size." + action.name(), Integer.class, bulkheadSize),
+                                                  environment.getProperty("purchase.outbox.timeout." + action.name(), Duration.class, defaultTimeout))));
+
+        Gauge.builder("purchase.outbox.pending", outboxRepository, repository -> repository.countByStatus(OutboxStatus.PENDING))
+             .description("post purchase actions waiting to be delivered")
+             .register(meterRegistry);
+    }
+
+    /**
+     * polls the outbox, messages whose commit callback was missed, retries and expired leases are picked up here
+     */
+    @Scheduled(fixedDelayString = "${purchase.outbox.poll-interval:PT5S}")
+    void wakeUp() {
+        workers.values().forEach(Worker::drain);
+    }
+
+    @Override
+    public void destroy() {
+        dispatcher.shutdown();
+        timeouts.shutdown();
+        workers.values().forEach(worker -> worker.bulkhead.shutdown());
+    }
+
+    private Duration backoff(int attempts) {
+        Duration backoff = initialBackoff.multipliedBy(1L << Math.min(attempts, 20));
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private class Worker {
+
+        private final PostPurchaseAction action;
+        private final Duration timeout;
+        private final Semaphore permits;
+        private final ExecutorService bulkhead;
+        private final AtomicBoolean running = new AtomicBoolean();
+        private final AtomicBoolean requested = new AtomicBoolean();
+        private final Counter delivered;
+        private final Counter failures;
+        private final Timer lag;
+
+        Worker(PostPurchaseAction action, int bulkheadSize, Duration timeout) {
+            this.action = action;
+            this.timeout = timeout;
+            this.permits = new Semaphore(bulkheadSize);
+            this.bulkhead = Executors.newFixedThreadPool(bulkheadSize, daemonThreads("post-purchase-" + action.name()));
+            this.delivered = Counter.builder("purchase.outbox.delivered")
+                                    .tag("action", action.name())
+                                    .register(meterRegistry);
+            this.failures = Counter.builder("purchase.outbox.failures")
+                                   .tag("action", action.name())
+                                   .register(meterRegistry);
+            this.lag = Timer.builder("purchase.outbox.lag")
+                            .description("time between the payment commit and the action delivery")
+                            .tag("action", action.name())
+                            .publishPercentileHistogram()
+                            .register(meterRegistry);
+        }
+
+        /**
+         * claims due messages while the bulkhead has free slots, a drain that is already running polls once more
+         */
+        void drain() {
+            requested.set(true);
+            if (!running.compareAndSet(false, true)) {
+                return;
+            }
+
+            dispatcher.execute(() -> {
+                try {
+                    while (requested.getAndSet(false)) {
+                        while (claimAndSubmit() > 0) {
+                            // keeps going while there are due messages and free slots
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    logger.error("Could not claim post purchase messages of {}", action.name(), e);
+                } finally {
+                    running.set(false);
+                }
+
+                if (requested.get()) {
+                    drain();
+                }
+            });
+        }
+
+        private int claimAndSubmit() {
+            int freeSlots = permits.availablePermits();
+            if (freeSlots == 0) {
+                // a finishing delivery drains again
+                return 0;
+            }
+
+            List<PostPurchaseOutboxMessage> claimed = transactionTemplate.execute(status -> {
+                List<PostPurchaseOutboxMessage> due = outboxRepository.findDueForUpdate(action.name(), OutboxStatus.PENDING, now(), PageRequest.of(0, freeSlots));
+                due.forEach(message -> message.claim(lease()));
+
+                return due;
+            });
+
+            claimed.forEach(this::submit);
+
+            return claimed.size();
+        }
+
+        private void submit(PostPurchaseOutboxMessage message) {
+            permits.acquireUninterruptibly();
+
+            bulkhead.execute(() -> {
+                try {
+                    deliver(message);
+                } finally {
+                    permits.release();
+                    drain();
+                }
+            });
+        }
+
+        /**
+         * the outcome is registered only once the call has really returned, so the message is never rescheduled
+         * while its action is still running
+         */
+        private void deliver(PostPurchaseOutboxMessage message) {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            Deadline deadline = new Deadline(message, Thread.currentThread());
+
+            Throwable error = null;
+            try {
+                execute(message);
+            } catch (RuntimeException e) {
+                error = deadline.isExceeded() ? timeout(e) : e;
+            } finally {
+                deadline.finish();
+            }
+
+            sample.stop(duration(error));
+
+            if (error == null) {
+                registerDelivery(message);
+            } else {
+                registerFailure(message, error);
+            }
+        }
+
+        /**
+         * the purchase is loaded in its own short transaction, the action runs without one,
+         * so no connection is held while another system is called
+         */
+        private void execute(PostPurchaseOutboxMessage message) {
+            PostPaymentProcessedPurchase purchase = transactionTemplate.execute(status -> purchaseRepository.findById(message.getPurchaseId())
+                    .map(PostPaymentProcessedPurchase::new)
+                    .orElseThrow(() -> new IllegalStateException("Purchase " + message.getPurchaseId() + " of outbox message " + message.getId() + " does not exist")));
+
+            action.execute(purchase, UriComponentsBuilder.fromUriString(message.getBaseUrl()));
+        }
+
+        private TimeoutException timeout(RuntimeException cause) {
+            TimeoutException timeoutException = new TimeoutException(action.name() + " did not finish in " + timeout);
+            timeoutException.initCause(cause);
+
+            return timeoutException;
+        }
+
+        private Duration lease() {
+            return timeout.multipliedBy(2);
+        }
+
+        private Timer duration(Throwable error) {
+            String outcome = error == null ? "success" : error instanceof TimeoutException ? "timeout" : "failure";
+
+            return Timer.builder("purchase.action.duration")
+                        .description("latency of a post purchase action")
+                        .tag("action", action.name())
+                        .tag("outcome", outcome)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry);
+        }
+
+        private void registerDelivery(PostPurchaseOutboxMessage claimed) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> outboxRepository.findById(claimed.getId())
+                                                                                   .ifPresent(PostPurchaseOutboxMessage::delivered));
+                delivered.increment();
+                lag.record(Duration.between(claimed.getCreatedAt(), now()));
+            } catch (RuntimeException e) {
+                // the lease expires and the action is delivered again
+                logger.error("Could not register the delivery of outbox message {}", claimed, e);
+            }
+        }
+
+        private void registerFailure(PostPurchaseOutboxMessage claimed, Throwable error) {
+            failures.increment();
+            try {
+                transactionTemplate.executeWithoutResult(status -> outboxRepository.findById(claimed.getId()).ifPresent(message -> {
+                    message.failed(error.toString(), backoff(message.getAttempts()), maxAttempts);
+
+                    if (message.getStatus() == OutboxStatus.FAILED) {
+                        logger.error("Post purchase action gave up after {} attempts {}", message.getAttempts(), message, error);
+                    } else {
+                        logger.warn("Post purchase action failed, it will be retried {}", message, error);
+                    }
+                }));
+            } catch (RuntimeException e) {
+                logger.error("Could not register the failure of outbox message {}", claimed, e);
+            }
+        }
+
+        /**
+         * interrupts the action once its timeout is exceeded and, until it really returns,
+         * renews the lease of its message so no other worker delivers it again
+         */
+        private class Deadline {
+
+            private final PostPurchaseOutboxMessage message;
+            private final Thread caller;
+            private final ScheduledFuture<?> timer;
+            private ScheduledFuture<?> leaseRenewal;
+            private boolean exceeded;
+            private boolean finished;
+
+            Deadline(PostPurchaseOutboxMessage message, Thread caller) {
+                this.message = message;
+                this.caller = caller;
+                this.timer = timeouts.schedule(this::exceed, timeout.toMillis(), MILLISECONDS);
+            }
+
+            synchronized boolean isExceeded() {
+                return exceeded;
+            }
+
+            /**
+             * must be called by the caller thread once the action returns, no interrupt is sent after it
+             */
+            void finish() {
+                synchronized (this) {
+                    finished = true;
+                    timer.cancel(false);
+                    if (leaseRenewal != null) {
+                        leaseRenewal.cancel(false);
+                    }
+                }
+
+                // an interrupt sent just before the action returned must not reach the outcome transaction
+                Thread.interrupted();
+            }
+
+            private synchronized void exceed() {
+                if (finished) {
+                    return;
+                }
+
+                exceeded = true;
+                caller.interrupt();
+                leaseRenewal = timeouts.scheduleWithFixedDelay(this::renewLease, 0, timeout.toMillis(), MILLISECONDS);
+                logger.warn("Post purchase action {} exceeded its timeout of {} and has been interrupted {}", action.name(), timeout, message);
+            }
+
+            private void renewLease() {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> outboxRepository.findById(message.getId())
+                                                                                       .ifPresent(claimed -> claimed.claim(lease())));
+                } catch (RuntimeException e) {
+                    logger.error("Could not renew the lease of outbox message {}", message, e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static java.time.LocalDateTime.now;
+import static javax.persistence.EnumType.STRING;
+import static javax.persistence.GenerationType.SEQUENCE;
+import static org.springframework.util.Assert.hasText;
+import static org.springframework.util.Assert.notNull;
+
+/**
+ * A {@link PostPurchaseAction} that must run for a processed purchase.
+ * It is saved in the same transaction as the payment and delivered after the commit by {@link PostPurchaseOutboxDispatcher}
+ */
+@Table(name = "post_purchase_outbox",
+        indexes = @Index(name = "idx_post_purchase_outbox_due",
+                columnList = "outbox_action, outbox_status, outbox_next_attempt_at"))
+@Entity
+class PostPurchaseOutboxMessage {
+
+    @GeneratedValue(strategy = SEQUENCE, generator = "post_purchase_outbox_sequence")
+    @SequenceGenerator(name = "post_purchase_outbox_sequence", sequenceName = "post_purchase_outbox_sequence", allocationSize = 50)
+    @Id
+    @Column(name = "outbox_id")
+    private Long id;
+
+    @NotNull
+    @Column(name = "outbox_purchase_id", nullable = false)
+    private Long purchaseId;
+
+    @NotBlank
+    @Column(name = "outbox_action", nullable = false)
+    private String action;
+
+    @NotBlank
+    @Column(name = "outbox_base_url", nullable = false, length = 1000)
+    private String baseUrl;
+
+    @Enumerated(STRING)
+    @Column(name = "outbox_status", nullable = false)
+    private OutboxStatus status;
+
+    @Column(name = "outbox_attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "outbox_last_error", length = 1000)
+    private String lastError;
+
+    @NotNull
+    @Column(name = "outbox_created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @NotNull
+    @Column(name = "outbox_next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "outbox_delivered_at")
+    private LocalDateTime deliveredAt;
+
+    /**
+     * @deprecated hibernate eyes only
+     */
+    @Deprecated
+    private PostPurchaseOutboxMessage() { }
+
+    /**
+     * @param baseUrl the url the payment callback was received at, actions build their links from it
+     */
+    PostPurchaseOutboxMessage(@NotNull Long purchaseId, @NotBlank String action, @NotBlank String baseUrl) {
+        notNull(purchaseId, "purchaseId must not be null");
+        hasText(action, "action must not be blank");
+        hasText(baseUrl, "baseUrl must not be blank");
+
+        this.purchaseId = purchaseId;
+        this.action = action;
+        this.baseUrl = baseUrl;
+        this.status = OutboxStatus.PENDING;
+        this.createdAt = now();
+        this.nextAttemptAt = createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getPurchaseId() {
+        return purchaseId;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    OutboxStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * keeps other workers away from the message while its action runs, it is picked again if the lease expires
+     */
+    void claim(Duration lease) {
+        nextAttemptAt = now().plus(lease);
+    }
+
+    void delivered() {
+        attempts++;
+        status = OutboxStatus.DELIVERED;
+        deliveredAt = now();
+        lastError = null;
+    }
+
+    /**
+     * schedules another attempt after the given backoff or gives up once maxAttempts is reached
+     */
+    void failed(String error, Duration backoff, int maxAttempts) {
+        attempts++;
+        lastError = error == null || error.length() <= 1000 ? error : error.substring(0, 1000);
+
+        if (attempts >= maxAttempts) {
+            status = OutboxStatus.FAILED;
+            return;
+        }
+
+        nextAttemptAt = now().plus(backoff);
+    }
+
+    @Override
+    public String toString() {
+        return "PostPurchaseOutboxMessage{" +
+                "id=" + id +
+                ", purchaseId=" + purchaseId +
+                ", action='" + action + '\'' +
+                ", status=" + status +
+                ", attempts=" + attempts +
+                ", nextAttemptAt=" + nextAttemptAt +
+                '}';
+    }
+
+    enum OutboxStatus {
+        PENDING,
+        DELIVERED,
+        FAILED
+    }
+}
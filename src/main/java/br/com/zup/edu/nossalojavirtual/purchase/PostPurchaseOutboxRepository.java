@@ -0,0 +1,41 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import br.com.zup.edu.nossalojavirtual.purchase.PostPurchaseOutboxMessage.OutboxStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+interface PostPurchaseOutboxRepository extends Repository<PostPurchaseOutboxMessage, Long> {
+
+    PostPurchaseOutboxMessage save(PostPurchaseOutboxMessage message);
+
+    Optional<PostPurchaseOutboxMessage> findById(Long id);
+
+    /**
+     * locks the oldest due messages of an action, rows locked by another instance are skipped
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query("select m from PostPurchaseOutboxMessage m " +
+            "where m.action = :action and m.status = :status and m.nextAttemptAt <= :now " +
+            "order by m.id")
+    List<PostPurchaseOutboxMessage> findDueForUpdate(@Param("action") String action,
+                                                    @Param("status") OutboxStatus status,
+                                                    @Param("now") LocalDateTime now,
+                                                    Pageable pageable);
+
+    long countByStatus(OutboxStatus status);
+
+    void deleteAll();
+
+    List<PostPurchaseOutboxMessage> findAll();
+}
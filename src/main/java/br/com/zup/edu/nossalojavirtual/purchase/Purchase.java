@@ -12,29 +12,46 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.UUID;
 
 import static javax.persistence.EnumType.STRING;
-import static javax.persistence.GenerationType.IDENTITY;
+import static javax.persistence.FetchType.LAZY;
+import static javax.persistence.GenerationType.SEQUENCE;
 import static org.springframework.util.Assert.notNull;
 
-@Table(name = "purchase")
+@Table(name = "purchase",
+        indexes = {
+                @Index(name = "idx_purchase_status", columnList = "purchase_status, purchase_id"),
+                @Index(name = "idx_purchase_checkout_id", columnList = "purchase_checkout_id"),
+                @Index(name = "idx_purchase_buyer_history", columnList = "buyer_id, purchase_id desc")
+        })
 @Entity
 public
 class Purchase {
 
-    @GeneratedValue(strategy = IDENTITY)
+    @GeneratedValue(strategy = SEQUENCE, generator = "purchase_sequence")
+    @SequenceGenerator(name = "purchase_sequence", sequenceName = "purchase_sequence", allocationSize = 50)
     @Id
     @Column(name = "purchase_id")
     private Long id;
 
-    @ManyToOne
+    @Column(name = "purchase_checkout_id", columnDefinition = "binary(16)")
+    private UUID checkoutId;
+
+    @ManyToOne(fetch = LAZY)
     @JoinColumn(name = "buyer_id")
     private User buyer;
 
-    @ManyToOne
+    @Column(name = "purchase_buyer_email", nullable = false, updatable = false)
+    private String buyerEmail;
+
+    @ManyToOne(fetch = LAZY)
     @JoinColumn(name = "product_id")
     private Product product;
 
+    @Embedded
+    private PurchasedProduct purchasedProduct;
+
     @Min(1)
     @Column(name = "purchase_quantity")
     private int quantity;
@@ -50,7 +67,13 @@ class Purchase {
     @Column(name = "purchase_total")
     private BigDecimal total;
 
-    @ElementCollection
+    @Column(name = "purchase_created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "purchase_payment_confirmed_at")
+    private LocalDateTime paymentConfirmedAt;
+
+    @ElementCollection(fetch = LAZY)
     @CollectionTable(name = "purchase_payment_attempts",
             joinColumns = @JoinColumn(name = "purchase_id"))
     private Set<Payment> paymentAttempts = new HashSet<>();
@@ -67,6 +90,18 @@ class Purchase {
              @Min(1) int quantity,
              @NotNull PaymentGateway paymentGateway) {
 
+        this(buyer, product, quantity, paymentGateway, null);
+    }
+
+    /**
+     * @param checkoutId groups the purchases of a cart that are paid together, null for a single product purchase
+     */
+    Purchase(@NotNull User buyer,
+             @NotNull Product product,
+             @Min(1) int quantity,
+             @NotNull PaymentGateway paymentGateway,
+             UUID checkoutId) {
+
         notNull(buyer, "user must not be null");
         notNull(product, "product must not be null");
         if (quantity < 1) {
@@ -75,11 +110,15 @@ class Purchase {
         notNull(paymentGateway, "paymentGateway must not be null");
 
         this.buyer = buyer;
+        this.buyerEmail = buyer.getUsername();
         this.product = product;
+        this.purchasedProduct = new PurchasedProduct(product);
         this.quantity = quantity;
         this.paymentGateway = paymentGateway;
         this.status = Status.INICIADA;
-        this.total = product.getPrice().multiply(BigDecimal.valueOf(quantity));
+        this.total = purchasedProduct.getUnitPrice().multiply(BigDecimal.valueOf(quantity));
+        this.checkoutId = checkoutId;
+        this.createdAt = LocalDateTime.now();
     }
 
     public Long getId() {
@@ -90,33 +129,81 @@ class Purchase {
         return quantity;
     }
 
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    UUID getCheckoutId() {
+        return checkoutId;
+    }
+
+    boolean isPartOfCheckout() {
+        return checkoutId != null;
+    }
+
     public String paymentUrl(@URL String redirectUrl) {
         return paymentGateway.paymentUrl(this, redirectUrl);
     }
 
+    /**
+     * registers a payment attempt and moves the purchase to {@link Status#PAGA} or {@link Status#FALHOU}
+     *
+     * @throws IllegalStateException if the purchase is already finished
+     */
     public PostPaymentProcessedPurchase process(PaymentReturn paymentReturn) {
-        if (isPaymentSuccessful()) {
+        if (status.isFinished()) {
             throw new IllegalStateException("A finished Purchase cannot be paid again");
         }
 
         PaymentStatus paymentStatus = paymentGateway.status(paymentReturn);
-        paymentAttempts.add(new Payment(paymentReturn.getPaymentId(), paymentStatus));
+        Payment payment = new Payment(paymentReturn.getPaymentId(), paymentStatus);
+
+        paymentAttempts.add(payment);
+        status = status.afterPayment(paymentStatus);
+
+        if (payment.isSuccessful()) {
+            paymentConfirmedAt = payment.getReturnedAt();
+        }
 
         return new PostPaymentProcessedPurchase(this);
     }
 
+    /**
+     * finishes a purchase whose payment never arrived and gives its quantity back to the product stock
+     *
+     * @throws IllegalStateException if the purchase is already finished
+     */
+    void expire() {
+        status = status.expire();
+        product.releaseQuantity(quantity);
+    }
+
     public boolean isPaymentSuccessful() {
-        return paymentAttempts.stream().anyMatch(Payment::isSuccessful);
+        return status == Status.PAGA;
+    }
+
+    Status getStatus() {
+        return status;
     }
 
     public String buyerEmail() {
-        return buyer.getUsername();
+        return buyerEmail;
     }
 
     public String sellerEmail() {
-        return product.sellerEmail();
+        return purchasedProduct.getSellerEmail();
     }
 
+    /**
+     * @return the product as it was when it was bought
+     */
+    public PurchasedProduct getPurchasedProduct() {
+        return purchasedProduct;
+    }
+
+    /**
+     * @return the live catalog product, it is loaded on first access
+     */
     public Product getProduct() {
         return product;
     }
@@ -126,25 +213,22 @@ class Purchase {
             throw new IllegalStateException("An unfinished Purchase does not have a payment confirmation timestamp");
         }
 
-        Payment successPayment = paymentAttempts.stream()
-                                                .filter(Payment::isSuccessful)
-                                                .findFirst()
-                                                .get();
-
-        return successPayment.getReturnedAt();
+        return paymentConfirmedAt;
     }
 
     @Override
     public String toString() {
         return "Purchase{" +
                 "id=" + id +
-                ", buyer=" + buyer +
-                ", product=" + product +
+                ", checkoutId=" + checkoutId +
+                ", buyerEmail='" + buyerEmail + '\'' +
+                ", purchasedProduct=" + purchasedProduct +
                 ", quantity=" + quantity +
                 ", paymentGateway=" + paymentGateway +
                 ", status=" + status +
                 ", total=" + total +
-                ", paymentAttempts=" + paymentAttempts +
+                ", createdAt=" + createdAt +
+                ", paymentConfirmedAt=" + paymentConfirmedAt +
                 '}';
     }
 }
@@ -1,5 +1,6 @@
 package br.com.zup.edu.nossalojavirtual.purchase;
 
+import br.com.zup.edu.nossalojavirtual.events.DomainEventBus;
 import br.com.zup.edu.nossalojavirtual.exception.UserNotValidException;
 import br.com.zup.edu.nossalojavirtual.products.ProductRepository;
 import br.com.zup.edu.nossalojavirtual.products.shared.validators.ObjectIsRegisteredValidator;
@@ -10,13 +11,14 @@ import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.validation.BindException;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.util.UriComponentsBuilder;
 
-import javax.transaction.Transactional;
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import java.util.HashMap;
 import java.util.Optional;
@@ -27,22 +29,36 @@ import static org.springframework.http.ResponseEntity.ok;
 @RequestMapping("/api/purchase")
 class PurchaseController {
 
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     private final ProductRepository productRepository;
     private final PurchaseRepository purchaseRepository;
     private final UserRepository userRepository;
+    private final PurchaseIdempotencyStore idempotencyStore;
+    private final TransactionTemplate transactionTemplate;
+    private final DomainEventBus eventBus;
 
     private Logger logger = LoggerFactory.getLogger(PurchaseController.class);
 
     PurchaseController(ProductRepository productRepository,
-                       PurchaseRepository purchaseRepository, UserRepository userRepository) {
+                       PurchaseRepository purchaseRepository, UserRepository userRepository,
+                       PurchaseIdempotencyStore idempotencyStore, TransactionTemplate transactionTemplate,
+                       DomainEventBus eventBus) {
         this.productRepository = productRepository;
         this.purchaseRepository = purchaseRepository;
         this.userRepository = userRepository;
+        this.idempotencyStore = idempotencyStore;
+        this.transactionTemplate = transactionTemplate;
+        this.eventBus = eventBus;
     }
 
+    /**
+     * Requests with an {@value #IDEMPOTENCY_KEY_HEADER} header already used by the buyer get the original response back
+     * and concurrent ones wait for the first, so retries never reserve stock again
+     */
     @PostMapping
-    @Transactional
     public ResponseEntity<?> buy(@RequestBody @Valid NewPurchaseRequest newPurchase,
+                                 @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
                                  @AuthenticationPrincipal(expression = "claims['email']") String username,
                                  UriComponentsBuilder uriBuilder) throws BindException {
 
@@ -50,39 +66,75 @@ class PurchaseController {
                 () -> new UserNotValidException("User not authenticated.")
         );
 
-        var product = productRepository.findById(newPurchase.getProductId()).get();
+        String paymentUrl;
+        if (idempotencyKey == null) {
+            paymentUrl = reserve(newPurchase, buyer, null, uriBuilder);
+        } else {
+            paymentUrl = idempotencyStore.execute(username, idempotencyKey,
+                    () -> reserve(newPurchase, buyer, idempotencyKey, uriBuilder));
+        }
 
-        Optional<Purchase> possiblePurchase = product.reserveQuantityFor(newPurchase, buyer);
+        var response = new HashMap<>();
+        response.put("paymentUrl", paymentUrl);
 
-        if (possiblePurchase.isEmpty()) {
-            BindException bindException = new BindException(new Object(), "");
-            bindException.reject("purchase.product.outOfStock", "This product is out of stock");
+        return ok(response);
+    }
 
-            logger.warn("This product is out of stock {}", product);
+    private String reserve(NewPurchaseRequest newPurchase,
+                           User buyer,
+                           String idempotencyKey,
+                           UriComponentsBuilder uriBuilder) throws BindException {
 
-            throw bindException;
-        }
+        Optional<String> possiblePaymentUrl = transactionTemplate.execute(status -> {
+            var product = productRepository.findById(newPurchase.getProductId()).get();
 
-        Purchase purchase = possiblePurchase.get();
-        purchaseRepository.save(purchase);
+            Optional<Purchase> possiblePurchase = product.reserveQuantityFor(newPurchase, buyer);
 
-        logger.info("New purchase has been created! {}", purchase);
+            if (possiblePurchase.isEmpty()) {
+                logger.warn("This product is out of stock {}", product);
+                return Optional.empty();
+            }
 
-        var redirectUrl = uriBuilder.path("/api/purchases/confirm-payment")
-                .buildAndExpand(purchase.getId())
-                .toString();
+            Purchase purchase = possiblePurchase.get();
+            purchaseRepository.save(purchase);
+            eventBus.publish(new StockReservedEvent(purchase));
 
-        String paymentUrl = purchase.paymentUrl(redirectUrl);
+            logger.info("New purchase has been created! {}", purchase);
 
+            var redirectUrl = uriBuilder.path("/api/purchases/confirm-payment")
+                    .buildAndExpand(purchase.getId())
+                    .toString();
 
-        var response = new HashMap<>();
-        response.put("paymentUrl", paymentUrl);
+            String paymentUrl = purchase.paymentUrl(redirectUrl);
 
-        return ok(response);
+            if (idempotencyKey != null) {
+                idempotencyStore.record(buyer.getUsername(), idempotencyKey, paymentUrl);
+            }
+
+            return Optional.of(paymentUrl);
+        });
+
+        if (possiblePaymentUrl.isEmpty()) {
+            BindException bindException = new BindException(new Object(), "");
+            bindException.reject("purchase.product.outOfStock", "This product is out of stock");
+
+            throw bindException;
+        }
+
+        return possiblePaymentUrl.get();
     }
 
+    /**
+     * init binders cannot resolve {@code @RequestHeader}, the idempotency key is read from the request
+     */
     @InitBinder(value = {"newPurchaseRequest"})
-    void initBinder(WebDataBinder binder) {
+    void initBinder(WebDataBinder binder,
+                    HttpServletRequest request,
+                    @AuthenticationPrincipal(expression = "claims['email']") String username) {
+
+        if (idempotencyStore.isReplay(username, request.getHeader(IDEMPOTENCY_KEY_HEADER))) {
+            return;
+        }
 
         binder.addValidators(
                 new ObjectIsRegisteredValidator<>("productId",
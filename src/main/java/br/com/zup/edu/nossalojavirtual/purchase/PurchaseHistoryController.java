@@ -0,0 +1,52 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import br.com.zup.edu.nossalojavirtual.exception.UserNotValidException;
+import br.com.zup.edu.nossalojavirtual.users.User;
+import br.com.zup.edu.nossalojavirtual.users.UserRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+import static org.springframework.http.ResponseEntity.ok;
+
+@RestController
+@RequestMapping("/api/purchases")
+class PurchaseHistoryController {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final PurchaseRepository purchaseRepository;
+    private final UserRepository userRepository;
+
+    PurchaseHistoryController(PurchaseRepository purchaseRepository, UserRepository userRepository) {
+        this.purchaseRepository = purchaseRepository;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * @param cursor the nextCursor of the previous page, the first page is returned without it
+     * @param size the page size, at most {@value #MAX_PAGE_SIZE}
+     */
+    @GetMapping
+    ResponseEntity<?> history(@RequestParam(name = "cursor", required = false) Long cursor,
+                              @RequestParam(name = "size", defaultValue = "20") int size,
+                              @AuthenticationPrincipal(expression = "claims['email']") String username) {
+
+        User buyer = userRepository.findByEmail(username).orElseThrow(
+                () -> new UserNotValidException("User not authenticated.")
+        );
+
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        long before = cursor == null ? Long.MAX_VALUE : cursor;
+
+        List<PurchaseHistoryItem> purchases = purchaseRepository.findHistory(buyer.getId(), before, PageRequest.of(0, pageSize));
+
+        return ok(new PurchaseHistoryResponse(purchases, pageSize));
+    }
+}
@@ -0,0 +1,49 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import java.math.BigDecimal;
+
+/**
+ * A purchase as the buyer sees it in the order history, read straight from the query without loading the purchase
+ */
+class PurchaseHistoryItem {
+
+    private final Long id;
+    private final String productName;
+    private final BigDecimal unitPrice;
+    private final int quantity;
+    private final BigDecimal total;
+    private final Status status;
+
+    PurchaseHistoryItem(Long id, String productName, BigDecimal unitPrice, int quantity, BigDecimal total, Status status) {
+        this.id = id;
+        this.productName = productName;
+        this.unitPrice = unitPrice;
+        this.quantity = quantity;
+        this.total = total;
+        this.status = status;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public BigDecimal getUnitPrice() {
+        return unitPrice;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,29 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import java.util.List;
+
+class PurchaseHistoryResponse {
+
+    private final List<PurchaseHistoryItem> purchases;
+    private final Long nextCursor;
+
+    /**
+     * @param purchases a page of purchases, newest first
+     * @param pageSize the requested page size
+     */
+    PurchaseHistoryResponse(List<PurchaseHistoryItem> purchases, int pageSize) {
+        this.purchases = purchases;
+        this.nextCursor = purchases.size() < pageSize ? null : purchases.get(purchases.size() - 1).getId();
+    }
+
+    public List<PurchaseHistoryItem> getPurchases() {
+        return purchases;
+    }
+
+    /**
+     * @return the cursor of the next page or null if this is the last one
+     */
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+}
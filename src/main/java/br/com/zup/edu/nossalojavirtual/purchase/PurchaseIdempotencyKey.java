@@ -0,0 +1,95 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static java.time.LocalDateTime.now;
+import static javax.persistence.GenerationType.IDENTITY;
+import static org.springframework.util.Assert.hasText;
+import static org.springframework.util.Assert.notNull;
+
+/**
+ * The response of a purchase created with an {@code Idempotency-Key} header,
+ * kept until {@link #expiresAt} so that client retries get the original response back
+ */
+@Table(name = "purchase_idempotency_keys",
+        uniqueConstraints = @UniqueConstraint(name = "uk_purchase_idempotency_key",
+                columnNames = {"idempotency_buyer", "idempotency_key"}),
+        indexes = @Index(name = "idx_purchase_idempotency_expires_at", columnList = "idempotency_expires_at"))
+@Entity
+class PurchaseIdempotencyKey {
+
+    @Id
+    @GeneratedValue(strategy = IDENTITY)
+    @Column(name = "idempotency_id")
+    private Long id;
+
+    @NotBlank
+    @Column(name = "idempotency_buyer", nullable = false)
+    private String buyer;
+
+    @NotBlank
+    @Column(name = "idempotency_key", nullable = false)
+    private String idempotencyKey;
+
+    @NotBlank
+    @Column(name = "idempotency_payment_url", nullable = false, length = 1000)
+    private String paymentUrl;
+
+    @NotNull
+    @Column(name = "idempotency_created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @NotNull
+    @Column(name = "idempotency_expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    /**
+     * @deprecated hibernate eyes only
+     */
+    @Deprecated
+    private PurchaseIdempotencyKey() { }
+
+    PurchaseIdempotencyKey(@NotBlank String buyer,
+                           @NotBlank String idempotencyKey,
+                           @NotBlank String paymentUrl,
+                           @NotNull Duration timeToLive) {
+
+        hasText(buyer, "buyer must not be blank");
+        hasText(idempotencyKey, "idempotencyKey must not be blank");
+        hasText(paymentUrl, "paymentUrl must not be blank");
+        notNull(timeToLive, "timeToLive must not be null");
+
+        this.buyer = buyer;
+        this.idempotencyKey = idempotencyKey;
+        this.paymentUrl = paymentUrl;
+        this.createdAt = now();
+        this.expiresAt = createdAt.plus(timeToLive);
+    }
+
+    public String getPaymentUrl() {
+        return paymentUrl;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isExpired() {
+        return expiresAt.isBefore(now());
+    }
+
+    @Override
+    public String toString() {
+        return "PurchaseIdempotencyKey{" +
+                "id=" + id +
+                ", buyer='" + buyer + '\'' +
+                ", idempotencyKey='" + idempotencyKey + '\'' +
+                ", createdAt=" + createdAt +
+                ", expiresAt=" + expiresAt +
+                '}';
+    }
+}
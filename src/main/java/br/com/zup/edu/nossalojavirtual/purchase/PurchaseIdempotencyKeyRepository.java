@@ -0,0 +1,29 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+interface PurchaseIdempotencyKeyRepository extends Repository<PurchaseIdempotencyKey, Long> {
+
+    PurchaseIdempotencyKey save(PurchaseIdempotencyKey idempotencyKey);
+
+    Optional<PurchaseIdempotencyKey> findByBuyerAndIdempotencyKey(String buyer, String idempotencyKey);
+
+    void delete(PurchaseIdempotencyKey idempotencyKey);
+
+    @Transactional
+    @Modifying
+    @Query("delete from PurchaseIdempotencyKey k where k.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+
+    void deleteAll();
+
+    List<PurchaseIdempotencyKey> findAll();
+}
@@ -0,0 +1,205 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.BindException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.time.LocalDateTime.now;
+
+/**
+ * Keeps the responses of purchases created with an {@code Idempotency-Key} header.
+ *
+ * Recent responses live in a bounded LRU in front of the {@code purchase_idempotency_keys} table,
+ * and concurrent requests with the same key wait for the first one instead of creating another purchase.
+ */
+@Component
+class PurchaseIdempotencyStore {
+
+    private final PurchaseIdempotencyKeyRepository repository;
+    private final Duration timeToLive;
+    private final Map<String, CachedResponse> recentResponses;
+    private final ConcurrentMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private Logger logger = LoggerFactory.getLogger(PurchaseIdempotencyStore.class);
+
+    PurchaseIdempotencyStore(PurchaseIdempotencyKeyRepository repository,
+                             @Value("${purchase.idempotency.time-to-live:PT24H}") Duration timeToLive,
+                             @Value("${purchase.idempotency.cache-size:10000}") int cacheSize) {
+        this.repository = repository;
+        this.timeToLive = timeToLive;
+        this.recentResponses = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * @param buyer the authenticated buyer
+     * @param idempotencyKey the key sent by the client
+     * @return true if a response was already stored for this buyer and key
+     */
+    boolean isReplay(String buyer, String idempotencyKey) {
+        if (buyer == null || idempotencyKey == null) {
+            return false;
+        }
+
+        return storedPaymentUrl(cacheKey(buyer, idempotencyKey), buyer, idempotencyKey).isPresent();
+    }
+
+    /**
+     * Runs the purchase only once per buyer and key
+     *
+     * @param buyer the authenticated buyer
+     * @param idempotencyKey the key sent by the client
+     * @param purchase creates the purchase and returns its payment url, it must call {@link #record} in its transaction
+     * @return the payment url of the first purchase made with this key
+     * @throws BindException if the purchase could not be created
+     */
+    String execute(String buyer, String idempotencyKey, IdempotentPurchase purchase) throws BindException {
+        String cacheKey = cacheKey(buyer, idempotencyKey);
+
+        Optional<String> storedPaymentUrl = storedPaymentUrl(cacheKey, buyer, idempotencyKey);
+        if (storedPaymentUrl.isPresent()) {
+            return storedPaymentUrl.get();
+        }
+
+        var execution = new CompletableFuture<String>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(cacheKey, execution);
+        if (running != null) {
+            logger.info("Waiting for a concurrent purchase with the same idempotency key {}", idempotencyKey);
+            return await(running);
+        }
+
+        try {
+            String paymentUrl = run(purchase, buyer, idempotencyKey);
+            remember(cacheKey, paymentUrl);
+            execution.complete(paymentUrl);
+
+            return paymentUrl;
+        } catch (BindException | RuntimeException e) {
+            execution.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(cacheKey, execution);
+        }
+    }
+
+    /**
+     * stores the response of a purchase, it should be called in the same transaction that creates the purchase
+     */
+    void record(String buyer, String idempotencyKey, String paymentUrl) {
+        repository.save(new PurchaseIdempotencyKey(buyer, idempotencyKey, paymentUrl, timeToLive));
+    }
+
+    @Scheduled(fixedDelayString = "${purchase.idempotency.cleanup-interval:PT10M}")
+    void deleteExpired() {
+        int deleted = repository.deleteExpired(now());
+        synchronized (recentResponses) {
+            recentResponses.values().removeIf(CachedResponse::isExpired);
+        }
+
+        if (deleted > 0) {
+            logger.info("{} expired purchase idempotency keys have been deleted", deleted);
+        }
+    }
+
+    private String run(IdempotentPurchase purchase, String buyer, String idempotencyKey) throws BindException {
+        try {
+            return purchase.create();
+        } catch (DataIntegrityViolationException e) {
+            // another instance stored this key first, so its purchase is the one that counts
+            return repository.findByBuyerAndIdempotencyKey(buyer, idempotencyKey)
+                             .map(PurchaseIdempotencyKey::getPaymentUrl)
+                             .orElseThrow(() -> e);
+        }
+    }
+
+    private Optional<String> storedPaymentUrl(String cacheKey, String buyer, String idempotencyKey) {
+        synchronized (recentResponses) {
+            CachedResponse cached = recentResponses.get(cacheKey);
+            if (cached != null && !cached.isExpired()) {
+                return Optional.of(cached.paymentUrl);
+            }
+        }
+
+        Optional<PurchaseIdempotencyKey> stored = repository.findByBuyerAndIdempotencyKey(buyer, idempotencyKey);
+        if (stored.isEmpty()) {
+            return Optional.empty();
+        }
+
+        PurchaseIdempotencyKey key = stored.get();
+        if (key.isExpired()) {
+            // frees the key before the cleanup job does, otherwise the new purchase would violate the unique index
+            repository.delete(key);
+            return Optional.empty();
+        }
+
+        remember(cacheKey, key.getPaymentUrl(), key.getExpiresAt());
+        return Optional.of(key.getPaymentUrl());
+    }
+
+    private void remember(String cacheKey, String paymentUrl) {
+        remember(cacheKey, paymentUrl, now().plus(timeToLive));
+    }
+
+    private void remember(String cacheKey, String paymentUrl, LocalDateTime expiresAt) {
+        synchronized (recentResponses) {
+            recentResponses.put(cacheKey, new CachedResponse(paymentUrl, expiresAt));
+        }
+    }
+
+    private String await(CompletableFuture<String> running) throws BindException {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof BindException bindException) {
+                throw bindException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private static String cacheKey(String buyer, String idempotencyKey) {
+        return buyer + '\n' + idempotencyKey;
+    }
+
+    @FunctionalInterface
+    interface IdempotentPurchase {
+
+        String create() throws BindException;
+    }
+
+    private static class CachedResponse {
+
+        private final String paymentUrl;
+        private final LocalDateTime expiresAt;
+
+        CachedResponse(String paymentUrl, LocalDateTime expiresAt) {
+            this.paymentUrl = paymentUrl;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired() {
+            return expiresAt.isBefore(now());
+        }
+    }
+}
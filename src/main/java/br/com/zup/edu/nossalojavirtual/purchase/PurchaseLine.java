@@ -0,0 +1,15 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import br.com.zup.edu.nossalojavirtual.products.Product;
+import br.com.zup.edu.nossalojavirtual.users.User;
+
+/**
+ * A quantity of a product that a buyer wants, used by {@link Product#reserveQuantityFor} to decouple the stock
+ * reservation from the request that originated it
+ */
+public interface PurchaseLine {
+
+    int getQuantity();
+
+    Purchase toPurchase(User buyer, Product product);
+}
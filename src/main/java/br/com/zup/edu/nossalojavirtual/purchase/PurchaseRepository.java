@@ -1,15 +1,24 @@
 package br.com.zup.edu.nossalojavirtual.purchase;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 
 interface PurchaseRepository extends Repository<Purchase, Long> {
 
     Purchase save(Purchase purchase);
 
+    List<Purchase> saveAll(Iterable<Purchase> purchases);
+
+    List<Purchase> findByCheckoutIdOrderByIdAsc(UUID checkoutId);
+
     Optional<Purchase> findById(Long id);
 
     boolean existsById(Long id);
@@ -17,4 +26,40 @@ interface PurchaseRepository extends Repository<Purchase, Long> {
     void deleteAll();
 
     List<Purchase> findAll();
+
+    /**
+     * uses the purchase_status index, payment attempts are not loaded
+     */
+    List<Purchase> findByStatusOrderByIdAsc(Status status, Pageable pageable);
+
+    long countByStatus(Status status);
+
+    long countByStatusAndCreatedAtBefore(Status status, LocalDateTime createdBefore);
+
+    /**
+     * keyset pagination over the (purchase_status, purchase_id) index
+     *
+     * @param after only purchases with a greater id are returned
+     * @param createdBefore only purchases created before it are returned
+     */
+    @Query("select new br.com.zup.edu.nossalojavirtual.purchase.PendingPayment(p.id, p.paymentGateway, p.createdAt) from Purchase p " +
+            "where p.status = :status and p.id > :after and p.createdAt < :createdBefore " +
+            "order by p.id")
+    List<PendingPayment> findPendingPayments(@Param("status") Status status,
+                                             @Param("after") long after,
+                                             @Param("createdBefore") LocalDateTime createdBefore,
+                                             Pageable pageable);
+
+    /**
+     * keyset pagination over the (buyer_id, purchase_id desc) index, newest purchases first,
+     * only the purchase table is read
+     *
+     * @param before only purchases with a smaller id are returned
+     */
+    @Query("select new br.com.zup.edu.nossalojavirtual.purchase.PurchaseHistoryItem(" +
+            "p.id, p.purchasedProduct.name, p.purchasedProduct.unitPrice, p.quantity, p.total, p.status) " +
+            "from Purchase p " +
+            "where p.buyer.id = :buyerId and p.id < :before " +
+            "order by p.id desc")
+    List<PurchaseHistoryItem> findHistory(@Param("buyerId") Long buyerId, @Param("before") long before, Pageable pageable);
 }
@@ -0,0 +1,92 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import br.com.zup.edu.nossalojavirtual.products.Photo;
+import br.com.zup.edu.nossalojavirtual.products.Product;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.springframework.util.Assert.notNull;
+
+/**
+ * What the product was when it was bought, later changes in the catalog don't change the purchase
+ */
+@Embeddable
+class PurchasedProduct {
+
+    @Column(name = "purchase_product_id", columnDefinition = "binary(16)", nullable = false, updatable = false)
+    private UUID productId;
+
+    @Column(name = "purchase_product_name", nullable = false, updatable = false)
+    private String name;
+
+    @Column(name = "purchase_unit_price", nullable = false, updatable = false)
+    private BigDecimal unitPrice;
+
+    @Column(name = "purchase_seller_id", nullable = false, updatable = false)
+    private Long sellerId;
+
+    @Column(name = "purchase_seller_email", nullable = false, updatable = false)
+    private String sellerEmail;
+
+    @Column(name = "purchase_product_photo", length = 1000, updatable = false)
+    private String photoUrl;
+
+    /**
+     * @deprecated hibernate eyes only
+     */
+    @Deprecated
+    private PurchasedProduct() { }
+
+    PurchasedProduct(Product product) {
+        notNull(product, "product must not be null");
+
+        this.productId = product.getId();
+        this.name = product.getName();
+        this.unitPrice = product.getPrice();
+        this.sellerId = product.getUser().getId();
+        this.sellerEmail = product.sellerEmail();
+        this.photoUrl = product.getPhotos()
+                               .stream()
+                               .findFirst()
+                               .map(Photo::getUrl)
+                               .orElse(null);
+    }
+
+    public UUID getProductId() {
+        return productId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public BigDecimal getUnitPrice() {
+        return unitPrice;
+    }
+
+    public Long getSellerId() {
+        return sellerId;
+    }
+
+    public String getSellerEmail() {
+        return sellerEmail;
+    }
+
+    public String getPhotoUrl() {
+        return photoUrl;
+    }
+
+    @Override
+    public String toString() {
+        return "PurchasedProduct{" +
+                "productId=" + productId +
+                ", name='" + name + '\'' +
+                ", unitPrice=" + unitPrice +
+                ", sellerId=" + sellerId +
+                ", sellerEmail='" + sellerEmail + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,216 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import br.com.zup.edu.nossalojavirtual.purchase.SellersRankingClient.SellerRankingDelta;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import static java.math.RoundingMode.HALF_EVEN;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Sums the confirmed purchases of each seller and sends them to the ranking system as one batch of deltas per
+ * {@code sellers.ranking.flush-interval}.
+ *
+ * Every purchase is appended to a journal segment before it is counted, and segments are deleted only after
+ * their deltas are accepted, so the counts of a crashed instance are recovered when it starts again.
+ */
+@Component
+@Profile("prod")
+class SellersRankingAggregator implements DisposableBean {
+
+    private static final String SEGMENT_PREFIX = "sellers-ranking-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final SellersRankingClient sellersRankingClient;
+    private final Path journalDirectory;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Path> unsentSegments = new ArrayList<>();
+
+    private ConcurrentMap<String, SellerTotals> totals = new ConcurrentHashMap<>();
+    private FileChannel journal;
+    private Path journalSegment;
+    private long segmentNumber;
+
+    private Logger logger = LoggerFactory.getLogger(SellersRankingAggregator.class);
+
+    SellersRankingAggregator(SellersRankingClient sellersRankingClient,
+                             @Value("${sellers.ranking.journal-directory:data/sellers-ranking}") Path journalDirectory) throws IOException {
+        this.sellersRankingClient = sellersRankingClient;
+        this.journalDirectory = journalDirectory;
+
+        Files.createDirectories(journalDirectory);
+        recover();
+        openSegment();
+    }
+
+    /**
+     * @param sellerId identifies the seller in the ranking system
+     * @param total the total of a confirmed purchase
+     * @throws UncheckedIOException if the purchase could not be written to the journal, it is not counted then
+     */
+    void record(String sellerId, BigDecimal total) {
+        long cents = total.setScale(2, HALF_EVEN).unscaledValue().longValueExact();
+        ByteBuffer entry = ByteBuffer.wrap((sellerId + '\t' + cents + '\n').getBytes(UTF_8));
+
+        lock.readLock().lock();
+        try {
+            // the channel writes straight to the OS, so the entry survives a crash of the application
+            while (entry.hasRemaining()) {
+                journal.write(entry);
+            }
+
+            totals.computeIfAbsent(sellerId, id -> new SellerTotals()).add(1, cents);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the sellers ranking journal", e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${sellers.ranking.flush-interval:PT10S}")
+    synchronized void flush() {
+        Map<String, SellerTotals> snapshot;
+
+        lock.writeLock().lock();
+        try {
+            if (totals.isEmpty()) {
+                return;
+            }
+
+            snapshot = totals;
+            totals = new ConcurrentHashMap<>();
+
+            journal.close();
+            unsentSegments.add(journalSegment);
+            openSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not rotate the sellers ranking journal", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<SellerRankingDelta> deltas = snapshot.entrySet()
+                                                  .stream()
+                                                  .map(seller -> seller.getValue().toDelta(seller.getKey()))
+                                                  .toList();
+        try {
+            sellersRankingClient.registerDeltas(deltas);
+        } catch (RuntimeException e) {
+            // the unsent counts go back to the current window, their segments are kept until they are sent
+            lock.readLock().lock();
+            try {
+                snapshot.forEach((sellerId, sellerTotals) -> totals.computeIfAbsent(sellerId, id -> new SellerTotals()).add(sellerTotals));
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            logger.warn("Sellers ranking deltas could not be sent, they will be sent on the next flush", e);
+            return;
+        }
+
+        unsentSegments.forEach(this::delete);
+        unsentSegments.clear();
+
+        logger.info("Purchases of {} sellers have been sent to seller system!", deltas.size());
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        try {
+            flush();
+        } finally {
+            journal.close();
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(journalDirectory)) {
+            segments = files.filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                            .sorted()
+                            .toList();
+        }
+
+        for (Path segment : segments) {
+            String content = Files.readString(segment, UTF_8);
+            // an entry without its line break was being written when the application stopped
+            int end = content.lastIndexOf('\n');
+
+            if (end >= 0) {
+                content.substring(0, end).lines().forEach(entry -> {
+                    String[] fields = entry.split("\t");
+                    totals.computeIfAbsent(fields[0], id -> new SellerTotals()).add(1, Long.parseLong(fields[1]));
+                });
+            }
+
+            unsentSegments.add(segment);
+            segmentNumber = Math.max(segmentNumber, number(segment));
+        }
+
+        if (!segments.isEmpty()) {
+            logger.info("Unsent purchases of {} sellers have been recovered from {} journal segments", totals.size(), segments.size());
+        }
+    }
+
+    private void openSegment() throws IOException {
+        segmentNumber++;
+        journalSegment = journalDirectory.resolve(SEGMENT_PREFIX + String.format("%019d", segmentNumber) + SEGMENT_SUFFIX);
+        journal = FileChannel.open(journalSegment, CREATE, WRITE, APPEND);
+    }
+
+    private void delete(Path segment) {
+        try {
+            Files.deleteIfExists(segment);
+        } catch (IOException e) {
+            // it would be sent again after a restart, so it must not be left behind silently
+            logger.error("Sent journal segment {} could not be deleted", segment, e);
+        }
+    }
+
+    private static long number(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static class SellerTotals {
+
+        private final LongAdder purchases = new LongAdder();
+        private final LongAdder revenueInCents = new LongAdder();
+
+        void add(long purchases, long revenueInCents) {
+            this.purchases.add(purchases);
+            this.revenueInCents.add(revenueInCents);
+        }
+
+        void add(SellerTotals other) {
+            add(other.purchases.sum(), other.revenueInCents.sum());
+        }
+
+        SellerRankingDelta toDelta(String sellerId) {
+            return new SellerRankingDelta(sellerId, purchases.sum(), BigDecimal.valueOf(revenueInCents.sum(), 2));
+        }
+    }
+}
@@ -3,14 +3,23 @@ package br.com.zup.edu.nossalojavirtual.purchase;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.RequestMapping;
 
+import java.math.BigDecimal;
+import java.util.List;
+
 import static org.springframework.web.bind.annotation.RequestMethod.POST;
 
-@FeignClient(url = "localhost:8080/sellerRanking", name = "sellerRankingSystem")
+@FeignClient(url = "${sellers.ranking.url}", name = "sellerRankingSystem")
 interface SellersRankingClient {
 
     @RequestMapping(method = POST, value = "/newPurchase/", produces = "application/json")
     void requestInvoice(SellersRankingRequest request);
 
+    /**
+     * adds the purchases and revenue of many sellers in one call, see {@link SellersRankingAggregator}
+     */
+    @RequestMapping(method = POST, value = "/deltas/", produces = "application/json")
+    void registerDeltas(List<SellerRankingDelta> deltas);
+
     class SellersRankingRequest {
 
         private Long purchaseId;
@@ -35,4 +44,44 @@ interface SellersRankingClient {
             return sellerId;
         }
     }
+
+    class SellerRankingDelta {
+
+        private String sellerId;
+        private long purchases;
+        private BigDecimal revenue;
+
+        /**
+         * @deprecated frameworks eyes only
+         */
+        @Deprecated
+        SellerRankingDelta() { }
+
+        public SellerRankingDelta(String sellerId, long purchases, BigDecimal revenue) {
+            this.sellerId = sellerId;
+            this.purchases = purchases;
+            this.revenue = revenue;
+        }
+
+        public String getSellerId() {
+            return sellerId;
+        }
+
+        public long getPurchases() {
+            return purchases;
+        }
+
+        public BigDecimal getRevenue() {
+            return revenue;
+        }
+
+        @Override
+        public String toString() {
+            return "SellerRankingDelta{" +
+                    "sellerId='" + sellerId + '\'' +
+                    ", purchases=" + purchases +
+                    ", revenue=" + revenue +
+                    '}';
+        }
+    }
 }
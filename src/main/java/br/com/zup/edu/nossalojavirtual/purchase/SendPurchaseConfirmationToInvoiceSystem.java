@@ -4,17 +4,22 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.util.concurrent.ExecutionException;
+
+import static org.springframework.util.Assert.state;
+
 @Component
 @Profile("prod")
 class SendPurchaseConfirmationToInvoiceSystem implements PostPurchaseAction {
 
-    private final InvoiceClient invoiceClient;
+    private final InvoiceBatchSender invoiceBatchSender;
     private Logger logger = LoggerFactory.getLogger(SendPurchaseConfirmationToInvoiceSystem.class);
 
-    SendPurchaseConfirmationToInvoiceSystem(InvoiceClient invoiceClient) {
-        this.invoiceClient = invoiceClient;
+    SendPurchaseConfirmationToInvoiceSystem(InvoiceBatchSender invoiceBatchSender) {
+        this.invoiceBatchSender = invoiceBatchSender;
     }
 
     /**
@@ -29,8 +34,20 @@ class SendPurchaseConfirmationToInvoiceSystem implements PostPurchaseAction {
             return;
         }
 
+        // waiting for the batch holds the connection of any open transaction for up to invoice.batch.max-delay
+        state(!TransactionSynchronizationManager.isActualTransactionActive(), "Invoices must not be sent inside a transaction");
+
         InvoiceClient.InvoiceRequest request = new InvoiceClient.InvoiceRequest(postPaymentPurchase.getId(), postPaymentPurchase.buyerEmail());
-        invoiceClient.requestInvoice(request);
+        // waits for its batch, so a failed batch is retried by the post purchase outbox,
+        // the wait is interruptible so the outbox timeout can stop it
+        try {
+            invoiceBatchSender.send(request).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the invoice batch of " + request, e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+        }
 
         logger.info("Purchase confirmation has been sent to invoice system! {}", request);
     }
@@ -1,6 +1,5 @@
 package br.com.zup.edu.nossalojavirtual.purchase;
 
-import br.com.zup.edu.nossalojavirtual.purchase.SellersRankingClient.SellersRankingRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Profile;
@@ -11,12 +10,12 @@ import org.springframework.web.util.UriComponentsBuilder;
 @Profile("prod")
 class SendPurchaseConfirmationToSellersSystem implements PostPurchaseAction {
 
-    private final SellersRankingClient sellersRankingClient;
+    private final SellersRankingAggregator sellersRankingAggregator;
 
     private Logger logger = LoggerFactory.getLogger(SendPurchaseConfirmationToSellersSystem.class);
 
-    SendPurchaseConfirmationToSellersSystem(SellersRankingClient sellersRankingClient) {
-        this.sellersRankingClient = sellersRankingClient;
+    SendPurchaseConfirmationToSellersSystem(SellersRankingAggregator sellersRankingAggregator) {
+        this.sellersRankingAggregator = sellersRankingAggregator;
     }
 
     /**
@@ -31,9 +30,9 @@ class SendPurchaseConfirmationToSellersSystem implements PostPurchaseAction {
             return;
         }
 
-        SellersRankingRequest request = new SellersRankingRequest(postPaymentPurchase.getId(), postPaymentPurchase.sellerEmail());
-        sellersRankingClient.requestInvoice(request);
+        // the ranking only needs totals per seller, they are sent in batches by the aggregator
+        sellersRankingAggregator.record(postPaymentPurchase.sellerEmail(), postPaymentPurchase.getTotal());
 
-        logger.info("Purchase confirmation has been sent to seller system! {}", request);
+        logger.info("Purchase confirmation has been recorded for seller system! {}", postPaymentPurchase.getId());
     }
 }
@@ -1,7 +1,8 @@
 package br.com.zup.edu.nossalojavirtual.purchase;
 
 import br.com.zup.edu.nossalojavirtual.products.shared.email.Email;
-import br.com.zup.edu.nossalojavirtual.products.shared.email.EmailService;
+import br.com.zup.edu.nossalojavirtual.products.shared.email.EmailOutbox;
+import br.com.zup.edu.nossalojavirtual.products.shared.email.EmailTemplates;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Profile;
@@ -12,12 +13,14 @@ import org.springframework.web.util.UriComponentsBuilder;
 @Profile("prod")
 class SendPurchaseFailEmail implements PostPurchaseAction {
 
-    private final EmailService emailService;
+    private final EmailOutbox emailOutbox;
+    private final EmailTemplates emailTemplates;
 
     private Logger logger = LoggerFactory.getLogger(SendPurchaseFailEmail.class);
 
-    SendPurchaseFailEmail(EmailService emailService) {
-        this.emailService = emailService;
+    SendPurchaseFailEmail(EmailOutbox emailOutbox, EmailTemplates emailTemplates) {
+        this.emailOutbox = emailOutbox;
+        this.emailTemplates = emailTemplates;
     }
 
     /**
@@ -36,16 +39,16 @@ class SendPurchaseFailEmail implements PostPurchaseAction {
                                         .buildAndExpand(postPaymentPurchase.getId())
                                         .toString();
 
-        String body = "An error occurred when processing your payment, try again in this link: " + postPaymentPurchase.paymentUrl(retryPaymentUrl);
+        String body = emailTemplates.render("email.purchase.failed.body", postPaymentPurchase.paymentUrl(retryPaymentUrl));
         Email email = Email.to(postPaymentPurchase.buyerEmail())
                 .from(postPaymentPurchase.sellerEmail())
-                .subject("Payment could not be confirmed")
+                .subject(emailTemplates.render("email.purchase.failed.subject"))
                 .body(body)
                 .product(postPaymentPurchase.getProduct())
                 .build();
 
-        emailService.send(email);
+        emailOutbox.enqueue(email);
 
-        logger.warn("Purchase fail has been sent to email! {}", email);
+        logger.warn("Purchase fail has been queued to email! {}", email);
     }
 }
@@ -1,5 +1,52 @@
 package br.com.zup.edu.nossalojavirtual.purchase;
 
+import br.com.zup.edu.nossalojavirtual.purchase.Payment.PaymentStatus;
+
+import static br.com.zup.edu.nossalojavirtual.purchase.Payment.PaymentStatus.SUCCESS;
+
+/**
+ * The purchase lifecycle: INICIADA -> PAGA | FALHOU | EXPIRADA
+ *
+ * a FALHOU purchase can still be paid, since the buyer receives a link to try again
+ */
 enum Status {
-    INICIADA
+    INICIADA(false),
+    PAGA(true),
+    FALHOU(false),
+    EXPIRADA(true);
+
+    private final boolean finished;
+
+    Status(boolean finished) {
+        this.finished = finished;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * @param paymentStatus the status returned by the payment gateway
+     * @return the status after a payment attempt
+     * @throws IllegalStateException if the purchase is already finished
+     */
+    Status afterPayment(PaymentStatus paymentStatus) {
+        if (finished) {
+            throw new IllegalStateException("A finished Purchase cannot be paid again");
+        }
+
+        return paymentStatus == SUCCESS ? PAGA : FALHOU;
+    }
+
+    /**
+     * @return the status of a purchase whose payment never arrived
+     * @throws IllegalStateException if the purchase is already finished
+     */
+    Status expire() {
+        if (finished) {
+            throw new IllegalStateException("A finished Purchase cannot expire");
+        }
+
+        return EXPIRADA;
+    }
 }
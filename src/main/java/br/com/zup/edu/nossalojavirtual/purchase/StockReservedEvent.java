@@ -0,0 +1,43 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import br.com.zup.edu.nossalojavirtual.events.DomainEvent;
+
+import java.util.StringJoiner;
+import java.util.UUID;
+
+/**
+ * This class represents an event that is published when a {@link Purchase} reserves stock of its product
+ */
+public class StockReservedEvent implements DomainEvent {
+
+    private final Long purchaseId;
+    private final UUID productId;
+    private final int quantity;
+
+    StockReservedEvent(Purchase purchase) {
+        this.purchaseId = purchase.getId();
+        this.productId = purchase.getPurchasedProduct().getProductId();
+        this.quantity = purchase.getQuantity();
+    }
+
+    public Long getPurchaseId() {
+        return purchaseId;
+    }
+
+    public UUID getProductId() {
+        return productId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", StockReservedEvent.class.getSimpleName() + "[", "]")
+                .add("purchaseId=" + purchaseId)
+                .add("productId=" + productId)
+                .add("quantity=" + quantity)
+                .toString();
+    }
+}
@@ -0,0 +1,99 @@
+package br.com.zup.edu.nossalojavirtual.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Remembers the tokens that have already been verified, so a client sending the same token again
+ * skips the signature verification until the token expires.
+ *
+ * Tokens are kept by their SHA-256, never as they are, and tokens without an expiration are not kept.
+ * At most {@code maxSize} tokens are kept, the ones that do not fit are verified on every request
+ * until the expired tokens are evicted, every {@code security.jwt.cache.eviction-interval}.
+ */
+class CachingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final int maxSize;
+    private final Clock clock;
+    private final ConcurrentMap<String, Jwt> verified = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    CachingJwtDecoder(JwtDecoder delegate, MeterRegistry meterRegistry, int maxSize, Clock clock) {
+        this.delegate = delegate;
+        this.maxSize = maxSize;
+        this.clock = clock;
+        this.hits = Counter.builder("security.jwt.cache")
+                           .tag("result", "hit")
+                           .register(meterRegistry);
+        this.misses = Counter.builder("security.jwt.cache")
+                             .tag("result", "miss")
+                             .register(meterRegistry);
+
+        Gauge.builder("security.jwt.cache.size", verified, ConcurrentMap::size)
+             .register(meterRegistry);
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String key = hash(token);
+        Instant now = clock.instant();
+
+        Jwt cached = verified.get(key);
+        if (cached != null) {
+            if (cached.getExpiresAt().isAfter(now)) {
+                hits.increment();
+                return cached;
+            }
+
+            verified.remove(key, cached);
+        }
+
+        misses.increment();
+        Jwt jwt = delegate.decode(token);
+
+        if (jwt.getExpiresAt() != null && jwt.getExpiresAt().isAfter(now) && verified.size() < maxSize) {
+            verified.put(key, jwt);
+        }
+
+        return jwt;
+    }
+
+    @Scheduled(fixedDelayString = "${security.jwt.cache.eviction-interval:PT1M}")
+    void evictExpired() {
+        Instant now = clock.instant();
+        verified.values().removeIf(jwt -> !jwt.getExpiresAt().isAfter(now));
+    }
+
+    /**
+     * forgets every token, the keys they were verified with may be gone
+     */
+    void clear() {
+        verified.clear();
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package br.com.zup.edu.nossalojavirtual.security;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import java.time.Clock;
+
+/**
+ * Tokens are verified against the {@link LocalJwks} and the verified ones are cached by {@link CachingJwtDecoder},
+ * up to {@code security.jwt.cache.max-size} of them. The cache is cleared whenever the keys change
+ */
+@Configuration
+class JwtDecoderConfig {
+
+    @Bean
+    CachingJwtDecoder jwtDecoder(LocalJwks localJwks,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${security.jwt.cache.max-size:10000}") int maxSize) {
+        var jwtProcessor = new DefaultJWTProcessor<SecurityContext>();
+        jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, localJwks));
+        // the claims are validated by the spring security validators instead
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> { });
+
+        var nimbusJwtDecoder = new NimbusJwtDecoder(jwtProcessor);
+        nimbusJwtDecoder.setJwtValidator(JwtValidators.createDefault());
+
+        var jwtDecoder = new CachingJwtDecoder(nimbusJwtDecoder, meterRegistry, maxSize, Clock.systemUTC());
+        localJwks.onChange(jwtDecoder::clear);
+
+        return jwtDecoder;
+    }
+}
@@ -0,0 +1,157 @@
+package br.com.zup.edu.nossalojavirtual.security;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * The keys the tokens are verified with, kept in memory.
+ *
+ * They are read from {@code security.jwt.jwk-set-file} when it is set, for offline and test setups,
+ * otherwise from {@code spring.security.oauth2.resourceserver.jwt.jwk-set-uri}. They are loaded once at startup and
+ * refreshed in the background every {@code security.jwt.jwk-set-refresh-interval}, a refresh that fails keeps the keys in use.
+ * While the keys were never loaded, requests try to load them at most once every {@code security.jwt.jwk-set-retry-interval}
+ * and fail fast in between, so an identity provider that is down is not called by every request.
+ * A token signed with a key that is not in the set, as happens right after the identity provider rotates its keys,
+ * loads the keys from {@code jwk-set-uri} again under the same limit.
+ */
+@Component
+class LocalJwks implements JWKSource<SecurityContext>, DisposableBean {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 2_000;
+    private static final int READ_TIMEOUT_MILLIS = 2_000;
+    private static final int SIZE_LIMIT_BYTES = 512 * 1024;
+
+    private final String jwkSetUri;
+    private final Resource jwkSetFile;
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService refresher;
+    private final long retryIntervalNanos;
+    private final AtomicLong nextRetry;
+
+    private volatile JWKSet jwkSet;
+
+    private Logger logger = LoggerFactory.getLogger(LocalJwks.class);
+
+    LocalJwks(ResourceLoader resourceLoader,
+              @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri,
+              @Value("${security.jwt.jwk-set-file:}") String jwkSetFile,
+              @Value("${security.jwt.jwk-set-refresh-interval:PT5M}") Duration refreshInterval,
+              @Value("${security.jwt.jwk-set-retry-interval:PT10S}") Duration retryInterval) {
+        this.jwkSetUri = jwkSetUri;
+        this.jwkSetFile = jwkSetFile.isBlank() ? null : resourceLoader.getResource(jwkSetFile);
+        this.retryIntervalNanos = retryInterval.toNanos();
+
+        refresh();
+        this.nextRetry = new AtomicLong(System.nanoTime() + retryIntervalNanos);
+
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jwks-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refresh, refreshInterval.toMillis(), refreshInterval.toMillis(), MILLISECONDS);
+    }
+
+    /**
+     * @param listener called after a refresh that changed the keys
+     */
+    void onChange(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) throws KeySourceException {
+        JWKSet keys = jwkSet;
+        if (keys == null && claimRetry()) {
+            // the identity provider was down at startup and since then
+            keys = refresh();
+        }
+
+        if (keys == null) {
+            throw new KeySourceException("The JWK set of " + source() + " could not be loaded");
+        }
+
+        List<JWK> selected = jwkSelector.select(keys);
+        if (selected.isEmpty() && jwkSetFile == null && claimRetry()) {
+            // the token may be signed with a key rotated in after the last refresh
+            selected = jwkSelector.select(refresh());
+        }
+
+        return selected;
+    }
+
+    @Override
+    public void destroy() {
+        refresher.shutdown();
+    }
+
+    /**
+     * @return the keys in use after the refresh, null if they were never loaded
+     */
+    synchronized JWKSet refresh() {
+        JWKSet previous = jwkSet;
+
+        try {
+            JWKSet loaded = load();
+            jwkSet = loaded;
+
+            if (previous != null && !previous.toString().equals(loaded.toString())) {
+                logger.info("The JWK set of {} has changed, it has {} keys", source(), loaded.getKeys().size());
+                changeListeners.forEach(Runnable::run);
+            }
+        } catch (IOException | ParseException e) {
+            logger.error("The JWK set of {} could not be loaded, the keys in use are kept", source(), e);
+        }
+
+        return jwkSet;
+    }
+
+    /**
+     * @return true for the one request that may load the keys now, the others go on with the keys in use until the next retry
+     */
+    private boolean claimRetry() {
+        long now = System.nanoTime();
+        long next = nextRetry.get();
+
+        return now - next >= 0 && nextRetry.compareAndSet(next, now + retryIntervalNanos);
+    }
+
+    private JWKSet load() throws IOException, ParseException {
+        if (jwkSetFile == null) {
+            return JWKSet.load(new URL(jwkSetUri), CONNECT_TIMEOUT_MILLIS, READ_TIMEOUT_MILLIS, SIZE_LIMIT_BYTES);
+        }
+
+        try (InputStream content = jwkSetFile.getInputStream()) {
+            return JWKSet.parse(new String(content.readAllBytes(), UTF_8));
+        }
+    }
+
+    private String source() {
+        return jwkSetFile == null ? jwkSetUri : jwkSetFile.getDescription();
+    }
+}
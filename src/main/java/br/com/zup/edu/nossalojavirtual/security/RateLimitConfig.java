@@ -0,0 +1,35 @@
+package br.com.zup.edu.nossalojavirtual.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * The write endpoints bots abuse the most, each one with its own limit, see {@link RateLimiter}.
+ * Turned off by {@code rate-limit.enabled=false}
+ */
+@Configuration
+@ConditionalOnProperty(name = "rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+class RateLimitConfig implements WebMvcConfigurer {
+
+    private final RateLimiter rateLimiter;
+    private final MeterRegistry meterRegistry;
+
+    RateLimitConfig(RateLimiter rateLimiter, MeterRegistry meterRegistry) {
+        this.rateLimiter = rateLimiter;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new RateLimitInterceptor(rateLimiter, meterRegistry, "opinions", HttpMethod.POST))
+                .addPathPatterns("/api/opinions");
+        registry.addInterceptor(new RateLimitInterceptor(rateLimiter, meterRegistry, "questions", HttpMethod.POST))
+                .addPathPatterns("/api/products/*/questions");
+        registry.addInterceptor(new RateLimitInterceptor(rateLimiter, meterRegistry, "purchase", HttpMethod.POST))
+                .addPathPatterns("/api/purchase", "/api/purchase/checkout");
+    }
+}
@@ -0,0 +1,75 @@
+package br.com.zup.edu.nossalojavirtual.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.Duration;
+
+/**
+ * Limits the requests of each user to an endpoint, the user is the email claim of the token.
+ * A rejected request never reaches the controller, it gets a 429 with the seconds to wait in Retry-After
+ */
+class RateLimitInterceptor implements HandlerInterceptor {
+
+    private final RateLimiter rateLimiter;
+    private final String endpoint;
+    private final HttpMethod method;
+    private final Counter rejected;
+
+    private Logger logger = LoggerFactory.getLogger(RateLimitInterceptor.class);
+
+    RateLimitInterceptor(RateLimiter rateLimiter, MeterRegistry meterRegistry, String endpoint, HttpMethod method) {
+        this.rateLimiter = rateLimiter;
+        this.endpoint = endpoint;
+        this.method = method;
+        this.rejected = Counter.builder("rate-limit.rejected")
+                               .tag("endpoint", endpoint)
+                               .register(meterRegistry);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!method.matches(request.getMethod())) {
+            return true;
+        }
+
+        // requests without an email are left to the security rules
+        String user = emailOf(SecurityContextHolder.getContext().getAuthentication());
+        if (user == null) {
+            return true;
+        }
+
+        Duration wait = rateLimiter.tryAcquire(endpoint, user);
+        if (wait.isZero()) {
+            return true;
+        }
+
+        rejected.increment();
+        logger.warn("{} has been rate limited on {} for {}", user, endpoint, wait);
+
+        long retryAfter = Math.max(1, (wait.toMillis() + 999) / 1000);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+
+        return false;
+    }
+
+    private static String emailOf(Authentication authentication) {
+        if (authentication instanceof JwtAuthenticationToken token) {
+            return token.getToken().getClaimAsString("email");
+        }
+
+        return null;
+    }
+}
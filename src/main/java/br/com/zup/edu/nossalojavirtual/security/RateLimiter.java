@@ -0,0 +1,124 @@
+package br.com.zup.edu.nossalojavirtual.security;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.util.Assert.isTrue;
+
+/**
+ * Token buckets per user and endpoint, kept in memory.
+ *
+ * An endpoint allows {@code rate-limit.endpoints.<endpoint>.capacity} requests in a burst, refilled in
+ * {@code rate-limit.endpoints.<endpoint>.refill-period}, {@code rate-limit.capacity} and {@code rate-limit.refill-period} by default.
+ * A full bucket is the same as a missing one, so the buckets left full by idle users are evicted
+ * every {@code rate-limit.eviction-interval} and memory only grows with the users that are actually sending requests.
+ */
+@Component
+public class RateLimiter {
+
+    private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Limit> limits = new ConcurrentHashMap<>();
+    private final Environment environment;
+    private final int capacity;
+    private final Duration refillPeriod;
+
+    RateLimiter(MeterRegistry meterRegistry,
+                Environment environment,
+                @Value("${rate-limit.capacity:30}") int capacity,
+                @Value("${rate-limit.refill-period:PT1M}") Duration refillPeriod) {
+        this.environment = environment;
+        this.capacity = capacity;
+        this.refillPeriod = refillPeriod;
+
+        Gauge.builder("rate-limit.buckets", buckets, ConcurrentMap::size)
+             .description("users with a bucket that is not full")
+             .register(meterRegistry);
+    }
+
+    /**
+     * takes a token from the bucket of the user for the endpoint
+     *
+     * @return zero if the request is allowed, otherwise how long the user must wait for a token
+     */
+    public Duration tryAcquire(String endpoint, String user) {
+        Limit limit = limits.computeIfAbsent(endpoint, this::limitOf);
+        long now = System.nanoTime();
+
+        return buckets.computeIfAbsent(endpoint + ' ' + user, key -> new Bucket(now))
+                      .tryAcquire(limit, now);
+    }
+
+    /**
+     * removes the buckets that have refilled, a request that races with the eviction may get one token for free
+     */
+    @Scheduled(fixedDelayString = "${rate-limit.eviction-interval:PT1M}")
+    void evictIdleBuckets() {
+        long now = System.nanoTime();
+        buckets.entrySet().removeIf(entry -> entry.getValue().isFull(now));
+    }
+
+    private Limit limitOf(String endpoint) {
+        int endpointCapacity = environment.getProperty("rate-limit.endpoints." + endpoint + ".capacity", Integer.class, capacity);
+        Duration endpointRefillPeriod = environment.getProperty("rate-limit.endpoints." + endpoint + ".refill-period", Duration.class, refillPeriod);
+
+        isTrue(endpointCapacity > 0, "rate-limit capacity of " + endpoint + " must be greater than 0");
+        isTrue(!endpointRefillPeriod.isNegative() && !endpointRefillPeriod.isZero(), "rate-limit refill-period of " + endpoint + " must be positive");
+
+        return new Limit(endpointCapacity, endpointRefillPeriod.toNanos() / endpointCapacity);
+    }
+
+    private static class Limit {
+
+        private final long nanosPerToken;
+        private final long burstNanos;
+
+        Limit(int capacity, long nanosPerToken) {
+            this.nanosPerToken = Math.max(1, nanosPerToken);
+            this.burstNanos = this.nanosPerToken * capacity;
+        }
+    }
+
+    /**
+     * The bucket is the instant it will be full again: every token taken moves it one refill interval ahead,
+     * and a token can be taken while it is at most a whole bucket ahead of now.
+     * A single compare and set takes the token, no lock is held
+     */
+    private static class Bucket {
+
+        // nano times are only compared by their difference, they may overflow
+        private final AtomicLong fullAt;
+
+        Bucket(long now) {
+            this.fullAt = new AtomicLong(now);
+        }
+
+        Duration tryAcquire(Limit limit, long now) {
+            while (true) {
+                long current = fullAt.get();
+                long next = (current - now > 0 ? current : now) + limit.nanosPerToken;
+                long wait = next - now - limit.burstNanos;
+
+                if (wait > 0) {
+                    return Duration.ofNanos(wait);
+                }
+
+                if (fullAt.compareAndSet(current, next)) {
+                    return Duration.ZERO;
+                }
+            }
+        }
+
+        boolean isFull(long now) {
+            return fullAt.get() - now <= 0;
+        }
+    }
+}
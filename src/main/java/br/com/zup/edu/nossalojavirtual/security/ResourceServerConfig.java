@@ -6,11 +6,18 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
 
 @Configuration
 @EnableGlobalMethodSecurity(prePostEnabled = true)
 public class ResourceServerConfig extends WebSecurityConfigurerAdapter {
 
+    private final JwtDecoder jwtDecoder;
+
+    ResourceServerConfig(JwtDecoder jwtDecoder) {
+        this.jwtDecoder = jwtDecoder;
+    }
+
     @Override
     protected void configure(HttpSecurity http) throws Exception {
         http.cors()
@@ -27,14 +34,19 @@ public class ResourceServerConfig extends WebSecurityConfigurerAdapter {
                 .and()
                     .authorizeRequests()
                         .antMatchers(HttpMethod.POST, "/api/purchase").hasAuthority("SCOPE_lojavirtual:write")
+                        .antMatchers(HttpMethod.POST, "/api/purchase/checkout").hasAuthority("SCOPE_lojavirtual:write")
                         .antMatchers(HttpMethod.POST, "/api/purchases/confirm-payment").hasAuthority("SCOPE_lojavirtual:write")
                         .antMatchers(HttpMethod.POST, "/api/categories").hasAuthority("SCOPE_lojavirtual:write")
                         .antMatchers(HttpMethod.POST, "/api/products").hasAuthority("SCOPE_lojavirtual:write")
                         .antMatchers(HttpMethod.POST, "/api/products/{\\d+}/questions").hasAuthority("SCOPE_lojavirtual:write")
                         .antMatchers(HttpMethod.GET, "/api/products/{\\d+}").permitAll()
+                        .antMatchers(HttpMethod.GET, "/api/products/{\\d+}/questions").permitAll()
                         .antMatchers(HttpMethod.POST, "/api/opinions").hasAuthority("SCOPE_lojavirtual:write")
+                        .antMatchers(HttpMethod.POST, "/api/opinions/import").hasAuthority("SCOPE_lojavirtual:admin")
                         .antMatchers(HttpMethod.POST, "/invoice/register").permitAll()
+                        .antMatchers(HttpMethod.POST, "/invoice/register/batch").permitAll()
                         .antMatchers(HttpMethod.POST, "/sellerRanking/newPurchase").permitAll()
+                        .antMatchers(HttpMethod.POST, "/sellerRanking/deltas").permitAll()
                         .antMatchers(HttpMethod.POST, "/api/users").permitAll()
                         .antMatchers(HttpMethod.GET, "/actuator").permitAll()
                         .antMatchers(HttpMethod.GET, "/actuator/**").permitAll()
@@ -42,7 +54,7 @@ public class ResourceServerConfig extends WebSecurityConfigurerAdapter {
                         .authenticated()
                 .and()
                     .oauth2ResourceServer()
-                        .jwt( jwt -> jwt.jwkSetUri("http://localhost:18080/realms/loja-virtual/protocol/openid-connect/certs"));
+                        .jwt(jwt -> jwt.decoder(jwtDecoder));
     }
 
 }
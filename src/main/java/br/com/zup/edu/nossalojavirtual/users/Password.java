@@ -10,14 +10,26 @@ public class Password {
 
     private final String password;
 
-    private Password(@NotNull String rawPassword) {
-        requireNonNull(rawPassword, "password must not be null");
-
-        this.password = new BCryptPasswordEncoder().encode(rawPassword);
+    private Password(@NotNull String hash) {
+        this.password = hash;
     }
 
+    /**
+     * hashes on the calling thread, signups hash on the {@link PasswordHasher} instead
+     */
     public static Password encode(@NotNull String rawString) {
-        return new Password(rawString);
+        requireNonNull(rawString, "password must not be null");
+
+        return new Password(new BCryptPasswordEncoder().encode(rawString));
+    }
+
+    /**
+     * @param hash a password already hashed by BCrypt
+     */
+    static Password hashed(@NotNull String hash) {
+        requireNonNull(hash, "hash must not be null");
+
+        return new Password(hash);
     }
 
     public String get() {
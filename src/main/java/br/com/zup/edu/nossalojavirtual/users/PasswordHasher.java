@@ -0,0 +1,82 @@
+package br.com.zup.edu.nossalojavirtual.users;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Hashes passwords with BCrypt away from the request threads.
+ *
+ * Hashing is CPU bound, so it runs on {@code users.password.hashing.threads} threads, one per core by default,
+ * and at most {@code users.password.hashing.queue-capacity} passwords wait for them.
+ * When the queue is full the password is rejected right away instead of piling up behind the others.
+ */
+@Component
+class PasswordHasher implements DisposableBean {
+
+    private final BCryptPasswordEncoder encoder;
+    private final ThreadPoolExecutor executor;
+    private final Timer hashDuration;
+    private final Counter rejected;
+
+    PasswordHasher(MeterRegistry meterRegistry,
+                   @Value("${users.password.bcrypt-strength:10}") int strength,
+                   @Value("${users.password.hashing.threads:0}") int threads,
+                   @Value("${users.password.hashing.queue-capacity:64}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+
+        this.encoder = new BCryptPasswordEncoder(strength);
+
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, SECONDS, new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "password-hashing-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+
+        this.hashDuration = Timer.builder("users.password.hash.duration")
+                                 .description("time spent hashing a password, without the time waiting in the queue")
+                                 .tag("strength", String.valueOf(strength))
+                                 .register(meterRegistry);
+        this.rejected = Counter.builder("users.password.hash.rejected")
+                               .description("passwords rejected because the hashing queue was full")
+                               .register(meterRegistry);
+
+        Gauge.builder("users.password.hash.queued", executor, pool -> pool.getQueue().size())
+             .register(meterRegistry);
+    }
+
+    /**
+     * @return the hashed password, completed on a hashing thread
+     * @throws RejectedExecutionException if the hashing queue is full
+     */
+    CompletableFuture<Password> encode(String rawPassword) {
+        requireNonNull(rawPassword, "password must not be null");
+
+        try {
+            return CompletableFuture.supplyAsync(() -> Password.hashed(hashDuration.record(() -> encoder.encode(rawPassword))), executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
@@ -3,38 +3,66 @@ package br.com.zup.edu.nossalojavirtual.users;
 import br.com.zup.edu.nossalojavirtual.products.shared.validators.UniqueFieldValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
 import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.springframework.http.ResponseEntity.created;
+import static org.springframework.http.ResponseEntity.status;
 
 @RestController
 @RequestMapping("/api/users")
 class UserController {
 
     private final UserRepository userRepository;
+    private final PasswordHasher passwordHasher;
+    private final Executor taskExecutor;
 
     private Logger logger = LoggerFactory.getLogger(UserController.class);
 
-    UserController(UserRepository userRepository) {
+    UserController(UserRepository userRepository,
+                   PasswordHasher passwordHasher,
+                   @Qualifier("applicationTaskExecutor") Executor taskExecutor) {
         this.userRepository = userRepository;
+        this.passwordHasher = passwordHasher;
+        this.taskExecutor = taskExecutor;
     }
 
+    /**
+     * The request thread is released while the password is hashed. The user is saved on the application task executor,
+     * so the hashing threads never wait for the database.
+     * A signup that finds the hashing queue full is answered with 503 and Retry-After
+     */
     @PostMapping
-    ResponseEntity<?> createUser(@RequestBody @Valid NewUserRequest newUser) {
-        Password password = Password.encode(newUser.getPassword());
-        var user = new User(newUser.getLogin(), password);
+    CompletableFuture<ResponseEntity<?>> createUser(@RequestBody @Valid NewUserRequest newUser) {
+        CompletableFuture<Password> password;
+        try {
+            password = passwordHasher.encode(newUser.getPassword());
+        } catch (RejectedExecutionException e) {
+            logger.warn("Password hashing is saturated, the signup of {} has been rejected", newUser.getLogin());
+            return completedFuture(status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build());
+        }
 
-        userRepository.save(user);
+        return password.thenApplyAsync(hashedPassword -> {
+            var user = new User(newUser.getLogin(), hashedPassword);
 
-        logger.info("New user has been created! {}", user.toString());
+            userRepository.save(user);
 
-        URI location = URI.create("/api/users/" + user.getId());
-        return created(location).build();
+            logger.info("New user has been created! {}", user.toString());
+
+            URI location = URI.create("/api/users/" + user.getId());
+            return created(location).build();
+        }, taskExecutor);
     }
 
     @InitBinder(value = { "newUserRequest" })
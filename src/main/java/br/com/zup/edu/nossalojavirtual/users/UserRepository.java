@@ -2,6 +2,7 @@ package br.com.zup.edu.nossalojavirtual.users;
 
 import org.springframework.data.repository.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,6 +14,8 @@ public interface UserRepository extends Repository<User, Long> {
 
     Optional<User> findByEmail(String email);
 
+    List<User> findAllByEmailIn(Collection<String> emails);
+
     Optional<User> findById(Long id);
 
     void deleteAll();
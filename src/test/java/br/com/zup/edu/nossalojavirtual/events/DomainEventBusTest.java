@@ -0,0 +1,157 @@
+package br.com.zup.edu.nossalojavirtual.events;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DomainEventBusTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MockEnvironment environment = new MockEnvironment();
+    private DomainEventBus eventBus;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        eventBus.destroy();
+    }
+
+    @Test
+    @DisplayName("Should deliver the subscribed events in the order they were published")
+    void test1() throws Exception {
+        eventBus = new DomainEventBus(meterRegistry, environment, 1024, true, WaitStrategy.BLOCKING, 16);
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        eventBus.subscribe("numbers", NumberEvent.class, events -> events.forEach(event -> received.add(event.number)));
+
+        for (int i = 0; i < 100; i++) {
+            eventBus.publish(new NumberEvent(i));
+            eventBus.publish(new TextEvent("ignored"));
+        }
+
+        await(() -> received.size() == 100);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, received.get(i));
+        }
+    }
+
+    @Test
+    @DisplayName("Should deliver an event published in a transaction to after commit subscriptions only if it commits")
+    void test2() throws Exception {
+        eventBus = new DomainEventBus(meterRegistry, environment, 1024, true, WaitStrategy.SLEEPING, 16);
+        environment.setProperty("events.bus.consumers.immediate.after-commit", "false");
+
+        List<Integer> committed = new CopyOnWriteArrayList<>();
+        List<Integer> immediate = new CopyOnWriteArrayList<>();
+        eventBus.subscribe("committed", NumberEvent.class, events -> events.forEach(event -> committed.add(event.number)));
+        eventBus.subscribe("immediate", NumberEvent.class, events -> events.forEach(event -> immediate.add(event.number)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        eventBus.publish(new NumberEvent(1));
+
+        await(() -> immediate.size() == 1);
+        Thread.sleep(50);
+        assertTrue(committed.isEmpty());
+
+        TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+        TransactionSynchronizationManager.clearSynchronization();
+
+        await(() -> committed.size() == 1);
+        assertEquals(List.of(1), immediate);
+    }
+
+    @Test
+    @DisplayName("Should keep delivering after a listener fails and wait for slow subscriptions when the ring is full")
+    void test3() throws Exception {
+        eventBus = new DomainEventBus(meterRegistry, environment, 4, true, WaitStrategy.YIELDING, 2);
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        eventBus.subscribe("failing", NumberEvent.class, events -> {
+            events.forEach(event -> received.add(event.number));
+            if (events.stream().anyMatch(event -> event.number == 3)) {
+                throw new IllegalStateException("listener failed");
+            }
+        });
+
+        for (int i = 0; i < 50; i++) {
+            eventBus.publish(new NumberEvent(i));
+        }
+
+        await(() -> received.size() == 50);
+        assertEquals(49, received.get(49));
+        assertTrue(meterRegistry.get("events.bus.failures").tag("consumer", "failing").counter().count() > 0);
+        await(() -> meterRegistry.get("events.bus.lag").tag("consumer", "failing").gauge().value() == 0);
+    }
+
+    @Test
+    @DisplayName("Should throw Illegal Argument Exception in case of ring size is not a power of two")
+    void test4() {
+        IllegalArgumentException illegalArgumentException = assertThrows(
+                IllegalArgumentException.class,
+                () -> new DomainEventBus(meterRegistry, environment, 1000, true, WaitStrategy.BLOCKING, 16)
+        );
+
+        assertEquals("events.bus.ring-size must be a power of two", illegalArgumentException.getMessage());
+        eventBus = new DomainEventBus(meterRegistry, environment, 2, true, WaitStrategy.BLOCKING, 16);
+    }
+
+    @Test
+    @DisplayName("Should not keep the events in the ring once every subscription has read them")
+    void test5() throws Exception {
+        eventBus = new DomainEventBus(meterRegistry, environment, 1024, true, WaitStrategy.BLOCKING, 16);
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        eventBus.subscribe("numbers", NumberEvent.class, events -> events.forEach(event -> received.add(event.number)));
+
+        NumberEvent event = new NumberEvent(1);
+        WeakReference<NumberEvent> published = new WeakReference<>(event);
+        eventBus.publish(event);
+        event = null;
+
+        await(() -> received.size() == 1);
+        await(() -> {
+            System.gc();
+            return published.get() == null;
+        });
+    }
+
+    private static void await(Condition condition) throws InterruptedException {
+        for (int i = 0; i < 100 && !condition.isMet(); i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(condition.isMet());
+    }
+
+    @FunctionalInterface
+    private interface Condition {
+
+        boolean isMet();
+    }
+
+    private static class NumberEvent implements DomainEvent {
+
+        private final int number;
+
+        NumberEvent(int number) {
+            this.number = number;
+        }
+    }
+
+    private static class TextEvent implements DomainEvent {
+
+        private final String text;
+
+        TextEvent(String text) {
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package br.com.zup.edu.nossalojavirtual.events;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DomainEventJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private DomainEventBus eventBus;
+    private DomainEventJournal journal;
+
+    @BeforeEach
+    void setUp() {
+        eventBus = new DomainEventBus(new SimpleMeterRegistry(), new MockEnvironment(), 1024, true, WaitStrategy.BLOCKING, 16);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        journal.destroy();
+        eventBus.destroy();
+    }
+
+    @Test
+    @DisplayName("Should journal the published events and let a reader tail them")
+    void test1() throws Exception {
+        journal = new DomainEventJournal(eventBus, objectMapper, directory, 1024 * 1024, Duration.ofMillis(10), Duration.ofDays(30), Duration.ofMinutes(10));
+        DomainEventJournal.JournalReader reader = journal.tail(0);
+
+        eventBus.publish(new NumberEvent(1));
+        eventBus.publish(new NumberEvent(2));
+
+        List<JournalEntry> entries = poll(reader, 2);
+        assertEquals(0, entries.get(0).getSequence());
+        assertEquals(NumberEvent.class.getName(), entries.get(0).getType());
+        assertEquals("{\"number\":1}", entries.get(0).getPayload());
+        assertEquals(1, entries.get(1).getSequence());
+        assertEquals(2, reader.position());
+
+        assertTrue(reader.poll(10).isEmpty());
+
+        eventBus.publish(new NumberEvent(3));
+        assertEquals("{\"number\":3}", poll(reader, 1).get(0).getPayload());
+    }
+
+    @Test
+    @DisplayName("Should roll segments and resume the sequence and the readers after a restart")
+    void test2() throws Exception {
+        journal = new DomainEventJournal(eventBus, objectMapper, directory, 512, Duration.ofMillis(10), Duration.ofDays(30), Duration.ofMinutes(10));
+        journal.append(numbers(0, 20));
+        assertTrue(segmentFiles().size() > 1);
+
+        DomainEventJournal.JournalReader reader = journal.tail(5);
+        List<JournalEntry> entries = reader.poll(100);
+        assertEquals(15, entries.size());
+        assertEquals(5, entries.get(0).getSequence());
+        assertEquals(19, entries.get(14).getSequence());
+        long position = reader.position();
+        reader.close();
+
+        journal.destroy();
+        journal = new DomainEventJournal(eventBus, objectMapper, directory, 512, Duration.ofMillis(10), Duration.ofDays(30), Duration.ofMinutes(10));
+        journal.append(numbers(20, 3));
+
+        entries = journal.tail(position).poll(100);
+        assertEquals(3, entries.size());
+        assertEquals(20, entries.get(0).getSequence());
+        assertEquals("{\"number\":22}", entries.get(2).getPayload());
+
+        assertEquals(23, journal.tail(0).poll(100).size());
+    }
+
+    @Test
+    @DisplayName("Should compact the expired segments that no open reader needs")
+    void test3() throws Exception {
+        journal = new DomainEventJournal(eventBus, objectMapper, directory, 512, Duration.ofMillis(10), Duration.ZERO, Duration.ofMinutes(10));
+        journal.append(numbers(0, 20));
+        int segments = segmentFiles().size();
+
+        DomainEventJournal.JournalReader reader = journal.tail(0);
+        Thread.sleep(20);
+        journal.compact();
+        assertEquals(segments, segmentFiles().size());
+
+        assertEquals(20, reader.poll(100).size());
+        journal.compact();
+        assertEquals(1, segmentFiles().size());
+
+        reader.close();
+        journal.append(numbers(20, 1));
+
+        List<JournalEntry> entries = journal.tail(0).poll(100);
+        assertTrue(entries.get(0).getSequence() > 0);
+        assertEquals(20, entries.get(entries.size() - 1).getSequence());
+    }
+
+    @Test
+    @DisplayName("Should not wait for a reader that is no longer polled when compacting")
+    void test4() throws Exception {
+        journal = new DomainEventJournal(eventBus, objectMapper, directory, 512, Duration.ofMillis(10), Duration.ZERO, Duration.ofMillis(50));
+        journal.append(numbers(0, 20));
+
+        DomainEventJournal.JournalReader abandoned = journal.tail(0);
+        assertEquals(5, abandoned.poll(5).size());
+
+        Thread.sleep(100);
+        journal.compact();
+        assertEquals(1, segmentFiles().size());
+
+        List<JournalEntry> entries = abandoned.poll(100);
+        assertEquals(19, entries.get(entries.size() - 1).getSequence());
+    }
+
+    private List<JournalEntry> poll(DomainEventJournal.JournalReader reader, int expected) throws InterruptedException {
+        List<JournalEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 100 && entries.size() < expected; i++) {
+            entries.addAll(reader.poll(expected - entries.size()));
+            Thread.sleep(20);
+        }
+
+        assertEquals(expected, entries.size());
+        return entries;
+    }
+
+    private static List<DomainEvent> numbers(int from, int count) {
+        return IntStream.range(from, from + count).<DomainEvent>mapToObj(NumberEvent::new).toList();
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.toList();
+        }
+    }
+
+    private static class NumberEvent implements DomainEvent {
+
+        private final int number;
+
+        NumberEvent(int number) {
+            this.number = number;
+        }
+
+        public int getNumber() {
+            return number;
+        }
+    }
+}
@@ -102,6 +102,7 @@ class ProductDetailsControllerTest {
 
         opinion = new ProductOpinion(5, "Muito bonito", "Gostei muito", product, user);
         opinionRepository.save(opinion);
+        productRepository.addRatings(product.getId(), 1, opinion.getRating());
 
         Question question = new Question("Como funciona se colocar na tomada?", user, product);
         questionRepository.save(question);
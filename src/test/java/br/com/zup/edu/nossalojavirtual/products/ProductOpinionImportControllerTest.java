@@ -0,0 +1,167 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import br.com.zup.edu.nossalojavirtual.categories.Category;
+import br.com.zup.edu.nossalojavirtual.categories.CategoryRepository;
+import br.com.zup.edu.nossalojavirtual.users.Password;
+import br.com.zup.edu.nossalojavirtual.users.User;
+import br.com.zup.edu.nossalojavirtual.users.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+
+@SpringBootTest(properties = "products.opinions.import.batch-size=2")
+@AutoConfigureMockMvc(printOnlyOnFailure = false)
+@ActiveProfiles("test")
+class ProductOpinionImportControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper mapper;
+
+    @Autowired
+    ProductOpinionRepository opinionRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    CategoryRepository categoryRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    private final String apiUrl = "/api/opinions/import";
+    private User user;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        this.clearDB();
+
+        user = new User("henrique.desousa@zup.com.br", Password.encode("123456"));
+        userRepository.save(user);
+
+        Category category = new Category("Eletrônicos");
+        categoryRepository.save(category);
+
+        List<Photo> photos = List.of(new Photo("https://cf.shopee.com.br/file/be1b6889f9b5fdea9588a355d97427c9/uploadedLink1"));
+        Characteristic c1 = new Characteristic("Portátil", "Cabe no seu bolso");
+        Characteristic c2 = new Characteristic("Resistente", "Dura anos");
+        Characteristic c3 = new Characteristic("Azul", "Azul marinho");
+
+        PreProduct preProduct = new PreProduct(user, category, "Tijorola", new BigDecimal("150.00"), 5, "Muito bom");
+        product = productRepository.save(new Product(preProduct, photos, Set.of(c1, c2, c3)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.clearDB();
+    }
+
+    @Test
+    @DisplayName("Should import the valid opinions in batches and reject the invalid ones")
+    void test1() throws Exception {
+        String lines = String.join("\n",
+                line(5, product.getId(), user.getUsername()),
+                line(3, product.getId(), user.getUsername()),
+                line(5, UUID.randomUUID(), user.getUsername()),
+                line(7, product.getId(), user.getUsername()),
+                line(4, product.getId(), "nao.cadastrado@zup.com.br"),
+                line(4, product.getId(), user.getUsername()));
+
+        Map response = importOpinions(lines, MockMvcResultMatchers.status().isOk());
+
+        assertEquals(3, response.get("imported"));
+        assertEquals(3, response.get("rejected"));
+        assertEquals(true, response.get("complete"));
+
+        List<String> rejections = (List<String>) response.get("rejections");
+        assertEquals(3, rejections.size());
+        assertTrue(rejections.stream().anyMatch(rejection -> rejection.startsWith("line 3: product")));
+        assertTrue(rejections.stream().anyMatch(rejection -> rejection.startsWith("line 4: rating")));
+        assertTrue(rejections.stream().anyMatch(rejection -> rejection.startsWith("line 5: user")));
+
+        assertEquals(3, opinionRepository.findAll().size());
+        assertEquals(BigDecimal.valueOf(4.0), productRepository.findById(product.getId()).get().rating());
+    }
+
+    @Test
+    @DisplayName("Should stop the import at a malformed line and keep what was imported before it")
+    void test2() throws Exception {
+        String lines = String.join("\n",
+                line(5, product.getId(), user.getUsername()),
+                "{\"rating\": 4, \"title\": ");
+
+        Map response = importOpinions(lines, MockMvcResultMatchers.status().isBadRequest());
+
+        assertEquals(1, response.get("imported"));
+        assertEquals(false, response.get("complete"));
+        assertEquals(1, opinionRepository.findAll().size());
+    }
+
+    @Test
+    @DisplayName("Should not import opinions without the admin scope")
+    void test3() throws Exception {
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(apiUrl)
+                .with(jwt().authorities(new SimpleGrantedAuthority("SCOPE_lojavirtual:write")))
+                .content(line(5, product.getId(), user.getUsername()))
+                .contentType(ProductOpinionImportController.NDJSON);
+
+        mockMvc.perform(request)
+               .andExpect(MockMvcResultMatchers.status().isForbidden());
+
+        assertTrue(opinionRepository.findAll().isEmpty());
+    }
+
+    private String line(int rating, UUID productId, String username) throws Exception {
+        return mapper.writeValueAsString(new OpinionImportLine(rating, "Recomendo!", "Comprei e gostei bastante", productId, username));
+    }
+
+    private Map importOpinions(String lines, ResultMatcher status) throws Exception {
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(apiUrl)
+                .with(jwt()
+                        .jwt(jwt -> jwt.claim("email", user.getUsername()))
+                        .authorities(new SimpleGrantedAuthority("SCOPE_lojavirtual:admin")))
+                .content(lines)
+                .contentType(ProductOpinionImportController.NDJSON);
+
+        String responsePayload = mockMvc.perform(request)
+                .andExpect(status)
+                .andReturn()
+                .getResponse()
+                .getContentAsString(StandardCharsets.UTF_8);
+
+        return mapper.readValue(responsePayload, Map.class);
+    }
+
+    private void clearDB() {
+        opinionRepository.deleteAll();
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+}
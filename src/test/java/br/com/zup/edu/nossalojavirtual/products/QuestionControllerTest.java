@@ -2,6 +2,7 @@ package br.com.zup.edu.nossalojavirtual.products;
 
 import br.com.zup.edu.nossalojavirtual.categories.Category;
 import br.com.zup.edu.nossalojavirtual.categories.CategoryRepository;
+import br.com.zup.edu.nossalojavirtual.products.shared.email.EmailOutboxRepository;
 import br.com.zup.edu.nossalojavirtual.products.shared.email.EmailRepository;
 import br.com.zup.edu.nossalojavirtual.users.Password;
 import br.com.zup.edu.nossalojavirtual.users.User;
@@ -65,6 +66,9 @@ class QuestionControllerTest {
     @Autowired
     EmailRepository emailRepository;
 
+    @Autowired
+    EmailOutboxRepository emailOutboxRepository;
+
     private PhotoUploader photoUploaderMock;
     private User user;
     private Product product;
@@ -137,14 +141,19 @@ class QuestionControllerTest {
                 .getContentAsString(StandardCharsets.UTF_8);
 
 
-        TypeFactory typeFactory = mapper.getTypeFactory();
-        List<QuestionResponse> questionResponse = mapper.readValue(responsePayload, typeFactory.constructCollectionType(List.class, QuestionResponse.class));
+        QuestionResponse questionResponse = mapper.readValue(responsePayload, QuestionResponse.class);
 
-        assertEquals(newQuestionRequest.getTitle(), questionResponse.get(0).getTitle());
-        assertEquals(user.getUsername(), questionResponse.get(0).getUser());
-        assertTrue(questionResponse.get(0).getCreatedAt().isBefore(LocalDateTime.now()));
+        assertNotNull(questionResponse.getId());
+        assertEquals(newQuestionRequest.getTitle(), questionResponse.getTitle());
+        assertEquals(user.getUsername(), questionResponse.getUser());
+        assertTrue(questionResponse.getCreatedAt().isBefore(LocalDateTime.now()));
 
         assertEquals(1, questionRepository.findAll().size());
+        // the email is queued before the response, it is either in the outbox or already sent
+        assertTrue(emailOutboxRepository.count() + emailRepository.findAll().size() >= 1);
+
+        awaitEmails(1);
+        assertEquals(1, emailRepository.findAll().size());
     }
 
     @Test
@@ -254,7 +263,64 @@ class QuestionControllerTest {
                 .andExpect(MockMvcResultMatchers.status().isForbidden());
     }
 
+    @Test
+    @DisplayName("Should list the newest questions of a product first")
+    void test7() throws Exception {
+        questionRepository.save(new Question("Como funciona tal coisa?", user, product));
+        questionRepository.save(new Question("Tem garantia?", user, product));
+        questionRepository.save(new Question("Qual a cor?", user, product));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(baseUrl + product.getId() + "/questions")
+                .param("size", "2");
+
+        String responsePayload = mockMvc.perform(request)
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(StandardCharsets.UTF_8);
+
+        TypeFactory typeFactory = mapper.getTypeFactory();
+        List<QuestionResponse> questions = mapper.readValue(responsePayload, typeFactory.constructCollectionType(List.class, QuestionResponse.class));
+
+        assertEquals(2, questions.size());
+        assertEquals("Qual a cor?", questions.get(0).getTitle());
+        assertEquals("Tem garantia?", questions.get(1).getTitle());
+        assertEquals(user.getUsername(), questions.get(0).getUser());
+
+        mockMvc.perform(MockMvcRequestBuilders.get(baseUrl + UUID.randomUUID() + "/questions"))
+               .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    /**
+     * the question email is queued with the question and sent by the outbox on its own thread
+     */
+    private void awaitEmails(int emails) throws InterruptedException {
+        for (int i = 0; i < 100 && emailRepository.findAll().size() < emails; i++) {
+            Thread.sleep(50);
+        }
+
+        assertTrue(emailRepository.findAll().size() >= emails, "the question emails have not been sent in 5 seconds");
+    }
+
+    /**
+     * emails are sent after the question commits, this waits for the outbox before asserting or cleaning it
+     */
+    private void awaitEmailOutbox() throws InterruptedException {
+        for (int i = 0; i < 100 && emailOutboxRepository.count() > 0; i++) {
+            Thread.sleep(50);
+        }
+
+        assertEquals(0, emailOutboxRepository.count(), "the email outbox has not been drained in 5 seconds");
+    }
+
     private void clearDB() {
+        try {
+            awaitEmailOutbox();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        emailOutboxRepository.deleteAll();
         emailRepository.deleteAll();
         questionRepository.deleteAll();
         productRepository.deleteAll();
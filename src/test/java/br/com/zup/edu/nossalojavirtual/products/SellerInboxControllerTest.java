@@ -0,0 +1,156 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import br.com.zup.edu.nossalojavirtual.categories.Category;
+import br.com.zup.edu.nossalojavirtual.categories.CategoryRepository;
+import br.com.zup.edu.nossalojavirtual.users.Password;
+import br.com.zup.edu.nossalojavirtual.users.User;
+import br.com.zup.edu.nossalojavirtual.users.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc(printOnlyOnFailure = false)
+class SellerInboxControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper mapper;
+
+    @Autowired
+    QuestionRepository questionRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    CategoryRepository categoryRepository;
+
+    private String apiUrl = "/api/sellers/me/questions";
+    private User seller;
+    private User buyer;
+    private Category category;
+
+    @AfterEach
+    void tearDown() {
+        this.clearDB();
+    }
+
+    @BeforeEach
+    void setUp() {
+        this.clearDB();
+
+        seller = new User("henrique.desousa@zup.com.br", Password.encode("123456"));
+        userRepository.save(seller);
+
+        buyer = new User("comprador@zup.com.br", Password.encode("123456"));
+        userRepository.save(buyer);
+
+        category = new Category("Eletrônicos");
+        categoryRepository.save(category);
+    }
+
+    @Test
+    @DisplayName("Should page the questions of every product of the seller from the newest to the oldest")
+    void test1() throws Exception {
+        Product tijolo = newProduct(seller, "Tijorola");
+        Product radio = newProduct(seller, "Rádio");
+        Product otherSellerProduct = newProduct(buyer, "Geladeira");
+
+        Question first = questionRepository.save(new Question("Como funciona tal coisa?", buyer, tijolo));
+        Question second = questionRepository.save(new Question("Tem garantia?", buyer, radio));
+        Question third = questionRepository.save(new Question("Qual a cor?", buyer, tijolo));
+        questionRepository.save(new Question("Cabe na cozinha?", seller, otherSellerProduct));
+
+        Map firstPage = inbox(inboxRequest().param("size", "2"));
+
+        List<Map> questions = (List<Map>) firstPage.get("questions");
+        assertEquals(2, questions.size());
+        assertEquals(third.getId().intValue(), questions.get(0).get("id"));
+        assertEquals("Qual a cor?", questions.get(0).get("title"));
+        assertEquals(tijolo.getId().toString(), questions.get(0).get("productId"));
+        assertEquals(buyer.getUsername(), questions.get(0).get("possibleBuyer"));
+        assertEquals(second.getId().intValue(), questions.get(1).get("id"));
+        assertEquals(3, firstPage.get("unanswered"));
+        assertNotNull(firstPage.get("nextCursor"));
+
+        Map secondPage = inbox(inboxRequest().param("size", "2")
+                                             .param("cursor", firstPage.get("nextCursor").toString()));
+
+        questions = (List<Map>) secondPage.get("questions");
+        assertEquals(1, questions.size());
+        assertEquals(first.getId().intValue(), questions.get(0).get("id"));
+        assertNull(secondPage.get("nextCursor"));
+    }
+
+    @Test
+    @DisplayName("Should not list the inbox with an invalid cursor")
+    void test2() throws Exception {
+        mockMvc.perform(inboxRequest().param("cursor", "invalid"))
+               .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Should not list the inbox without token")
+    void test3() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get(apiUrl))
+               .andExpect(MockMvcResultMatchers.status().isUnauthorized());
+    }
+
+    private Product newProduct(User owner, String name) {
+        List<Photo> photos = List.of(new Photo("https://cf.shopee.com.br/file/be1b6889f9b5fdea9588a355d97427c9/uploadedLink1"));
+        Characteristic c1 = new Characteristic("Portátil", "Cabe no seu bolso");
+        Characteristic c2 = new Characteristic("Resistente", "Dura anos");
+        Characteristic c3 = new Characteristic("Azul", "Azul marinho");
+
+        PreProduct preProduct = new PreProduct(owner, category, name, new BigDecimal("150.00"), 100, "Muito bom");
+        return productRepository.save(new Product(preProduct, photos, Set.of(c1, c2, c3)));
+    }
+
+    private MockHttpServletRequestBuilder inboxRequest() {
+        return MockMvcRequestBuilders.get(apiUrl)
+                .with(jwt().jwt(jwt -> jwt.claim("email", seller.getUsername())));
+    }
+
+    private Map inbox(MockHttpServletRequestBuilder request) throws Exception {
+        String responsePayload = mockMvc.perform(request)
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(StandardCharsets.UTF_8);
+
+        return mapper.readValue(responsePayload, Map.class);
+    }
+
+    private void clearDB() {
+        questionRepository.deleteAll();
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+}
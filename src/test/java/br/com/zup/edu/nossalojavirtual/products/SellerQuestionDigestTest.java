@@ -0,0 +1,135 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import br.com.zup.edu.nossalojavirtual.products.shared.email.Email;
+import br.com.zup.edu.nossalojavirtual.products.shared.email.EmailOutbox;
+import br.com.zup.edu.nossalojavirtual.products.shared.email.EmailTemplates;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static java.util.stream.Collectors.toMap;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class SellerQuestionDigestTest {
+
+    @TempDir
+    Path journalDirectory;
+
+    private EmailOutbox emailOutboxMock;
+    private EmailTemplates emailTemplates;
+    private ProductRepository productRepositoryMock;
+    private TransactionTemplate transactionTemplate;
+    private final UUID productId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        emailOutboxMock = mock(EmailOutbox.class);
+        productRepositoryMock = mock(ProductRepository.class);
+        when(productRepositoryMock.findById(any())).thenReturn(Optional.of(mock(Product.class)));
+        transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+        var messageSource = new ResourceBundleMessageSource();
+        messageSource.setBasename("messages");
+        messageSource.setDefaultEncoding("UTF-8");
+        messageSource.setFallbackToSystemLocale(false);
+        emailTemplates = new EmailTemplates(messageSource, Locale.ENGLISH);
+    }
+
+    @Test
+    @DisplayName("Should send one email per seller on flush")
+    void test1() throws Exception {
+        SellerQuestionDigest digest = newDigest(20);
+
+        digest.add("seller1@zup.com.br", productId, "Como funciona?", "buyer1@zup.com.br", "http://localhost/api/products/1");
+        digest.add("seller1@zup.com.br", productId, "Tem garantia?", "buyer2@zup.com.br", "http://localhost/api/products/1");
+        digest.add("seller2@zup.com.br", productId, "Qual a cor?", "buyer1@zup.com.br", "http://localhost/api/products/2");
+
+        digest.flush();
+
+        Map<String, Email> emails = queuedEmails(2);
+        assertEquals(2, emails.size());
+        assertEquals("You have 2 new questions", emails.get("seller1@zup.com.br").getSubject());
+        assertTrue(emails.get("seller1@zup.com.br").getBody().contains("Tem garantia?"));
+        assertEquals("You have a new question", emails.get("seller2@zup.com.br").getSubject());
+
+        digest.flush();
+        verifyNoMoreInteractions(emailOutboxMock);
+
+        digest.destroy();
+    }
+
+    @Test
+    @DisplayName("Should recover unsent questions from the journal after a crash")
+    void test2() throws Exception {
+        SellerQuestionDigest crashed = newDigest(20);
+        crashed.add("seller1@zup.com.br", productId, "Como\tfunciona?\n", "buyer1@zup.com.br", "http://localhost/api/products/1");
+
+        SellerQuestionDigest restarted = newDigest(20);
+        restarted.flush();
+
+        Map<String, Email> emails = queuedEmails(1);
+        assertTrue(emails.get("seller1@zup.com.br").getBody().startsWith("Como\tfunciona?\n in "));
+
+        restarted.destroy();
+    }
+
+    @Test
+    @DisplayName("Should keep the questions in case of the digest could not be queued")
+    void test3() throws Exception {
+        SellerQuestionDigest digest = newDigest(20);
+        digest.add("seller1@zup.com.br", productId, "Como funciona?", "buyer1@zup.com.br", "http://localhost/api/products/1");
+
+        doThrow(new IllegalStateException("database is down")).doNothing().when(emailOutboxMock).enqueue(any());
+
+        digest.flush();
+        digest.flush();
+
+        verify(emailOutboxMock, times(2)).enqueue(any());
+
+        digest.destroy();
+    }
+
+    @Test
+    @DisplayName("Should list only the max listed questions")
+    void test4() throws Exception {
+        SellerQuestionDigest digest = newDigest(1);
+
+        digest.add("seller1@zup.com.br", productId, "Como funciona?", "buyer1@zup.com.br", "http://localhost/api/products/1");
+        digest.add("seller1@zup.com.br", productId, "Tem garantia?", "buyer2@zup.com.br", "http://localhost/api/products/1");
+
+        digest.flush();
+
+        Email email = queuedEmails(1).get("seller1@zup.com.br");
+        assertFalse(email.getBody().contains("Tem garantia?"));
+        assertTrue(email.getBody().endsWith("and 1 more questions\n"));
+
+        digest.destroy();
+    }
+
+    private SellerQuestionDigest newDigest(int maxListedQuestions) throws Exception {
+        return new SellerQuestionDigest(emailOutboxMock, emailTemplates, productRepositoryMock, transactionTemplate,
+                journalDirectory, "no-reply@nossalojavirtual.com.br", maxListedQuestions);
+    }
+
+    private Map<String, Email> queuedEmails(int times) {
+        ArgumentCaptor<Email> captor = ArgumentCaptor.forClass(Email.class);
+        verify(emailOutboxMock, times(times)).enqueue(captor.capture());
+
+        List<Email> emails = captor.getAllValues();
+        return emails.stream().collect(toMap(Email::getTo, email -> email));
+    }
+}
@@ -0,0 +1,83 @@
+package br.com.zup.edu.nossalojavirtual.products.shared.email;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class EmailArchiveTest {
+
+    @TempDir
+    Path directory;
+
+    private EmailRepository emailRepositoryMock;
+    private final LocalDate day = LocalDate.now().minusDays(100);
+
+    @BeforeEach
+    void setUp() {
+        emailRepositoryMock = mock(EmailRepository.class);
+    }
+
+    @Test
+    @DisplayName("Should archive an expired day and remove it with one delete")
+    void test1() throws Exception {
+        when(emailRepositoryMock.findSentDaysBefore(any())).thenReturn(List.of(day));
+        when(emailRepositoryMock.findPartition(eq(day), eq(-1L), any())).thenReturn(List.of(email(1L, "Como\tfunciona?\n"), email(2L, "Tem garantia?")));
+        when(emailRepositoryMock.findPartition(eq(day), eq(2L), any())).thenReturn(List.of(email(3L, "Qual a cor?")));
+
+        EmailArchive archive = new EmailArchive(emailRepositoryMock, directory, Duration.ofDays(90), 2);
+        archive.archiveExpired();
+
+        verify(emailRepositoryMock, times(1)).deletePartition(day);
+        assertEquals(List.of("emails-" + day + "-1-3.gz"), archiveFiles());
+
+        List<ArchivedEmail> emails = archive.findByIdRange(2, 10);
+        assertEquals(2, emails.size());
+        assertEquals(2L, emails.get(0).getId());
+        assertEquals("Qual a cor?", emails.get(1).getBody());
+
+        assertEquals("Como\tfunciona?\n", archive.findByIdRange(1, 1).get(0).getBody());
+        assertTrue(archive.findByIdRange(4, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should not remove a day that could not be archived")
+    void test2() throws Exception {
+        when(emailRepositoryMock.findSentDaysBefore(any())).thenReturn(List.of(day));
+        when(emailRepositoryMock.findPartition(eq(day), anyLong(), any())).thenThrow(new IllegalStateException("database is down"));
+
+        EmailArchive archive = new EmailArchive(emailRepositoryMock, directory, Duration.ofDays(90), 2);
+
+        assertThrows(IllegalStateException.class, archive::archiveExpired);
+
+        verify(emailRepositoryMock, never()).deletePartition(any());
+        assertTrue(archiveFiles().isEmpty());
+    }
+
+    private ArchivedEmail email(Long id, String body) {
+        return new ArchivedEmail(id, "seller@zup.com.br", "buyer@zup.com.br", "You have a new question", body,
+                UUID.randomUUID(), LocalDateTime.of(day, LocalDateTime.now().toLocalTime()));
+    }
+
+    private List<String> archiveFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).toList();
+        }
+    }
+}
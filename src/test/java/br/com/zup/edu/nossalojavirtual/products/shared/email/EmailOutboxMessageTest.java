@@ -0,0 +1,57 @@
+package br.com.zup.edu.nossalojavirtual.products.shared.email;
+
+import br.com.zup.edu.nossalojavirtual.products.shared.email.EmailOutboxMessage.OutboxStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailOutboxMessageTest {
+
+    private final Email email = Email.to("seller@zup.com.br")
+                                     .from("buyer@zup.com.br")
+                                     .subject("You have a new question")
+                                     .body("Como funciona tal coisa?")
+                                     .product(null)
+                                     .build();
+
+    @Test
+    @DisplayName("Should build the email that was queued")
+    void test1() {
+        EmailOutboxMessage message = new EmailOutboxMessage(email);
+
+        Email queued = message.toEmail();
+
+        assertEquals(OutboxStatus.PENDING, message.getStatus());
+        assertEquals(email.getTo(), queued.getTo());
+        assertEquals(email.getFrom(), queued.getFrom());
+        assertEquals(email.getSubject(), queued.getSubject());
+        assertEquals(email.getBody(), queued.getBody());
+    }
+
+    @Test
+    @DisplayName("Should be retried while the max attempts is not reached")
+    void test2() {
+        EmailOutboxMessage message = new EmailOutboxMessage(email);
+
+        message.failed("timeout", Duration.ofSeconds(5), 2);
+        assertEquals(OutboxStatus.PENDING, message.getStatus());
+
+        message.failed("timeout", Duration.ofSeconds(10), 2);
+        assertEquals(OutboxStatus.FAILED, message.getStatus());
+        assertEquals(2, message.getAttempts());
+    }
+
+    @Test
+    @DisplayName("Should throw Illegal Argument Exception in case of email is null")
+    void test3() {
+        IllegalArgumentException illegalArgumentException = assertThrows(
+                IllegalArgumentException.class,
+                () -> new EmailOutboxMessage(null)
+        );
+
+        assertEquals("email must not be null", illegalArgumentException.getMessage());
+    }
+}
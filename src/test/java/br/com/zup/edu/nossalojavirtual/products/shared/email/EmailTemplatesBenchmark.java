@@ -0,0 +1,60 @@
+package br.com.zup.edu.nossalojavirtual.products.shared.email;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.support.ResourceBundleMessageSource;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the purchase confirmation body rendered by {@link EmailTemplates} against the string concatenation it replaced.
+ * It is not a test, run it from the test classpath with {@link #main}, the gc profiler reports the allocation per render.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmailTemplatesBenchmark {
+
+    private EmailTemplates emailTemplates;
+    private final LocalDateTime confirmedAt = LocalDateTime.of(2022, 9, 1, 15, 30, 5);
+    private final int quantity = 2;
+    private final String productName = "Tijorola";
+
+    @Setup
+    public void setUp() {
+        var messageSource = new ResourceBundleMessageSource();
+        messageSource.setBasename("messages");
+        messageSource.setDefaultEncoding("UTF-8");
+        messageSource.setFallbackToSystemLocale(false);
+
+        emailTemplates = new EmailTemplates(messageSource, Locale.ENGLISH);
+    }
+
+    @Benchmark
+    public String concatenation() {
+        DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+
+        return "Your " + quantity + " product(s): " + productName +
+               " is being prepared! Your purchase was confirmed at " + dateFormat.format(confirmedAt);
+    }
+
+    @Benchmark
+    public String template() {
+        return emailTemplates.render("email.purchase.confirmed.body", quantity, productName, confirmedAt);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(EmailTemplatesBenchmark.class.getSimpleName())
+                                       .addProfiler(GCProfiler.class)
+                                       .build()).run();
+    }
+}
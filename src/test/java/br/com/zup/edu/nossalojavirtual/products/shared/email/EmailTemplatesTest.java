@@ -0,0 +1,79 @@
+package br.com.zup.edu.nossalojavirtual.products.shared.email;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.NoSuchMessageException;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.context.support.StaticMessageSource;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailTemplatesTest {
+
+    private EmailTemplates emailTemplates;
+
+    @BeforeEach
+    void setUp() {
+        var messageSource = new ResourceBundleMessageSource();
+        messageSource.setBasename("messages");
+        messageSource.setDefaultEncoding("UTF-8");
+        messageSource.setFallbackToSystemLocale(false);
+
+        emailTemplates = new EmailTemplates(messageSource, Locale.ENGLISH);
+    }
+
+    @Test
+    @DisplayName("Should render a template in the default locale")
+    void test1() {
+        String body = emailTemplates.render("email.question.body", "Como funciona?", "http://localhost/api/products/1");
+
+        assertEquals("Como funciona? in http://localhost/api/products/1", body);
+    }
+
+    @Test
+    @DisplayName("Should render a template in the given locale with its date format")
+    void test2() {
+        LocalDateTime confirmedAt = LocalDateTime.of(2022, 9, 1, 15, 30, 5);
+
+        String english = emailTemplates.render("email.purchase.confirmed.body", 2, "Tijorola", confirmedAt);
+        String portuguese = emailTemplates.render("email.purchase.confirmed.body", new Locale("pt", "BR"), 2, "Tijorola", confirmedAt);
+
+        assertEquals("Your 2 product(s): Tijorola is being prepared! Your purchase was confirmed at 01/09/2022 15:30:05", english);
+        assertEquals("Seu(s) 2 produto(s): Tijorola está sendo preparado! Sua compra foi confirmada em 01/09/2022 15:30:05", portuguese);
+    }
+
+    @Test
+    @DisplayName("Should reuse the compiled template between renders")
+    void test3() {
+        String first = emailTemplates.render("email.purchase.failed.body", "http://pagseguro.com/1");
+        String second = emailTemplates.render("email.purchase.failed.body", "http://pagseguro.com/2");
+
+        assertTrue(first.endsWith("http://pagseguro.com/1"));
+        assertTrue(second.endsWith("http://pagseguro.com/2"));
+    }
+
+    @Test
+    @DisplayName("Should throw Illegal Argument Exception in case of template has an unclosed argument")
+    void test4() {
+        var messageSource = new StaticMessageSource();
+        messageSource.addMessage("email.broken", Locale.ENGLISH, "Hello {0");
+        var brokenTemplates = new EmailTemplates(messageSource, Locale.ENGLISH);
+
+        IllegalArgumentException illegalArgumentException = assertThrows(
+                IllegalArgumentException.class,
+                () -> brokenTemplates.render("email.broken", "seller")
+        );
+
+        assertEquals("Unclosed argument at 6 of template: Hello {0", illegalArgumentException.getMessage());
+    }
+
+    @Test
+    @DisplayName("Should throw No Such Message Exception in case of template does not exist")
+    void test5() {
+        assertThrows(NoSuchMessageException.class, () -> emailTemplates.render("email.unknown"));
+    }
+}
@@ -0,0 +1,187 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import br.com.zup.edu.nossalojavirtual.categories.Category;
+import br.com.zup.edu.nossalojavirtual.categories.CategoryRepository;
+import br.com.zup.edu.nossalojavirtual.products.*;
+import br.com.zup.edu.nossalojavirtual.users.Password;
+import br.com.zup.edu.nossalojavirtual.users.User;
+import br.com.zup.edu.nossalojavirtual.users.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.validation.BindException;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc(printOnlyOnFailure = false)
+class CheckoutControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper mapper;
+
+    @Autowired
+    PurchaseRepository purchaseRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    CategoryRepository categoryRepository;
+
+    @Autowired
+    PurchaseIdempotencyKeyRepository idempotencyKeyRepository;
+
+    private Product phone;
+    private Product headset;
+    private String apiUrl = "/api/purchase/checkout";
+    private User user;
+
+    @AfterEach
+    void tearDown() {
+        this.clearDB();
+    }
+
+    @BeforeEach
+    void setUp() {
+
+        this.clearDB();
+
+        user = new User("henrique.desousa@zup.com.br", Password.encode("123456"));
+        userRepository.save(user);
+
+        Category category = new Category("Eletrônicos");
+        categoryRepository.save(category);
+
+        phone = newProduct(category, "Tijorola", new BigDecimal("150.00"), 5);
+        headset = newProduct(category, "Fone", new BigDecimal("50.00"), 1);
+    }
+
+    @Test
+    @DisplayName("Should reserve every item of the cart and return a single payment url")
+    void test1() throws Exception {
+        NewCheckoutRequest newCheckout = new NewCheckoutRequest(List.of(
+                new NewCheckoutRequest.Item(phone.getId(), 2),
+                new NewCheckoutRequest.Item(headset.getId(), 1),
+                new NewCheckoutRequest.Item(phone.getId(), 1)
+        ), PaymentGateway.PAYPAL);
+
+        String responsePayload = mockMvc.perform(checkoutRequest(newCheckout))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(StandardCharsets.UTF_8);
+
+        Map map = mapper.readValue(responsePayload, Map.class);
+
+        assertNotNull(map.get("paymentUrl"));
+
+        List<Purchase> purchases = purchaseRepository.findAll();
+        assertEquals(2, purchases.size());
+        assertEquals(purchases.get(0).getCheckoutId(), purchases.get(1).getCheckoutId());
+
+        assertEquals(2, productRepository.findById(phone.getId()).get().getStockQuantity());
+        assertEquals(0, productRepository.findById(headset.getId()).get().getStockQuantity());
+    }
+
+    @Test
+    @DisplayName("Should not reserve any item in case of one of them is out of stock")
+    void test2() throws Exception {
+        NewCheckoutRequest newCheckout = new NewCheckoutRequest(List.of(
+                new NewCheckoutRequest.Item(phone.getId(), 2),
+                new NewCheckoutRequest.Item(headset.getId(), 2)
+        ), PaymentGateway.PAYPAL);
+
+        Exception resolvedException = mockMvc.perform(checkoutRequest(newCheckout))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andReturn()
+                .getResolvedException();
+
+        BindException bindException = (BindException) resolvedException;
+        assertEquals("This product is out of stock", bindException.getAllErrors().get(0).getDefaultMessage());
+
+        assertTrue(purchaseRepository.findAll().isEmpty());
+        assertEquals(5, productRepository.findById(phone.getId()).get().getStockQuantity());
+        assertEquals(1, productRepository.findById(headset.getId()).get().getStockQuantity());
+    }
+
+    @Test
+    @DisplayName("Should not reserve any item in case of one of them doesn't exist")
+    void test3() throws Exception {
+        NewCheckoutRequest newCheckout = new NewCheckoutRequest(List.of(
+                new NewCheckoutRequest.Item(phone.getId(), 1),
+                new NewCheckoutRequest.Item(UUID.randomUUID(), 1)
+        ), PaymentGateway.PAGSEGURO);
+
+        mockMvc.perform(checkoutRequest(newCheckout))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+
+        assertTrue(purchaseRepository.findAll().isEmpty());
+        assertEquals(5, productRepository.findById(phone.getId()).get().getStockQuantity());
+    }
+
+    @Test
+    @DisplayName("Should not checkout an empty cart")
+    void test4() throws Exception {
+        NewCheckoutRequest newCheckout = new NewCheckoutRequest(List.of(), PaymentGateway.PAGSEGURO);
+
+        mockMvc.perform(checkoutRequest(newCheckout))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    private MockHttpServletRequestBuilder checkoutRequest(NewCheckoutRequest newCheckout) throws Exception {
+        return MockMvcRequestBuilders.post(apiUrl)
+                .with(jwt()
+                        .jwt(jwt ->
+                                jwt.claim("email", user.getUsername())
+                        )
+                        .authorities(new SimpleGrantedAuthority("SCOPE_lojavirtual:write")))
+                .content(mapper.writeValueAsString(newCheckout))
+                .contentType(MediaType.APPLICATION_JSON);
+    }
+
+    private Product newProduct(Category category, String name, BigDecimal price, int stockQuantity) {
+        List<Photo> photos = List.of(new Photo("https://cf.shopee.com.br/file/be1b6889f9b5fdea9588a355d97427c9/uploadedLink1"));
+
+        Characteristic c1 = new Characteristic("Portátil", "Cabe no seu bolso");
+        Characteristic c2 = new Characteristic("Resistente", "Dura anos");
+        Characteristic c3 = new Characteristic("Azul", "Azul marinho");
+
+        PreProduct preProduct = new PreProduct(user, category, name, price, stockQuantity, "Muito bom");
+        Product product = new Product(preProduct, photos, Set.of(c1, c2, c3));
+
+        return productRepository.save(product);
+    }
+
+    private void clearDB() {
+        idempotencyKeyRepository.deleteAll();
+        purchaseRepository.deleteAll();
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+}
@@ -0,0 +1,70 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgedRequestsTest {
+
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HedgedRequests hedgedRequests = new HedgedRequests(meterRegistry, 4);
+
+    @AfterEach
+    void tearDown() {
+        hedgedRequests.destroy();
+    }
+
+    @Test
+    @DisplayName("Should return the hedged response when the first call is slow")
+    void test1() {
+        CountDownLatch neverReleased = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        String response = hedgedRequests.call("invoiceSystem", Duration.ofMillis(20), () -> {
+            if (calls.incrementAndGet() == 1) {
+                try {
+                    neverReleased.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "slow";
+            }
+            return "hedged";
+        });
+
+        assertEquals("hedged", response);
+        assertEquals(1.0, meterRegistry.counter("outbound.hedged.requests", "downstream", "invoiceSystem").count());
+    }
+
+    @Test
+    @DisplayName("Should not hedge a call that answers before the delay")
+    void test2() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String response = hedgedRequests.call("invoiceSystem", Duration.ofSeconds(5), () -> {
+            calls.incrementAndGet();
+            return "fast";
+        });
+
+        assertEquals("fast", response);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    @DisplayName("Should throw the error of a failed call")
+    void test3() {
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> hedgedRequests.call("invoiceSystem", Duration.ofSeconds(5), () -> {
+                    throw new IllegalStateException("invoice system is down");
+                }));
+
+        assertEquals("invoice system is down", exception.getMessage());
+    }
+}
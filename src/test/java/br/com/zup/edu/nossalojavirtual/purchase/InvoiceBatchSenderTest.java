@@ -0,0 +1,102 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import br.com.zup.edu.nossalojavirtual.purchase.InvoiceClient.InvoiceRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class InvoiceBatchSenderTest {
+
+    private InvoiceClient invoiceClientMock;
+    private HedgedRequests hedgedRequests = new HedgedRequests(new SimpleMeterRegistry(), 2);
+    private InvoiceBatchSender invoiceBatchSender;
+
+    @BeforeEach
+    void setUp() {
+        invoiceClientMock = mock(InvoiceClient.class);
+        invoiceBatchSender = new InvoiceBatchSender(invoiceClientMock, hedgedRequests, 3, Duration.ofMinutes(1), Duration.ZERO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        invoiceBatchSender.destroy();
+    }
+
+    @Test
+    @DisplayName("Should send a full batch in a single call")
+    void test1() {
+        List<CompletableFuture<Void>> results = List.of(
+                invoiceBatchSender.send(new InvoiceRequest(1L, "a@zup.com.br")),
+                invoiceBatchSender.send(new InvoiceRequest(2L, "b@zup.com.br")),
+                invoiceBatchSender.send(new InvoiceRequest(3L, "c@zup.com.br"))
+        );
+
+        results.forEach(CompletableFuture::join);
+
+        ArgumentCaptor<List<InvoiceRequest>> captor = ArgumentCaptor.forClass(List.class);
+        verify(invoiceClientMock, times(1)).requestInvoices(anyString(), captor.capture());
+        assertEquals(3, captor.getValue().size());
+    }
+
+    @Test
+    @DisplayName("Should send a partial batch after the max delay")
+    void test2() {
+        invoiceBatchSender = new InvoiceBatchSender(invoiceClientMock, hedgedRequests, 100, Duration.ofMillis(10), Duration.ZERO);
+
+        invoiceBatchSender.send(new InvoiceRequest(1L, "a@zup.com.br")).join();
+
+        verify(invoiceClientMock, times(1)).requestInvoices(anyString(), anyList());
+    }
+
+    @Test
+    @DisplayName("Should send pending requests on shutdown")
+    void test3() {
+        CompletableFuture<Void> result = invoiceBatchSender.send(new InvoiceRequest(1L, "a@zup.com.br"));
+
+        invoiceBatchSender.destroy();
+
+        assertTrue(result.isDone());
+        verify(invoiceClientMock, times(1)).requestInvoices(anyString(), anyList());
+    }
+
+    @Test
+    @DisplayName("Should fail every request of a batch that could not be sent")
+    void test4() {
+        doThrow(new IllegalStateException("invoice system is down")).when(invoiceClientMock).requestInvoices(anyString(), anyList());
+        invoiceBatchSender = new InvoiceBatchSender(invoiceClientMock, hedgedRequests, 1, Duration.ofMinutes(1), Duration.ZERO);
+
+        CompletableFuture<Void> result = invoiceBatchSender.send(new InvoiceRequest(1L, "a@zup.com.br"));
+
+        CompletionException exception = assertThrows(CompletionException.class, result::join);
+        assertEquals("invoice system is down", exception.getCause().getMessage());
+    }
+
+    @Test
+    @DisplayName("Should send a hedged copy of a slow batch with the same batch key")
+    void test5() {
+        doAnswer(invocation -> {
+            Thread.sleep(200);
+            return null;
+        }).when(invoiceClientMock).requestInvoices(anyString(), anyList());
+        invoiceBatchSender = new InvoiceBatchSender(invoiceClientMock, hedgedRequests, 1, Duration.ofMinutes(1), Duration.ofMillis(10));
+
+        invoiceBatchSender.send(new InvoiceRequest(1L, "a@zup.com.br")).join();
+
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(invoiceClientMock, timeout(1000).times(2)).requestInvoices(captor.capture(), anyList());
+        assertEquals(captor.getAllValues().get(0), captor.getAllValues().get(1));
+    }
+}
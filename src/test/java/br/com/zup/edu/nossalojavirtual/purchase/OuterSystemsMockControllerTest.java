@@ -13,7 +13,9 @@ import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilde
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 @SpringBootTest
 @AutoConfigureMockMvc(printOnlyOnFailure = false)
@@ -83,5 +85,35 @@ class OuterSystemsMockControllerTest {
 
     }
 
+    @Test
+    @DisplayName("Should return status OK on a batch of invoices")
+    void test5() throws Exception {
+
+        List requestList = List.of(Map.of("purchaseId", 1, "buyerId", "a@zup.com.br"),
+                                   Map.of("purchaseId", 2, "buyerId", "b@zup.com.br"));
+        String payload = mapper.writeValueAsString(requestList);
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post("/invoice/register/batch")
+                .header(InvoiceClient.BATCH_KEY_HEADER, UUID.randomUUID().toString())
+                .content(payload)
+                .contentType(MediaType.APPLICATION_JSON);
+
+        mockMvc.perform(request)
+                .andExpect(MockMvcResultMatchers.status().isOk());
+    }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("Should return status OK on a batch of seller ranking deltas")
+    void test6() throws Exception {
+
+        List requestList = List.of(Map.of("sellerId", "a@zup.com.br", "purchases", 2, "revenue", 300));
+        String payload = mapper.writeValueAsString(requestList);
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post("/sellerRanking/deltas")
+                .content(payload)
+                .contentType(MediaType.APPLICATION_JSON);
+
+        mockMvc.perform(request)
+                .andExpect(MockMvcResultMatchers.status().isOk());
+    }
+}
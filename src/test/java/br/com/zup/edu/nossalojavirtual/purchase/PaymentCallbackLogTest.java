@@ -0,0 +1,163 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PaymentCallbackLogTest {
+
+    @TempDir
+    Path directory;
+
+    private PaymentCallbackProcessor callbackProcessorMock;
+
+    @BeforeEach
+    void setUp() {
+        callbackProcessorMock = mock(PaymentCallbackProcessor.class);
+    }
+
+    @Test
+    @DisplayName("Should process every appended callback")
+    void test1() throws Exception {
+        PaymentCallbackLog callbackLog = newLog(callbackProcessorMock);
+
+        callbackLog.append(new PaymentReturn(1L, "1", "1"), "http://localhost:8080");
+        callbackLog.append(new PaymentReturn(2L, "2", "SUCESSO"), "http://localhost:8080");
+        callbackLog.append(new PaymentReturn(1L, "3", "1"), "http://localhost:8080");
+
+        verify(callbackProcessorMock, timeout(1000).times(3)).process(any(), any());
+
+        callbackLog.destroy();
+    }
+
+    @Test
+    @DisplayName("Should replay the callbacks that were not processed before a crash")
+    void test2() throws Exception {
+        CountDownLatch neverProcessed = new CountDownLatch(1);
+        PaymentCallbackProcessor stuckProcessor = mock(PaymentCallbackProcessor.class);
+        doAnswer(invocation -> {
+            neverProcessed.await();
+            return null;
+        }).when(stuckProcessor).process(any(), any());
+
+        PaymentCallbackLog crashed = newLog(stuckProcessor);
+        crashed.append(new PaymentReturn(1L, "1", "1"), "http://localhost:8080");
+        Thread.sleep(50);
+
+        PaymentCallbackLog restarted = newLog(callbackProcessorMock);
+        restarted.start();
+
+        ArgumentCaptor<PaymentReturn> captor = ArgumentCaptor.forClass(PaymentReturn.class);
+        verify(callbackProcessorMock, timeout(1000).times(1)).process(captor.capture(), any());
+        assertEquals(1L, captor.getValue().getPurchaseId());
+        assertEquals("1", captor.getValue().getPaymentId());
+        assertEquals("1", captor.getValue().getStatus());
+
+        neverProcessed.countDown();
+        restarted.destroy();
+    }
+
+    @Test
+    @DisplayName("Should not replay callbacks that were already processed")
+    void test3() throws Exception {
+        PaymentCallbackLog callbackLog = newLog(callbackProcessorMock);
+        callbackLog.append(new PaymentReturn(1L, "1", "1"), "http://localhost:8080");
+        verify(callbackProcessorMock, timeout(1000).times(1)).process(any(), any());
+        callbackLog.destroy();
+
+        PaymentCallbackProcessor restartedProcessor = mock(PaymentCallbackProcessor.class);
+        PaymentCallbackLog restarted = newLog(restartedProcessor);
+        restarted.start();
+        restarted.destroy();
+
+        verifyNoInteractions(restartedProcessor);
+    }
+
+    @Test
+    @DisplayName("Should log and replay a callback larger than a segment")
+    void test4() throws Exception {
+        CountDownLatch neverProcessed = new CountDownLatch(1);
+        PaymentCallbackProcessor stuckProcessor = mock(PaymentCallbackProcessor.class);
+        doAnswer(invocation -> {
+            neverProcessed.await();
+            return null;
+        }).when(stuckProcessor).process(any(), any());
+
+        String largeUrl = "http://localhost:8080/" + "a".repeat(8192);
+
+        PaymentCallbackLog crashed = newLog(stuckProcessor);
+        crashed.append(new PaymentReturn(1L, "1", "1"), largeUrl);
+        crashed.append(new PaymentReturn(2L, "2", "1"), "http://localhost:8080");
+        Thread.sleep(50);
+
+        PaymentCallbackLog restarted = newLog(callbackProcessorMock);
+        restarted.start();
+
+        ArgumentCaptor<UriComponentsBuilder> captor = ArgumentCaptor.forClass(UriComponentsBuilder.class);
+        verify(callbackProcessorMock, timeout(1000).times(2)).process(any(), captor.capture());
+        assertTrue(captor.getAllValues().stream().anyMatch(uriBuilder -> uriBuilder.toUriString().equals(largeUrl)));
+
+        neverProcessed.countDown();
+        restarted.destroy();
+    }
+
+    @Test
+    @DisplayName("Should keep retrying a failing callback until it is processed")
+    void test5() throws Exception {
+        doThrow(new RuntimeException("database is down"))
+                .doThrow(new RuntimeException("database is down"))
+                .doThrow(new RuntimeException("database is down"))
+                .doThrow(new RuntimeException("database is down"))
+                .doThrow(new RuntimeException("database is down"))
+                .doThrow(new RuntimeException("database is down"))
+                .doNothing()
+                .when(callbackProcessorMock).process(any(), any());
+
+        PaymentCallbackLog callbackLog = newLog(callbackProcessorMock);
+        callbackLog.append(new PaymentReturn(1L, "1", "1"), "http://localhost:8080");
+
+        verify(callbackProcessorMock, timeout(5000).times(7)).process(any(), any());
+        Thread.sleep(50);
+        callbackLog.destroy();
+
+        PaymentCallbackProcessor restartedProcessor = mock(PaymentCallbackProcessor.class);
+        PaymentCallbackLog restarted = newLog(restartedProcessor);
+        restarted.start();
+        restarted.destroy();
+
+        verifyNoInteractions(restartedProcessor);
+    }
+
+    @Test
+    @DisplayName("Should replay a callback that was still failing when the application stopped")
+    void test6() throws Exception {
+        PaymentCallbackProcessor failingProcessor = mock(PaymentCallbackProcessor.class);
+        doThrow(new RuntimeException("database is down")).when(failingProcessor).process(any(), any());
+
+        PaymentCallbackLog stopped = newLog(failingProcessor);
+        stopped.append(new PaymentReturn(1L, "1", "1"), "http://localhost:8080");
+        verify(failingProcessor, timeout(5000).atLeast(6)).process(any(), any());
+        stopped.destroy();
+
+        PaymentCallbackLog restarted = newLog(callbackProcessorMock);
+        restarted.start();
+
+        verify(callbackProcessorMock, timeout(1000).times(1)).process(any(), any());
+        restarted.destroy();
+    }
+
+    private PaymentCallbackLog newLog(PaymentCallbackProcessor processor) throws Exception {
+        return new PaymentCallbackLog(processor, directory, 4096, 2, Duration.ofMillis(5));
+    }
+}
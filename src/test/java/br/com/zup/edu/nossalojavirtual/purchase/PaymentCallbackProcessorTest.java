@@ -0,0 +1,51 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import br.com.zup.edu.nossalojavirtual.events.DomainEventBus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PaymentCallbackProcessorTest {
+
+    private PaymentCallbackRepository callbackRepositoryMock;
+    private PaymentCallbackProcessor callbackProcessor;
+    private final PaymentReturn paymentReturn = new PaymentReturn(1L, "1", "1");
+
+    @BeforeEach
+    void setUp() {
+        callbackRepositoryMock = mock(PaymentCallbackRepository.class);
+        callbackProcessor = new PaymentCallbackProcessor(mock(PurchaseRepository.class),
+                callbackRepositoryMock,
+                mock(PaymentCallbackFilter.class),
+                mock(PostPurchaseOutbox.class),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                mock(DomainEventBus.class));
+
+        when(callbackRepositoryMock.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("constraint violation"));
+    }
+
+    @Test
+    @DisplayName("Should ignore a callback stored first by a concurrent delivery")
+    void test1() {
+        when(callbackRepositoryMock.existsByPurchaseIdAndPaymentId(1L, "1")).thenReturn(false, true);
+
+        assertDoesNotThrow(() -> callbackProcessor.process(paymentReturn, UriComponentsBuilder.fromUriString("http://localhost:8080")));
+    }
+
+    @Test
+    @DisplayName("Should not ignore any other integrity violation")
+    void test2() {
+        when(callbackRepositoryMock.existsByPurchaseIdAndPaymentId(1L, "1")).thenReturn(false);
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> callbackProcessor.process(paymentReturn, UriComponentsBuilder.fromUriString("http://localhost:8080")));
+    }
+}
@@ -62,6 +62,9 @@ class PaymentGatewayReturnControllerTest {
     @Autowired
     PurchaseRepository purchaseRepository;
 
+    @Autowired
+    PaymentCallbackRepository callbackRepository;
+
     private PhotoUploader photoUploaderMock;
     private Product product;
     private Purchase purchase;
@@ -256,7 +259,31 @@ class PaymentGatewayReturnControllerTest {
                 .andExpect(MockMvcResultMatchers.status().isForbidden());
     }
 
+    @Test
+    @DisplayName("Should ignore a payment callback that has already been processed")
+    void test8() throws Exception {
+
+        PaymentReturn paymentReturn = new PaymentReturn(purchase.getId(), "1", "1");
+
+        String payload = mapper.writeValueAsString(paymentReturn);
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(apiUrl)
+                .with(jwt().authorities(new SimpleGrantedAuthority("SCOPE_lojavirtual:write")))
+                .content(payload)
+                .contentType(MediaType.APPLICATION_JSON);
+
+        mockMvc.perform(request)
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        mockMvc.perform(request)
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        assertEquals(1, callbackRepository.findAll().size());
+        assertEquals(Status.PAGA, purchaseRepository.findById(purchase.getId()).get().getStatus());
+    }
+
     private void clearDB() {
+        callbackRepository.deleteAll();
         purchaseRepository.deleteAll();
         productRepository.deleteAll();
         categoryRepository.deleteAll();
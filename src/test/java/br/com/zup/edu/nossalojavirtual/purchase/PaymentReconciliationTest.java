@@ -0,0 +1,135 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import br.com.zup.edu.nossalojavirtual.categories.Category;
+import br.com.zup.edu.nossalojavirtual.categories.CategoryRepository;
+import br.com.zup.edu.nossalojavirtual.products.*;
+import br.com.zup.edu.nossalojavirtual.users.Password;
+import br.com.zup.edu.nossalojavirtual.users.User;
+import br.com.zup.edu.nossalojavirtual.users.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = "purchase.reconciliation.stale-after=PT0S")
+@ActiveProfiles("test")
+class PaymentReconciliationTest {
+
+    @Autowired
+    PaymentReconciliation paymentReconciliation;
+
+    @Autowired
+    PurchaseRepository purchaseRepository;
+
+    @Autowired
+    PaymentCallbackRepository callbackRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    CategoryRepository categoryRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    PaymentStatusLookup paymentStatusLookup;
+
+    private User user;
+    private Product product;
+
+    @AfterEach
+    void tearDown() {
+        this.clearDB();
+    }
+
+    @BeforeEach
+    void setUp() {
+        this.clearDB();
+
+        user = new User("henrique.desousa@zup.com.br", Password.encode("123456"));
+        userRepository.save(user);
+
+        Category category = new Category("Eletrônicos");
+        categoryRepository.save(category);
+
+        List<Photo> photos = List.of(new Photo("https://cf.shopee.com.br/file/be1b6889f9b5fdea9588a355d97427c9/uploadedLink1"));
+        Characteristic c1 = new Characteristic("Portátil", "Cabe no seu bolso");
+        Characteristic c2 = new Characteristic("Resistente", "Dura anos");
+        Characteristic c3 = new Characteristic("Azul", "Azul marinho");
+
+        PreProduct preProduct = new PreProduct(user, category, "Tijorola", new BigDecimal("150.00"), 5, "Muito bom");
+        product = productRepository.save(new Product(preProduct, photos, Set.of(c1, c2, c3)));
+    }
+
+    @Test
+    @DisplayName("Should apply the payment found for a stale purchase")
+    void test1() {
+        Purchase purchase = newPurchase();
+        when(paymentStatusLookup.find(any())).thenReturn(Optional.of(new PaymentReturn(purchase.getId(), "1", "1")));
+
+        paymentReconciliation.reconcile();
+
+        assertEquals(Status.PAGA, purchaseRepository.findById(purchase.getId()).get().getStatus());
+        assertEquals(1, callbackRepository.findAll().size());
+    }
+
+    @Test
+    @DisplayName("Should keep a stale purchase whose payment was not found")
+    void test2() {
+        Purchase purchase = newPurchase();
+        when(paymentStatusLookup.find(any())).thenReturn(Optional.empty());
+
+        paymentReconciliation.reconcile();
+
+        assertEquals(Status.INICIADA, purchaseRepository.findById(purchase.getId()).get().getStatus());
+        assertTrue(callbackRepository.findAll().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should expire a stale purchase not paid after the deadline and give its quantity back to the stock")
+    void test3() {
+        Purchase purchase = newPurchase();
+        jdbcTemplate.update("update purchase set purchase_created_at = ? where purchase_id = ?", LocalDateTime.now().minusDays(2), purchase.getId());
+        when(paymentStatusLookup.find(any())).thenReturn(Optional.empty());
+        int stockQuantity = productRepository.findById(product.getId()).get().getStockQuantity();
+
+        paymentReconciliation.reconcile();
+
+        assertEquals(Status.EXPIRADA, purchaseRepository.findById(purchase.getId()).get().getStatus());
+        assertEquals(stockQuantity + 1, productRepository.findById(product.getId()).get().getStockQuantity());
+        assertTrue(callbackRepository.findAll().isEmpty());
+    }
+
+    private Purchase newPurchase() {
+        NewPurchaseRequest newPurchase = new NewPurchaseRequest(product.getId(), 1, PaymentGateway.PAYPAL);
+        return purchaseRepository.save(product.reserveQuantityFor(newPurchase, user).get());
+    }
+
+    private void clearDB() {
+        callbackRepository.deleteAll();
+        purchaseRepository.deleteAll();
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+}
@@ -0,0 +1,278 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import br.com.zup.edu.nossalojavirtual.categories.Category;
+import br.com.zup.edu.nossalojavirtual.categories.CategoryRepository;
+import br.com.zup.edu.nossalojavirtual.products.*;
+import br.com.zup.edu.nossalojavirtual.purchase.PostPurchaseOutboxMessage.OutboxStatus;
+import br.com.zup.edu.nossalojavirtual.users.Password;
+import br.com.zup.edu.nossalojavirtual.users.User;
+import br.com.zup.edu.nossalojavirtual.users.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "purchase.outbox.poll-interval=PT0.05S",
+        "purchase.outbox.max-attempts=3",
+        "purchase.outbox.initial-backoff=PT0.01S",
+        "purchase.outbox.max-backoff=PT0.05S",
+        "purchase.outbox.timeout=PT5S",
+        "purchase.outbox.timeout.SlowAction=PT0.2S"
+})
+@ActiveProfiles("test")
+class PostPurchaseOutboxDispatcherTest {
+
+    @Autowired
+    PaymentCallbackProcessor callbackProcessor;
+
+    @Autowired
+    PostPurchaseOutboxRepository outboxRepository;
+
+    @Autowired
+    PurchaseRepository purchaseRepository;
+
+    @Autowired
+    PaymentCallbackRepository callbackRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    CategoryRepository categoryRepository;
+
+    @Autowired
+    RecordingAction recordingAction;
+
+    @Autowired
+    SlowAction slowAction;
+
+    private Purchase purchase;
+    private CountDownLatch release;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        this.clearDB();
+    }
+
+    @BeforeEach
+    void setUp() {
+        this.clearDB();
+
+        release = new CountDownLatch(1);
+        recordingAction.reset();
+        slowAction.reset();
+
+        User user = new User("henrique.desousa@zup.com.br", Password.encode("123456"));
+        userRepository.save(user);
+
+        Category category = new Category("Eletrônicos");
+        categoryRepository.save(category);
+
+        List<Photo> photos = List.of(new Photo("https://cf.shopee.com.br/file/be1b6889f9b5fdea9588a355d97427c9/uploadedLink1"));
+        Characteristic c1 = new Characteristic("Portátil", "Cabe no seu bolso");
+        Characteristic c2 = new Characteristic("Resistente", "Dura anos");
+        Characteristic c3 = new Characteristic("Azul", "Azul marinho");
+
+        PreProduct preProduct = new PreProduct(user, category, "Tijorola", new BigDecimal("150.00"), 5, "Muito bom");
+        Product product = productRepository.save(new Product(preProduct, photos, Set.of(c1, c2, c3)));
+
+        NewPurchaseRequest newPurchase = new NewPurchaseRequest(product.getId(), 1, PaymentGateway.PAYPAL);
+        purchase = purchaseRepository.save(product.reserveQuantityFor(newPurchase, user).get());
+    }
+
+    @Test
+    @DisplayName("Should enqueue the post purchase actions with the payment and deliver them after the commit")
+    void test1() throws Exception {
+        recordingAction.behavior = processed -> awaitUninterruptibly(release);
+
+        confirmPayment();
+
+        List<PostPurchaseOutboxMessage> messages = outboxRepository.findAll();
+        assertEquals(2, messages.size());
+        assertTrue(messages.stream().allMatch(message -> message.getPurchaseId().equals(purchase.getId())));
+        assertTrue(messages.stream().allMatch(message -> message.getBaseUrl().equals("http://localhost:8080")));
+
+        assertEquals(purchase.getId(), recordingAction.executions.poll(5, SECONDS));
+        assertEquals(OutboxStatus.PENDING, findMessage("RecordingAction").getStatus());
+
+        release.countDown();
+
+        PostPurchaseOutboxMessage delivered = awaitMessage("RecordingAction", OutboxStatus.DELIVERED);
+        assertEquals(1, delivered.getAttempts());
+    }
+
+    @Test
+    @DisplayName("Should retry a failing post purchase action and give up once the max attempts is reached")
+    void test2() throws Exception {
+        recordingAction.behavior = processed -> {
+            throw new IllegalStateException("downstream is unavailable");
+        };
+
+        confirmPayment();
+
+        PostPurchaseOutboxMessage failed = awaitMessage("RecordingAction", OutboxStatus.FAILED);
+        assertEquals(3, failed.getAttempts());
+        assertEquals(3, recordingAction.executions.size());
+    }
+
+    @Test
+    @DisplayName("Should interrupt a post purchase action past its timeout and retry it only after it has returned")
+    void test3() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        slowAction.behavior = processed -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+
+            // keeps running after the interrupt, as a call that ignores it would
+            slowAction.behavior = retried -> { };
+            awaitUninterruptibly(release);
+            throw new IllegalStateException("downstream did not answer");
+        };
+
+        confirmPayment();
+
+        assertTrue(interrupted.await(5, SECONDS));
+
+        // several leases of 0.4s go by while the action still runs
+        Thread.sleep(1_000);
+        assertEquals(1, slowAction.executions.size());
+        assertEquals(0, findMessage("SlowAction").getAttempts());
+
+        release.countDown();
+
+        PostPurchaseOutboxMessage delivered = awaitMessage("SlowAction", OutboxStatus.DELIVERED);
+        assertEquals(2, delivered.getAttempts());
+        assertEquals(2, slowAction.executions.size());
+    }
+
+    @Test
+    @DisplayName("Should deliver a post purchase action while another one is blocked")
+    void test4() throws Exception {
+        slowAction.behavior = processed -> awaitUninterruptibly(release);
+
+        confirmPayment();
+
+        assertEquals(purchase.getId(), slowAction.executions.poll(5, SECONDS));
+        awaitMessage("RecordingAction", OutboxStatus.DELIVERED);
+        assertEquals(OutboxStatus.PENDING, findMessage("SlowAction").getStatus());
+    }
+
+    private void confirmPayment() {
+        callbackProcessor.process(new PaymentReturn(purchase.getId(), "1", "1"),
+                UriComponentsBuilder.fromUriString("http://localhost:8080/api/purchases/confirm-payment"));
+    }
+
+    private PostPurchaseOutboxMessage findMessage(String action) {
+        return outboxRepository.findAll()
+                               .stream()
+                               .filter(message -> message.getAction().equals(action))
+                               .findFirst()
+                               .orElseThrow(() -> new AssertionError("No outbox message for " + action));
+    }
+
+    private PostPurchaseOutboxMessage awaitMessage(String action, OutboxStatus status) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            PostPurchaseOutboxMessage message = findMessage(action);
+            if (message.getStatus() == status) {
+                return message;
+            }
+
+            Thread.sleep(50);
+        }
+
+        return fail("Outbox message of " + action + " did not become " + status + " " + findMessage(action));
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void clearDB() {
+        outboxRepository.deleteAll();
+        callbackRepository.deleteAll();
+        purchaseRepository.deleteAll();
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    /**
+     * runs what the test sets as its behavior and records the purchases it has been called with
+     */
+    abstract static class ControllableAction implements PostPurchaseAction {
+
+        final BlockingQueue<Long> executions = new LinkedBlockingQueue<>();
+        volatile Consumer<PostPaymentProcessedPurchase> behavior = processed -> { };
+
+        @Override
+        public void execute(PostPaymentProcessedPurchase payment, UriComponentsBuilder uriBuilder) {
+            executions.add(payment.getId());
+            behavior.accept(payment);
+        }
+
+        void reset() {
+            executions.clear();
+            behavior = processed -> { };
+        }
+    }
+
+    static class RecordingAction extends ControllableAction {
+    }
+
+    /**
+     * a second action, with its own bulkhead and a short timeout
+     */
+    static class SlowAction extends ControllableAction {
+    }
+
+    @TestConfiguration
+    static class PostPurchaseActions {
+
+        @Bean
+        RecordingAction recordingAction() {
+            return new RecordingAction();
+        }
+
+        @Bean
+        SlowAction slowAction() {
+            return new SlowAction();
+        }
+    }
+}
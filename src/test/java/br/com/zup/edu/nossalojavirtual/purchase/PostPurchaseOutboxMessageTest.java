@@ -0,0 +1,47 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import br.com.zup.edu.nossalojavirtual.purchase.PostPurchaseOutboxMessage.OutboxStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostPurchaseOutboxMessageTest {
+
+    @Test
+    @DisplayName("Should be delivered")
+    void test1() {
+        PostPurchaseOutboxMessage message = new PostPurchaseOutboxMessage(1L, "SendPurchaseFailEmail", "http://localhost:8080");
+
+        message.delivered();
+
+        assertEquals(OutboxStatus.DELIVERED, message.getStatus());
+        assertEquals(1, message.getAttempts());
+    }
+
+    @Test
+    @DisplayName("Should be retried while the max attempts is not reached")
+    void test2() {
+        PostPurchaseOutboxMessage message = new PostPurchaseOutboxMessage(1L, "SendPurchaseFailEmail", "http://localhost:8080");
+
+        message.failed("timeout", Duration.ofSeconds(5), 2);
+        assertEquals(OutboxStatus.PENDING, message.getStatus());
+
+        message.failed("timeout", Duration.ofSeconds(10), 2);
+        assertEquals(OutboxStatus.FAILED, message.getStatus());
+        assertEquals(2, message.getAttempts());
+    }
+
+    @Test
+    @DisplayName("Should throw Illegal Argument Exception in case of action is blank")
+    void test3() {
+        IllegalArgumentException illegalArgumentException = assertThrows(
+                IllegalArgumentException.class,
+                () -> new PostPurchaseOutboxMessage(1L, "", "http://localhost:8080")
+        );
+
+        assertEquals("action must not be blank", illegalArgumentException.getMessage());
+    }
+}
@@ -17,6 +17,7 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.http.MediaType;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.test.context.ActiveProfiles;
@@ -50,7 +51,7 @@ class PurchaseControllerTest {
     @Autowired
     PurchaseRepository purchaseRepository;
 
-    @Autowired
+    @SpyBean
     ProductRepository productRepository;
 
     @Autowired
@@ -59,6 +60,9 @@ class PurchaseControllerTest {
     @Autowired
     CategoryRepository categoryRepository;
 
+    @Autowired
+    PurchaseIdempotencyKeyRepository idempotencyKeyRepository;
+
     private PhotoUploader photoUploaderMock;
     private Product product;
     private String apiUrl = "/api/purchase";
@@ -302,7 +306,73 @@ class PurchaseControllerTest {
                 .andExpect(MockMvcResultMatchers.status().isForbidden());
     }
 
+    @Test
+    @DisplayName("Should return the original payment url when the idempotency key is repeated")
+    void test9() throws Exception {
+        NewPurchaseRequest newPurchaseRequest = new NewPurchaseRequest(product.getId(), 2, PaymentGateway.PAYPAL);
+
+        String payload = mapper.writeValueAsString(newPurchaseRequest);
+        String idempotencyKey = UUID.randomUUID().toString();
+
+        List<Object> paymentUrls = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(apiUrl)
+                    .with(jwt()
+                            .jwt(jwt ->
+                                    jwt.claim("email", user.getUsername())
+                            )
+                            .authorities(new SimpleGrantedAuthority("SCOPE_lojavirtual:write")))
+                    .header(PurchaseController.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                    .content(payload)
+                    .contentType(MediaType.APPLICATION_JSON);
+
+            String responsePayload = mockMvc.perform(request)
+                    .andExpect(MockMvcResultMatchers.status().isOk())
+                    .andReturn()
+                    .getResponse()
+                    .getContentAsString(StandardCharsets.UTF_8);
+
+            paymentUrls.add(mapper.readValue(responsePayload, Map.class).get("paymentUrl"));
+        }
+
+        assertEquals(paymentUrls.get(0), paymentUrls.get(1));
+        assertEquals(1, purchaseRepository.findAll().size());
+        assertEquals(1, idempotencyKeyRepository.findAll().size());
+        assertEquals(3, productRepository.findById(product.getId()).get().getStockQuantity());
+    }
+
+    @Test
+    @DisplayName("Should not validate nor read the product again when the idempotency key is repeated")
+    void test10() throws Exception {
+        NewPurchaseRequest newPurchaseRequest = new NewPurchaseRequest(product.getId(), 2, PaymentGateway.PAYPAL);
+
+        String payload = mapper.writeValueAsString(newPurchaseRequest);
+        String idempotencyKey = UUID.randomUUID().toString();
+
+        for (int i = 0; i < 2; i++) {
+            if (i == 1) {
+                Mockito.clearInvocations(productRepository);
+            }
+
+            MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(apiUrl)
+                    .with(jwt()
+                            .jwt(jwt ->
+                                    jwt.claim("email", user.getUsername())
+                            )
+                            .authorities(new SimpleGrantedAuthority("SCOPE_lojavirtual:write")))
+                    .header(PurchaseController.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                    .content(payload)
+                    .contentType(MediaType.APPLICATION_JSON);
+
+            mockMvc.perform(request)
+                    .andExpect(MockMvcResultMatchers.status().isOk());
+        }
+
+        Mockito.verifyNoInteractions(productRepository);
+    }
+
     private void clearDB() {
+        idempotencyKeyRepository.deleteAll();
         purchaseRepository.deleteAll();
         productRepository.deleteAll();
         categoryRepository.deleteAll();
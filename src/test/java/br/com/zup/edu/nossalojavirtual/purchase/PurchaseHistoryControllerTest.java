@@ -0,0 +1,154 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import br.com.zup.edu.nossalojavirtual.categories.Category;
+import br.com.zup.edu.nossalojavirtual.categories.CategoryRepository;
+import br.com.zup.edu.nossalojavirtual.products.*;
+import br.com.zup.edu.nossalojavirtual.users.Password;
+import br.com.zup.edu.nossalojavirtual.users.User;
+import br.com.zup.edu.nossalojavirtual.users.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc(printOnlyOnFailure = false)
+class PurchaseHistoryControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper mapper;
+
+    @Autowired
+    PurchaseRepository purchaseRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    CategoryRepository categoryRepository;
+
+    private String apiUrl = "/api/purchases";
+    private User buyer;
+    private User otherBuyer;
+    private Product product;
+
+    @AfterEach
+    void tearDown() {
+        this.clearDB();
+    }
+
+    @BeforeEach
+    void setUp() {
+        this.clearDB();
+
+        buyer = new User("henrique.desousa@zup.com.br", Password.encode("123456"));
+        userRepository.save(buyer);
+
+        otherBuyer = new User("outro.comprador@zup.com.br", Password.encode("123456"));
+        userRepository.save(otherBuyer);
+
+        Category category = new Category("Eletrônicos");
+        categoryRepository.save(category);
+
+        List<Photo> photos = List.of(new Photo("https://cf.shopee.com.br/file/be1b6889f9b5fdea9588a355d97427c9/uploadedLink1"));
+        Characteristic c1 = new Characteristic("Portátil", "Cabe no seu bolso");
+        Characteristic c2 = new Characteristic("Resistente", "Dura anos");
+        Characteristic c3 = new Characteristic("Azul", "Azul marinho");
+
+        PreProduct preProduct = new PreProduct(buyer, category, "Tijorola", new BigDecimal("150.00"), 100, "Muito bom");
+        product = productRepository.save(new Product(preProduct, photos, Set.of(c1, c2, c3)));
+    }
+
+    @Test
+    @DisplayName("Should page the buyer purchases from the newest to the oldest")
+    void test1() throws Exception {
+        Purchase first = newPurchase(buyer, 1);
+        Purchase second = newPurchase(buyer, 2);
+        Purchase third = newPurchase(buyer, 3);
+        newPurchase(otherBuyer, 1);
+
+        Map firstPage = history(historyRequest().param("size", "2"));
+
+        List<Map> purchases = (List<Map>) firstPage.get("purchases");
+        assertEquals(2, purchases.size());
+        assertEquals(third.getId().intValue(), purchases.get(0).get("id"));
+        assertEquals(second.getId().intValue(), purchases.get(1).get("id"));
+        assertEquals("Tijorola", purchases.get(0).get("productName"));
+        assertEquals(3, purchases.get(0).get("quantity"));
+        assertEquals(150.0, purchases.get(0).get("unitPrice"));
+        assertEquals(450.0, purchases.get(0).get("total"));
+        assertEquals("INICIADA", purchases.get(0).get("status"));
+        assertEquals(second.getId().intValue(), firstPage.get("nextCursor"));
+
+        Map secondPage = history(historyRequest().param("size", "2")
+                                                 .param("cursor", firstPage.get("nextCursor").toString()));
+
+        purchases = (List<Map>) secondPage.get("purchases");
+        assertEquals(1, purchases.size());
+        assertEquals(first.getId().intValue(), purchases.get(0).get("id"));
+        assertNull(secondPage.get("nextCursor"));
+    }
+
+    @Test
+    @DisplayName("Should return an empty history for a buyer without purchases")
+    void test2() throws Exception {
+        newPurchase(otherBuyer, 1);
+
+        Map page = history(historyRequest());
+
+        assertTrue(((List) page.get("purchases")).isEmpty());
+        assertNull(page.get("nextCursor"));
+    }
+
+    private Purchase newPurchase(User buyer, int quantity) {
+        NewPurchaseRequest newPurchase = new NewPurchaseRequest(product.getId(), quantity, PaymentGateway.PAYPAL);
+        return purchaseRepository.save(product.reserveQuantityFor(newPurchase, buyer).get());
+    }
+
+    private MockHttpServletRequestBuilder historyRequest() {
+        return MockMvcRequestBuilders.get(apiUrl)
+                .with(jwt().jwt(jwt -> jwt.claim("email", buyer.getUsername())));
+    }
+
+    private Map history(MockHttpServletRequestBuilder request) throws Exception {
+        String responsePayload = mockMvc.perform(request)
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(StandardCharsets.UTF_8);
+
+        return mapper.readValue(responsePayload, Map.class);
+    }
+
+    private void clearDB() {
+        purchaseRepository.deleteAll();
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+}
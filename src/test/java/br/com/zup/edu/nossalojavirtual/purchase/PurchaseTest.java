@@ -155,4 +155,62 @@ class PurchaseTest {
         assertNotNull(purchase.paymentConfirmedTime());
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("Should move purchase to PAGA after a success payment")
+    void test8() {
+
+        Purchase purchase = new Purchase(user, product, 1, PaymentGateway.PAYPAL);
+        assertEquals(Status.INICIADA, purchase.getStatus());
+
+        purchase.process(new PaymentReturn(purchase.getId(), "1", "1"));
+
+        assertEquals(Status.PAGA, purchase.getStatus());
+        assertTrue(purchase.isPaymentSuccessful());
+    }
+
+    @Test
+    @DisplayName("Should allow a new payment attempt after a failed one")
+    void test9() {
+
+        Purchase purchase = new Purchase(user, product, 1, PaymentGateway.PAYPAL);
+
+        purchase.process(new PaymentReturn(purchase.getId(), "1", "2"));
+        assertEquals(Status.FALHOU, purchase.getStatus());
+        assertFalse(purchase.isPaymentSuccessful());
+
+        purchase.process(new PaymentReturn(purchase.getId(), "2", "1"));
+        assertEquals(Status.PAGA, purchase.getStatus());
+        assertNotNull(purchase.paymentConfirmedTime());
+    }
+
+    @Test
+    @DisplayName("Should throw Illegal State Exception in case of an expired purchase is paid")
+    void test10() {
+
+        Purchase purchase = new Purchase(user, product, 1, PaymentGateway.PAYPAL);
+        purchase.expire();
+
+        assertEquals(Status.EXPIRADA, purchase.getStatus());
+
+        IllegalStateException illegalStateException = assertThrows(
+                IllegalStateException.class,
+                () -> purchase.process(new PaymentReturn(purchase.getId(), "1", "1"))
+        );
+
+        assertEquals("A finished Purchase cannot be paid again", illegalStateException.getMessage());
+    }
+
+    @Test
+    @DisplayName("Should keep a snapshot of the product as it was when it was bought")
+    void test11() {
+
+        Purchase purchase = new Purchase(user, product, 2, PaymentGateway.PAYPAL);
+        PurchasedProduct purchasedProduct = purchase.getPurchasedProduct();
+
+        assertEquals("Tijorola", purchasedProduct.getName());
+        assertEquals(new BigDecimal("150.00"), purchasedProduct.getUnitPrice());
+        assertEquals("henrique.desousa@zup.com.br", purchasedProduct.getSellerEmail());
+        assertEquals("https://cf.shopee.com.br/file/be1b6889f9b5fdea9588a355d97427c9/uploadedLink1", purchasedProduct.getPhotoUrl());
+        assertEquals("henrique.desousa@zup.com.br", purchase.buyerEmail());
+    }
+}
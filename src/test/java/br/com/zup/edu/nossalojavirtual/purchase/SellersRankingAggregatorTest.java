@@ -0,0 +1,101 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import br.com.zup.edu.nossalojavirtual.purchase.SellersRankingClient.SellerRankingDelta;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.stream.Collectors.toMap;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class SellersRankingAggregatorTest {
+
+    @TempDir
+    Path journalDirectory;
+
+    private SellersRankingClient sellersRankingClientMock;
+
+    @BeforeEach
+    void setUp() {
+        sellersRankingClientMock = mock(SellersRankingClient.class);
+    }
+
+    @Test
+    @DisplayName("Should send one delta per seller on flush")
+    void test1() throws Exception {
+        SellersRankingAggregator aggregator = new SellersRankingAggregator(sellersRankingClientMock, journalDirectory);
+
+        aggregator.record("seller1@zup.com.br", new BigDecimal("150.00"));
+        aggregator.record("seller1@zup.com.br", new BigDecimal("50.50"));
+        aggregator.record("seller2@zup.com.br", new BigDecimal("10"));
+
+        aggregator.flush();
+
+        Map<String, SellerRankingDelta> deltas = sentDeltas(1);
+        assertEquals(2, deltas.size());
+        assertEquals(2, deltas.get("seller1@zup.com.br").getPurchases());
+        assertEquals(new BigDecimal("200.50"), deltas.get("seller1@zup.com.br").getRevenue());
+        assertEquals(new BigDecimal("10.00"), deltas.get("seller2@zup.com.br").getRevenue());
+
+        aggregator.flush();
+        verifyNoMoreInteractions(sellersRankingClientMock);
+
+        aggregator.destroy();
+    }
+
+    @Test
+    @DisplayName("Should recover unsent purchases from the journal after a crash")
+    void test2() throws Exception {
+        SellersRankingAggregator crashed = new SellersRankingAggregator(sellersRankingClientMock, journalDirectory);
+        crashed.record("seller1@zup.com.br", new BigDecimal("150.00"));
+        crashed.record("seller1@zup.com.br", new BigDecimal("150.00"));
+
+        SellersRankingAggregator restarted = new SellersRankingAggregator(sellersRankingClientMock, journalDirectory);
+        restarted.flush();
+
+        Map<String, SellerRankingDelta> deltas = sentDeltas(1);
+        assertEquals(2, deltas.get("seller1@zup.com.br").getPurchases());
+        assertEquals(new BigDecimal("300.00"), deltas.get("seller1@zup.com.br").getRevenue());
+
+        restarted.destroy();
+        try (var segments = Files.list(journalDirectory)) {
+            assertTrue(segments.allMatch(segment -> segment.toFile().length() == 0));
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep the deltas that could not be sent for the next flush")
+    void test3() throws Exception {
+        SellersRankingAggregator aggregator = new SellersRankingAggregator(sellersRankingClientMock, journalDirectory);
+        doThrow(new IllegalStateException("ranking system is down")).doNothing()
+                .when(sellersRankingClientMock).registerDeltas(anyList());
+
+        aggregator.record("seller1@zup.com.br", new BigDecimal("150.00"));
+        aggregator.flush();
+
+        aggregator.record("seller1@zup.com.br", new BigDecimal("150.00"));
+        aggregator.flush();
+
+        Map<String, SellerRankingDelta> deltas = sentDeltas(2);
+        assertEquals(2, deltas.get("seller1@zup.com.br").getPurchases());
+
+        aggregator.destroy();
+    }
+
+    private Map<String, SellerRankingDelta> sentDeltas(int calls) {
+        ArgumentCaptor<List<SellerRankingDelta>> captor = ArgumentCaptor.forClass(List.class);
+        verify(sellersRankingClientMock, times(calls)).registerDeltas(captor.capture());
+
+        return captor.getValue().stream().collect(toMap(SellerRankingDelta::getSellerId, delta -> delta));
+    }
+}
@@ -8,19 +8,22 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 class SendPurchaseConfirmationToInvoiceSystemTest {
 
     private SendPurchaseConfirmationToInvoiceSystem sendPurchaseConfirmationToInvoiceSystem;
-    private InvoiceClient invoiceClientMock;
+    private InvoiceBatchSender invoiceBatchSenderMock;
 
     private PhotoUploader photoUploaderMock;
     private User user;
@@ -65,15 +68,16 @@ class SendPurchaseConfirmationToInvoiceSystemTest {
 
         postPaymentProcessedPurchase = purchase.process(paymentReturn);
 
-        invoiceClientMock = mock(InvoiceClient.class);
-        sendPurchaseConfirmationToInvoiceSystem = new SendPurchaseConfirmationToInvoiceSystem(invoiceClientMock);
+        invoiceBatchSenderMock = mock(InvoiceBatchSender.class);
+        when(invoiceBatchSenderMock.send(any())).thenReturn(CompletableFuture.completedFuture(null));
+        sendPurchaseConfirmationToInvoiceSystem = new SendPurchaseConfirmationToInvoiceSystem(invoiceBatchSenderMock);
     }
 
     @Test
     @DisplayName("Verify if invoice is requested")
     void test1() {
         sendPurchaseConfirmationToInvoiceSystem.execute(postPaymentProcessedPurchase, UriComponentsBuilder.newInstance());
-        verify(invoiceClientMock, times(1)).requestInvoice(any());
+        verify(invoiceBatchSenderMock, times(1)).send(any());
     }
 
     @Test
@@ -86,6 +90,20 @@ class SendPurchaseConfirmationToInvoiceSystemTest {
         PostPaymentProcessedPurchase postPaymentProcessedPurchase = notSuccessfulPurchase.process(paymentReturn);
 
         sendPurchaseConfirmationToInvoiceSystem.execute(postPaymentProcessedPurchase, UriComponentsBuilder.newInstance());
-        verify(invoiceClientMock, times(0)).requestInvoice(any());
+        verify(invoiceBatchSenderMock, times(0)).send(any());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should not wait for the invoice batch inside a transaction")
+    void test3() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertThrows(IllegalStateException.class,
+                    () -> sendPurchaseConfirmationToInvoiceSystem.execute(postPaymentProcessedPurchase, UriComponentsBuilder.newInstance()));
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+
+        verify(invoiceBatchSenderMock, times(0)).send(any());
+    }
+}
@@ -22,7 +22,7 @@ import static org.mockito.Mockito.*;
 class SendPurchaseConfirmationToSellersSystemTest {
 
     private SendPurchaseConfirmationToSellersSystem sendPurchaseConfirmationToSellersSystem;
-    private SellersRankingClient sellersRankingClientMock;
+    private SellersRankingAggregator sellersRankingAggregatorMock;
 
     private PhotoUploader photoUploaderMock;
     private User user;
@@ -67,15 +67,15 @@ class SendPurchaseConfirmationToSellersSystemTest {
 
         postPaymentProcessedPurchase = purchase.process(paymentReturn);
 
-        sellersRankingClientMock = mock(SellersRankingClient.class);
-        sendPurchaseConfirmationToSellersSystem = new SendPurchaseConfirmationToSellersSystem(sellersRankingClientMock);
+        sellersRankingAggregatorMock = mock(SellersRankingAggregator.class);
+        sendPurchaseConfirmationToSellersSystem = new SendPurchaseConfirmationToSellersSystem(sellersRankingAggregatorMock);
     }
 
     @Test
     @DisplayName("Verify if invoice is requested")
     void test1() {
         sendPurchaseConfirmationToSellersSystem.execute(postPaymentProcessedPurchase, UriComponentsBuilder.newInstance());
-        verify(sellersRankingClientMock, times(1)).requestInvoice(any());
+        verify(sellersRankingAggregatorMock, times(1)).record("henrique.desousa@zup.com.br", new BigDecimal("150.00"));
     }
 
     @Test
@@ -88,7 +88,7 @@ class SendPurchaseConfirmationToSellersSystemTest {
         PostPaymentProcessedPurchase postPaymentProcessedPurchase = notSuccessfulPurchase.process(paymentReturn);
 
         sendPurchaseConfirmationToSellersSystem.execute(postPaymentProcessedPurchase, UriComponentsBuilder.newInstance());
-        verify(sellersRankingClientMock, times(0)).requestInvoice(any());
+        verify(sellersRankingAggregatorMock, times(0)).record(any(), any());
     }
 
 }
\ No newline at end of file
@@ -2,7 +2,8 @@ package br.com.zup.edu.nossalojavirtual.purchase;
 
 import br.com.zup.edu.nossalojavirtual.categories.Category;
 import br.com.zup.edu.nossalojavirtual.products.*;
-import br.com.zup.edu.nossalojavirtual.products.shared.email.EmailService;
+import br.com.zup.edu.nossalojavirtual.products.shared.email.EmailOutbox;
+import br.com.zup.edu.nossalojavirtual.products.shared.email.EmailTemplates;
 import br.com.zup.edu.nossalojavirtual.users.Password;
 import br.com.zup.edu.nossalojavirtual.users.User;
 import org.junit.jupiter.api.BeforeEach;
@@ -22,7 +23,7 @@ import static org.mockito.Mockito.*;
 class SendPurchaseEmailConfirmationTest {
 
     private SendPurchaseEmailConfirmation sendPurchaseEmailConfirmation;
-    private EmailService emailServiceMock;
+    private EmailOutbox emailOutboxMock;
 
     private PhotoUploader photoUploaderMock;
     private User user;
@@ -67,15 +68,15 @@ class SendPurchaseEmailConfirmationTest {
 
         postPaymentProcessedPurchase = purchase.process(paymentReturn);
 
-        emailServiceMock = mock(EmailService.class);
-        sendPurchaseEmailConfirmation = new SendPurchaseEmailConfirmation(emailServiceMock);
+        emailOutboxMock = mock(EmailOutbox.class);
+        sendPurchaseEmailConfirmation = new SendPurchaseEmailConfirmation(emailOutboxMock, mock(EmailTemplates.class));
     }
 
     @Test
     @DisplayName("Verify if email was sent")
     void test1() {
         sendPurchaseEmailConfirmation.execute(postPaymentProcessedPurchase, UriComponentsBuilder.newInstance());
-        verify(emailServiceMock, times(1)).send(any());
+        verify(emailOutboxMock, times(1)).enqueue(any());
     }
 
     @Test
@@ -88,6 +89,6 @@ class SendPurchaseEmailConfirmationTest {
         PostPaymentProcessedPurchase postPaymentProcessedPurchase = notSuccessfulPurchase.process(paymentReturn);
 
         sendPurchaseEmailConfirmation.execute(postPaymentProcessedPurchase, UriComponentsBuilder.newInstance());
-        verify(emailServiceMock, times(0)).send(any());
+        verify(emailOutboxMock, times(0)).enqueue(any());
     }
 }
\ No newline at end of file
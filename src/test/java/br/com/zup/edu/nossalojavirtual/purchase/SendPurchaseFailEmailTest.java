@@ -2,7 +2,8 @@ package br.com.zup.edu.nossalojavirtual.purchase;
 
 import br.com.zup.edu.nossalojavirtual.categories.Category;
 import br.com.zup.edu.nossalojavirtual.products.*;
-import br.com.zup.edu.nossalojavirtual.products.shared.email.EmailService;
+import br.com.zup.edu.nossalojavirtual.products.shared.email.EmailOutbox;
+import br.com.zup.edu.nossalojavirtual.products.shared.email.EmailTemplates;
 import br.com.zup.edu.nossalojavirtual.users.Password;
 import br.com.zup.edu.nossalojavirtual.users.User;
 import org.junit.jupiter.api.BeforeEach;
@@ -22,7 +23,7 @@ import static org.mockito.Mockito.*;
 class SendPurchaseFailEmailTest {
 
     private SendPurchaseFailEmail sendPurchaseFailEmail;
-    private EmailService emailServiceMock;
+    private EmailOutbox emailOutboxMock;
 
     private PhotoUploader photoUploaderMock;
     private User user;
@@ -67,15 +68,15 @@ class SendPurchaseFailEmailTest {
 
         postPaymentProcessedPurchase = purchase.process(paymentReturn);
 
-        emailServiceMock = mock(EmailService.class);
-        sendPurchaseFailEmail = new SendPurchaseFailEmail(emailServiceMock);
+        emailOutboxMock = mock(EmailOutbox.class);
+        sendPurchaseFailEmail = new SendPurchaseFailEmail(emailOutboxMock, mock(EmailTemplates.class));
     }
 
     @Test
     @DisplayName("Verify if email was not sent in case of payment is successful")
     void test1() {
         sendPurchaseFailEmail.execute(postPaymentProcessedPurchase, UriComponentsBuilder.newInstance());
-        verify(emailServiceMock, times(0)).send(any());
+        verify(emailOutboxMock, times(0)).enqueue(any());
     }
 
     @Test
@@ -88,6 +89,6 @@ class SendPurchaseFailEmailTest {
         PostPaymentProcessedPurchase postPaymentProcessedPurchase = notSuccessfulPurchase.process(paymentReturn);
 
         sendPurchaseFailEmail.execute(postPaymentProcessedPurchase, UriComponentsBuilder.newInstance());
-        verify(emailServiceMock, times(1)).send(any());
+        verify(emailOutboxMock, times(1)).enqueue(any());
     }
 }
\ No newline at end of file
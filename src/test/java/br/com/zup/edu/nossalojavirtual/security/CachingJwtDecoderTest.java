@@ -0,0 +1,123 @@
+package br.com.zup.edu.nossalojavirtual.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CachingJwtDecoderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private JwtDecoder delegateMock;
+
+    @BeforeEach
+    void setUp() {
+        delegateMock = mock(JwtDecoder.class);
+    }
+
+    @Test
+    @DisplayName("Should verify a token once and return it from the cache until it expires")
+    void test1() {
+        MutableClock clock = new MutableClock(Instant.now());
+        Jwt expiring = jwt("token", clock.instant().plusMillis(200));
+        Jwt renewed = jwt("token", clock.instant().plus(Duration.ofHours(1)));
+        when(delegateMock.decode("token")).thenReturn(expiring, renewed);
+
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegateMock, meterRegistry, 100, clock);
+
+        assertSame(expiring, decoder.decode("token"));
+        assertSame(expiring, decoder.decode("token"));
+        verify(delegateMock, times(1)).decode("token");
+
+        clock.advance(Duration.ofMillis(250));
+
+        assertSame(renewed, decoder.decode("token"));
+        verify(delegateMock, times(2)).decode("token");
+        assertEquals(1, meterRegistry.get("security.jwt.cache").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should not cache tokens that fail, have no expiration or do not fit")
+    void test2() {
+        when(delegateMock.decode("invalid")).thenThrow(new BadJwtException("invalid signature"));
+        when(delegateMock.decode("endless")).thenReturn(jwt("endless", null));
+        when(delegateMock.decode("first")).thenReturn(jwt("first", Instant.now().plus(Duration.ofHours(1))));
+        when(delegateMock.decode("second")).thenReturn(jwt("second", Instant.now().plus(Duration.ofHours(1))));
+
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegateMock, meterRegistry, 1, Clock.systemUTC());
+
+        for (int i = 0; i < 2; i++) {
+            assertThrows(BadJwtException.class, () -> decoder.decode("invalid"));
+            decoder.decode("endless");
+            decoder.decode("first");
+            decoder.decode("second");
+        }
+
+        verify(delegateMock, times(2)).decode("invalid");
+        verify(delegateMock, times(2)).decode("endless");
+        verify(delegateMock, times(1)).decode("first");
+        verify(delegateMock, times(2)).decode("second");
+    }
+
+    @Test
+    @DisplayName("Should verify the tokens again after the cache is cleared")
+    void test3() {
+        when(delegateMock.decode("token")).thenReturn(jwt("token", Instant.now().plus(Duration.ofHours(1))));
+
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegateMock, meterRegistry, 100, Clock.systemUTC());
+        decoder.decode("token");
+        decoder.clear();
+        decoder.decode("token");
+
+        verify(delegateMock, times(2)).decode("token");
+    }
+
+    private static Jwt jwt(String token, Instant expiresAt) {
+        Jwt.Builder jwt = Jwt.withTokenValue(token)
+                             .header("alg", "RS256")
+                             .claim("email", "henrique.desousa@zup.com.br")
+                             .issuedAt(Instant.now().minusSeconds(1));
+
+        return expiresAt == null ? jwt.build() : jwt.expiresAt(expiresAt).build();
+    }
+
+    private static class MutableClock extends Clock {
+
+        private volatile Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
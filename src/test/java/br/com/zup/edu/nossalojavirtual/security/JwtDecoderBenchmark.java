@@ -0,0 +1,75 @@
+package br.com.zup.edu.nossalojavirtual.security;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static java.time.temporal.ChronoUnit.HOURS;
+
+/**
+ * Compares a token verified by {@link CachingJwtDecoder} against the RSA signature verification it skips for the tokens already seen.
+ * It is not a test, run it from the test classpath with {@link #main}, the gc profiler reports the allocation per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtDecoderBenchmark {
+
+    private JwtDecoder verifying;
+    private JwtDecoder caching;
+    private String token;
+
+    @Setup
+    public void setUp() throws Exception {
+        RSAKey key = new RSAKeyGenerator(2048).keyID("benchmark").generate();
+
+        JWTClaimsSet claims = new JWTClaimsSet.Builder().claim("email", "henrique.desousa@zup.com.br")
+                                                        .claim("scope", "lojavirtual:read lojavirtual:write")
+                                                        .issueTime(new Date())
+                                                        .expirationTime(Date.from(Instant.now().plus(1, HOURS)))
+                                                        .build();
+        SignedJWT signed = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+        signed.sign(new RSASSASigner(key));
+        token = signed.serialize();
+
+        verifying = NimbusJwtDecoder.withPublicKey(key.toRSAPublicKey()).build();
+        caching = new CachingJwtDecoder(verifying, new SimpleMeterRegistry(), 10_000, Clock.systemUTC());
+    }
+
+    @Benchmark
+    public Jwt verify() {
+        return verifying.decode(token);
+    }
+
+    @Benchmark
+    public Jwt cached() {
+        return caching.decode(token);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtDecoderBenchmark.class.getSimpleName())
+                                       .addProfiler(GCProfiler.class)
+                                       .build()).run();
+    }
+}
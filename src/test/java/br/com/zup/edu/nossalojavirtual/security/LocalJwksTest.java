@@ -0,0 +1,138 @@
+package br.com.zup.edu.nossalojavirtual.security;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalJwksTest {
+
+    @TempDir
+    Path directory;
+
+    private final JWKSelector anyKey = new JWKSelector(new JWKMatcher.Builder().build());
+    private LocalJwks localJwks;
+
+    @AfterEach
+    void tearDown() {
+        localJwks.destroy();
+    }
+
+    @Test
+    @DisplayName("Should load the keys from the file and notify when a refresh changes them")
+    void test1() throws Exception {
+        Path file = writeKey("first", directory.resolve("jwks.json"));
+        localJwks = localJwks(file);
+
+        AtomicInteger changes = new AtomicInteger();
+        localJwks.onChange(changes::incrementAndGet);
+
+        assertEquals("first", localJwks.get(anyKey, null).get(0).getKeyID());
+
+        localJwks.refresh();
+        assertEquals(0, changes.get());
+
+        writeKey("second", file);
+        localJwks.refresh();
+        assertEquals(1, changes.get());
+        assertEquals("second", localJwks.get(anyKey, null).get(0).getKeyID());
+    }
+
+    @Test
+    @DisplayName("Should keep the keys in use when a refresh fails")
+    void test2() throws Exception {
+        Path file = writeKey("first", directory.resolve("jwks.json"));
+        localJwks = localJwks(file);
+
+        Files.writeString(file, "{\"keys\": ");
+        localJwks.refresh();
+
+        assertEquals("first", localJwks.get(anyKey, null).get(0).getKeyID());
+    }
+
+    @Test
+    @DisplayName("Should retry loading keys that were never loaded at most once per retry interval")
+    void test3() throws Exception {
+        Path file = Files.writeString(directory.resolve("jwks.json"), "{\"keys\": ");
+        localJwks = localJwks(file, Duration.ofHours(1));
+
+        writeKey("first", file);
+        assertThrows(KeySourceException.class, () -> localJwks.get(anyKey, null));
+
+        localJwks.destroy();
+        Files.writeString(file, "{\"keys\": ");
+        localJwks = localJwks(file, Duration.ZERO);
+
+        writeKey("first", file);
+        assertEquals("first", localJwks.get(anyKey, null).get(0).getKeyID());
+    }
+
+    @Test
+    @DisplayName("Should load the keys from the uri again when a token has an unknown key id, at most once per retry interval")
+    void test4() throws Exception {
+        AtomicReference<String> keys = new AtomicReference<>(jwkSet("first"));
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/certs", exchange -> {
+            byte[] body = keys.get().getBytes(UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream response = exchange.getResponseBody()) {
+                response.write(body);
+            }
+        });
+        server.start();
+
+        try {
+            String jwkSetUri = "http://localhost:" + server.getAddress().getPort() + "/certs";
+            JWKSelector rotatedKey = new JWKSelector(new JWKMatcher.Builder().keyID("second").build());
+
+            localJwks = new LocalJwks(new DefaultResourceLoader(), jwkSetUri, "", Duration.ofHours(1), Duration.ofHours(1));
+            keys.set(jwkSet("second"));
+            assertTrue(localJwks.get(rotatedKey, null).isEmpty());
+
+            localJwks.destroy();
+            keys.set(jwkSet("first"));
+            localJwks = new LocalJwks(new DefaultResourceLoader(), jwkSetUri, "", Duration.ofHours(1), Duration.ZERO);
+            keys.set(jwkSet("second"));
+            assertEquals("second", localJwks.get(rotatedKey, null).get(0).getKeyID());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private LocalJwks localJwks(Path file) {
+        return localJwks(file, Duration.ofSeconds(10));
+    }
+
+    private LocalJwks localJwks(Path file, Duration retryInterval) {
+        return new LocalJwks(new DefaultResourceLoader(), "http://localhost:18080/unused", file.toUri().toString(), Duration.ofHours(1), retryInterval);
+    }
+
+    private static Path writeKey(String keyId, Path file) throws Exception {
+        return Files.writeString(file, jwkSet(keyId));
+    }
+
+    private static String jwkSet(String keyId) throws Exception {
+        RSAKey key = new RSAKeyGenerator(2048).keyID(keyId).generate();
+        return new JWKSet(key.toPublicJWK()).toString();
+    }
+}
@@ -0,0 +1,55 @@
+package br.com.zup.edu.nossalojavirtual.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+
+@SpringBootTest(properties = {
+        "rate-limit.enabled=true",
+        "rate-limit.endpoints.opinions.capacity=1",
+        "rate-limit.endpoints.opinions.refill-period=PT1H"
+})
+@AutoConfigureMockMvc(printOnlyOnFailure = false)
+@ActiveProfiles("test")
+class RateLimitConfigTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Test
+    @DisplayName("Should answer 429 with Retry-After once the user has spent the endpoint limit")
+    void test1() throws Exception {
+        mockMvc.perform(opinionRequest("limitado@zup.com.br"))
+               .andExpect(MockMvcResultMatchers.status().is4xxClientError())
+               .andExpect(MockMvcResultMatchers.header().doesNotExist(HttpHeaders.RETRY_AFTER));
+
+        mockMvc.perform(opinionRequest("limitado@zup.com.br"))
+               .andExpect(MockMvcResultMatchers.status().isTooManyRequests())
+               .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.RETRY_AFTER, "3600"));
+
+        mockMvc.perform(opinionRequest("outro@zup.com.br"))
+               .andExpect(MockMvcResultMatchers.status().is4xxClientError())
+               .andExpect(MockMvcResultMatchers.header().doesNotExist(HttpHeaders.RETRY_AFTER));
+    }
+
+    private MockHttpServletRequestBuilder opinionRequest(String email) {
+        return MockMvcRequestBuilders.post("/api/opinions")
+                .with(jwt()
+                        .jwt(jwt -> jwt.claim("email", email))
+                        .authorities(new SimpleGrantedAuthority("SCOPE_lojavirtual:write")))
+                .content("{}")
+                .contentType(MediaType.APPLICATION_JSON);
+    }
+}
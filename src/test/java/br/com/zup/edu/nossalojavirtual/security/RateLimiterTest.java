@@ -0,0 +1,79 @@
+package br.com.zup.edu.nossalojavirtual.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MockEnvironment environment = new MockEnvironment();
+
+    @Test
+    @DisplayName("Should allow a burst of capacity requests per user and endpoint and tell how long to wait after it")
+    void test1() {
+        environment.setProperty("rate-limit.endpoints.questions.capacity", "2");
+        RateLimiter rateLimiter = new RateLimiter(meterRegistry, environment, 3, Duration.ofHours(1));
+
+        assertTrue(rateLimiter.tryAcquire("questions", "buyer@zup.com.br").isZero());
+        assertTrue(rateLimiter.tryAcquire("questions", "buyer@zup.com.br").isZero());
+
+        Duration wait = rateLimiter.tryAcquire("questions", "buyer@zup.com.br");
+        assertFalse(wait.isZero());
+        assertTrue(wait.compareTo(Duration.ofMinutes(25)) > 0);
+        assertTrue(wait.compareTo(Duration.ofMinutes(30)) <= 0);
+
+        assertTrue(rateLimiter.tryAcquire("questions", "other@zup.com.br").isZero());
+        for (int i = 0; i < 3; i++) {
+            assertTrue(rateLimiter.tryAcquire("opinions", "buyer@zup.com.br").isZero());
+        }
+        assertFalse(rateLimiter.tryAcquire("opinions", "buyer@zup.com.br").isZero());
+    }
+
+    @Test
+    @DisplayName("Should refill the bucket and evict it once it is full again")
+    void test2() throws Exception {
+        RateLimiter rateLimiter = new RateLimiter(meterRegistry, environment, 1, Duration.ofMillis(50));
+
+        assertTrue(rateLimiter.tryAcquire("purchase", "buyer@zup.com.br").isZero());
+        assertFalse(rateLimiter.tryAcquire("purchase", "buyer@zup.com.br").isZero());
+
+        rateLimiter.evictIdleBuckets();
+        assertEquals(1, meterRegistry.get("rate-limit.buckets").gauge().value());
+
+        Thread.sleep(60);
+        rateLimiter.evictIdleBuckets();
+        assertEquals(0, meterRegistry.get("rate-limit.buckets").gauge().value());
+
+        assertTrue(rateLimiter.tryAcquire("purchase", "buyer@zup.com.br").isZero());
+    }
+
+    @Test
+    @DisplayName("Should not hand out more tokens than the capacity to concurrent requests")
+    void test3() throws Exception {
+        RateLimiter rateLimiter = new RateLimiter(meterRegistry, environment, 100, Duration.ofHours(1));
+        AtomicInteger allowed = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            executor.execute(() -> {
+                if (rateLimiter.tryAcquire("opinions", "bot@zup.com.br").isZero()) {
+                    allowed.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(100, allowed.get());
+    }
+}
@@ -0,0 +1,57 @@
+package br.com.zup.edu.nossalojavirtual.users;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PasswordHasher passwordHasher;
+
+    @AfterEach
+    void tearDown() {
+        passwordHasher.destroy();
+    }
+
+    @Test
+    @DisplayName("Should hash the password with the configured strength on a hashing thread")
+    void test1() throws Exception {
+        passwordHasher = new PasswordHasher(meterRegistry, 4, 2, 8);
+
+        Password password = passwordHasher.encode("123456").get();
+
+        assertTrue(password.get().startsWith("$2a$04$"));
+        assertTrue(new BCryptPasswordEncoder().matches("123456", password.get()));
+        assertEquals(1, meterRegistry.get("users.password.hash.duration").timer().count());
+    }
+
+    @Test
+    @DisplayName("Should reject a password right away when the hashing queue is full")
+    void test2() throws Exception {
+        passwordHasher = new PasswordHasher(meterRegistry, 14, 1, 1);
+
+        // one password takes the only hashing thread and the other one the only queue slot
+        passwordHasher.encode("123456");
+        passwordHasher.encode("1234567");
+
+        assertThrows(RejectedExecutionException.class, () -> passwordHasher.encode("12345678"));
+        assertEquals(1, meterRegistry.get("users.password.hash.rejected").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should throw Null Pointer Exception in case of null password")
+    void test3() {
+        passwordHasher = new PasswordHasher(meterRegistry, 4, 1, 1);
+
+        NullPointerException nullPointerException = assertThrows(NullPointerException.class, () -> passwordHasher.encode(null));
+
+        assertEquals("password must not be null", nullPointerException.getMessage());
+    }
+}